@@ -0,0 +1,93 @@
+#!/bin/bash
+
+# ============================================================================
+# Banc d'essai des stratégies de concurrence des réservations
+# ============================================================================
+#
+# Compare les stratégies CONDITIONNELLE, PESSIMISTE et OPTIMISTE sur :
+# 1. Un créneau "chaud" (tout le monde réserve le même samedi matin)
+# 2. Des créneaux "froids" (réservations réparties sur de nombreux créneaux)
+#
+# Pour chaque stratégie : débit, latence p50/p99, réessais, abandons sur conflit et surréservations
+#
+# Prérequis : application démarrée avec le profil dev (H2)
+#   mvn spring-boot:run -Dspring-boot.run.profiles=dev
+#
+# Usage:
+#   ./benchmark-concurrence.sh [nombre_requetes] [parallelisme]
+# ============================================================================
+
+set -e  # Arrêt en cas d'erreur
+
+# Configuration
+API_BASE_URL="http://localhost:8080"
+NOMBRE_REQUETES="${1:-500}"
+PARALLELISME="${2:-50}"
+
+# Couleurs pour l'affichage
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+log_info() {
+    echo -e "${BLUE}ℹ️  $1${NC}"
+}
+
+log_success() {
+    echo -e "${GREEN}✅ $1${NC}"
+}
+
+log_error() {
+    echo -e "${RED}❌ $1${NC}"
+}
+
+# Aligne les colonnes si l'utilitaire column est disponible
+aligner() {
+    if command -v column >/dev/null 2>&1; then
+        column -t
+    else
+        cat
+    fi
+}
+
+# Lance un scénario et affiche un tableau des résultats
+run_scenario() {
+    local scenario="$1"
+    local params="$2"
+
+    log_info "Scénario $scenario ($NOMBRE_REQUETES requêtes, $PARALLELISME en parallèle)..."
+
+    RESULTATS=$(curl -s -X POST \
+        "${API_BASE_URL}/api/admin/benchmark/concurrence?scenario=${scenario}&requetes=${NOMBRE_REQUETES}&parallelisme=${PARALLELISME}${params}")
+
+    if ! echo "$RESULTATS" | jq -e 'type == "array"' >/dev/null 2>&1; then
+        log_error "Échec du banc d'essai (profil dev actif ?)"
+        echo "$RESULTATS"
+        return 1
+    fi
+
+    echo "$RESULTATS" | jq -r '
+        (["STRATEGIE", "CREEES", "REFUSEES", "ABANDONS", "ERREURS", "REQ/S", "P50 (ms)", "P99 (ms)", "REESSAIS", "SURRESERVATIONS"] | @tsv),
+        (.[] | [.strategie, .reservationsCreees, .reservationsRefusees, .abandons, .erreurs,
+                (.debitParSeconde | floor), (.latenceP50Ms * 10 | floor / 10), (.latenceP99Ms * 10 | floor / 10),
+                .reessais, .surreservations] | @tsv)' | aligner
+
+    if [ "$(echo "$RESULTATS" | jq '[.[].surreservations] | add')" -ne 0 ]; then
+        log_error "Surréservation détectée !"
+        return 1
+    fi
+    echo ""
+}
+
+main() {
+    echo "📊 Banc d'essai des stratégies de concurrence"
+    echo "============================================="
+
+    run_scenario "chaud" "&capacite=10"
+    run_scenario "froid" "&creneaux=100&capacite=2"
+
+    log_success "Aucune surréservation, quelle que soit la stratégie"
+}
+
+main "$@"
@@ -5,6 +5,8 @@
 # ============================================================================
 # 
 # Ce script utilise l'API REST pour générer les créneaux automatiquement
+# Les opérations sont des tâches de fond (HTTP 202) : le script suit
+# /api/admin/taches/{id} jusqu'à leur fin (TERMINEE, ECHOUEE ou ANNULEE)
 # 
 # Usage:
 #   ./generate-creneaux.sh [OPTION]
@@ -27,6 +29,8 @@ set -e  # Arrêt en cas d'erreur
 # Configuration
 API_BASE_URL="http://localhost:8080/api/admin"
 CURL_OPTS="-s -w %{http_code}"
+POLL_INTERVAL=2        # Secondes entre deux lectures de l'état d'une tâche
+POLL_TIMEOUT=900       # Attente maximale de la fin d'une tâche (secondes)
 
 # Couleurs pour l'affichage
 RED='\033[0;31m'
@@ -94,7 +98,70 @@ check_api() {
     log_success "API accessible"
 }
 
+# Affiche le message d'erreur d'une réponse
+print_error_body() {
+    local body=$1
+    if command -v jq >/dev/null 2>&1 && echo "$body" | jq empty 2>/dev/null; then
+        echo "$body" | jq -r '.message // .error // "Erreur inconnue"'
+    else
+        echo "$body"
+    fi
+}
+
+# Suit une tâche d'administration (/taches/{id}) jusqu'à son état final
+wait_tache() {
+    local id=$1
+    local description=$2
+    local waited=0
+    local last_progress=""
+    
+    while true; do
+        local response=$(curl $CURL_OPTS "$API_BASE_URL/taches/$id")
+        local http_code=${response: -3}
+        local body=${response%???}
+        
+        if [[ $http_code -ne 200 ]]; then
+            log_error "$description : suivi de la tâche $id impossible (HTTP $http_code)"
+            print_error_body "$body"
+            return 1
+        fi
+        
+        local statut=$(echo "$body" | sed -n 's/.*"statut":"\([A-Z_]*\)".*/\1/p')
+        local traitees=$(echo "$body" | sed -n 's/.*"lignesTraitees":\([0-9]*\).*/\1/p')
+        local progress="${statut} (${traitees:-0} lignes)"
+        if [[ "$progress" != "$last_progress" ]]; then
+            log_info "  Tâche $id : $progress"
+            last_progress=$progress
+        fi
+        
+        case $statut in
+            TERMINEE)
+                log_success "$description réussie"
+                echo "$body" | jq -r '"  \(.message // "Opération réussie")"' 2>/dev/null \
+                    || echo "$body" | sed -n 's/.*"message":"\([^"]*\)".*/  \1/p'
+                echo
+                return 0
+                ;;
+            ECHOUEE|ANNULEE)
+                log_error "$description : tâche $id $(echo "$statut" | tr 'A-Z' 'a-z')"
+                print_error_body "$body"
+                echo
+                return 1
+                ;;
+        esac
+        
+        if [[ $waited -ge $POLL_TIMEOUT ]]; then
+            log_error "$description : tâche $id toujours $statut après ${POLL_TIMEOUT}s"
+            log_info "Suivi : curl $API_BASE_URL/taches/$id"
+            return 1
+        fi
+        sleep $POLL_INTERVAL
+        waited=$((waited + POLL_INTERVAL))
+    done
+}
+
 # Appel API avec gestion d'erreur
+# (202 : tâche de fond soumise, suivie jusqu'à sa fin)
 call_api() {
     local method=$1
     local endpoint=$2
@@ -106,7 +173,17 @@ call_api() {
     local http_code=${response: -3}
     local body=${response%???}
     
-    if [[ $http_code -eq 200 ]]; then
+    if [[ $http_code -eq 202 ]]; then
+        local id=$(echo "$body" | sed -n 's/^{"id":\([0-9]*\).*/\1/p')
+        if [[ -z "$id" ]]; then
+            log_error "$description : identifiant de tâche absent de la réponse"
+            echo "$body"
+            return 1
+        fi
+        log_info "Tâche $id soumise, attente de sa fin..."
+        wait_tache "$id" "$description"
+        return $?
+    elif [[ $http_code -eq 200 ]]; then
         log_success "$description réussie"
         echo "$body" | jq -r '.message // "Opération réussie"' 2>/dev/null || echo "$body"
         if echo "$body" | jq -e '.nombreCreneaux // .nombreSupprimes // .nombreCrees' >/dev/null 2>&1; then
@@ -116,11 +193,7 @@ call_api() {
         return 0
     else
         log_error "$description échouée (HTTP $http_code)"
-        if command -v jq >/dev/null 2>&1 && echo "$body" | jq empty 2>/dev/null; then
-            echo "$body" | jq -r '.message // .error // "Erreur inconnue"'
-        else
-            echo "$body"
-        fi
+        print_error_body "$body"
         echo
         return 1
     fi
@@ -0,0 +1,168 @@
+#!/bin/bash
+
+# ============================================================================
+# Script de test de la réservation concurrente (zéro surréservation)
+# ============================================================================
+#
+# Ce script teste que :
+# 1. Des centaines de réservations envoyées en parallèle sur un même créneau
+#    n'en créent jamais plus que sa capacité
+# 2. Les requêtes refusées reçoivent un 409 (capacité atteinte)
+# 3. Le compteur nombreReservations du créneau correspond exactement
+#    aux réservations créées
+#
+# Usage:
+#   ./test-concurrence-reservation.sh [nombre_requetes] [parallelisme] [capacite]
+# ============================================================================
+
+# Configuration
+API_BASE_URL="http://localhost:8080"
+NOMBRE_REQUETES="${1:-300}"
+PARALLELISME="${2:-100}"
+CAPACITE="${3:-5}"
+
+# Couleurs pour l'affichage
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+YELLOW='\033[1;33m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+# Fonction d'affichage avec couleur
+log_info() {
+    echo -e "${BLUE}ℹ️  $1${NC}"
+}
+
+log_success() {
+    echo -e "${GREEN}✅ $1${NC}"
+}
+
+log_warning() {
+    echo -e "${YELLOW}⚠️  $1${NC}"
+}
+
+log_error() {
+    echo -e "${RED}❌ $1${NC}"
+}
+
+RESULTATS=$(mktemp)
+SLOT_ID=""
+SLOT_DEBUT=""
+
+# Fonction de création d'un créneau dédié au test (dans le futur, heure aléatoire)
+create_test_slot() {
+    local minute=$((RANDOM % 50000))
+    local debut
+    local fin
+    debut=$(date -u -d "2030-01-01 00:00:00 UTC + ${minute} minutes" +%Y-%m-%dT%H:%M:%SZ)
+    fin=$(date -u -d "2030-01-01 00:00:00 UTC + $((minute + 60)) minutes" +%Y-%m-%dT%H:%M:%SZ)
+
+    log_info "Création d'un créneau de test ($debut, capacité $CAPACITE)..."
+
+    SLOT_ID=$(curl -s -X POST \
+        "${API_BASE_URL}/api/creneaux?heureDebut=${debut}&heureFin=${fin}&capacite=${CAPACITE}" | jq -r '.id // empty')
+
+    if [ -z "$SLOT_ID" ]; then
+        log_error "Impossible de créer le créneau de test"
+        return 1
+    fi
+
+    SLOT_DEBUT="$debut"
+    log_success "Créneau de test créé - ID: $SLOT_ID"
+}
+
+# Réservations du créneau de test
+# (liste du jour du créneau, non paginée : GET /api/reservations ne renvoie que la première page)
+slot_reservations() {
+    curl -s "${API_BASE_URL}/api/reservations/jour/${SLOT_DEBUT}" \
+        | jq --arg slot_id "$SLOT_ID" '[.[] | select(.creneau.id == ($slot_id | tonumber))]'
+}
+
+# Fonction envoyant une réservation (appelée en parallèle par xargs)
+reserve_once() {
+    local index="$1"
+    curl -s -o /dev/null -w "%{http_code}\n" -X POST \
+        -H "Content-Type: application/json" \
+        -d "{\"immatriculation\":\"CC-${index}\",\"kilometrage\":10000,\"typeVehicule\":\"AUTO\",\"poidsLourd\":false,\"numeroTelephone\":\"87000000\",\"creneauId\":${SLOT_ID}}" \
+        "${API_BASE_URL}/api/reservations"
+}
+export -f reserve_once
+export API_BASE_URL
+
+# Fonction de nettoyage
+cleanup() {
+    log_info "Nettoyage des données de test..."
+
+    slot_reservations \
+        | jq -r '.[].id' \
+        | while read -r reservation_id; do
+            curl -s -X DELETE "${API_BASE_URL}/api/reservations/${reservation_id}" >/dev/null || true
+        done
+
+    rm -f "$RESULTATS"
+    log_success "Nettoyage terminé"
+}
+
+# Fonction principale
+main() {
+    echo "🧪 Test de réservation concurrente"
+    echo "=================================="
+
+    # Test de l'API
+    if ! curl -s "${API_BASE_URL}/api/creneaux/1" >/dev/null 2>&1; then
+        log_error "API non accessible"
+        exit 1
+    fi
+
+    if ! create_test_slot; then
+        exit 1
+    fi
+
+    log_info "Envoi de $NOMBRE_REQUETES réservations ($PARALLELISME en parallèle)..."
+    DEBUT=$(date +%s%N)
+    seq 1 "$NOMBRE_REQUETES" | SLOT_ID="$SLOT_ID" xargs -P "$PARALLELISME" -I{} bash -c 'reserve_once {}' > "$RESULTATS"
+    DUREE_MS=$(( ($(date +%s%N) - DEBUT) / 1000000 ))
+
+    NB_CREEES=$(grep -c '^200$' "$RESULTATS")
+    NB_CONFLITS=$(grep -c '^409$' "$RESULTATS")
+    NB_AUTRES=$(( NOMBRE_REQUETES - NB_CREEES - NB_CONFLITS ))
+
+    log_info "Durée: ${DUREE_MS} ms - 200: $NB_CREEES, 409: $NB_CONFLITS, autres: $NB_AUTRES"
+
+    NB_RESERVATIONS=$(curl -s "${API_BASE_URL}/api/creneaux/${SLOT_ID}" | jq -r '.nombreReservations')
+    NB_EN_BASE=$(slot_reservations | jq '[.[] | select(.statut != "ANNULEE")] | length')
+
+    ECHEC=0
+
+    if [ "$NB_CREEES" -ne "$CAPACITE" ]; then
+        log_error "$NB_CREEES réservations acceptées pour une capacité de $CAPACITE"
+        ECHEC=1
+    else
+        log_success "Exactement $CAPACITE réservations acceptées"
+    fi
+
+    if [ "$NB_EN_BASE" -ne "$CAPACITE" ] || [ "$NB_RESERVATIONS" -ne "$CAPACITE" ]; then
+        log_error "Incohérence : $NB_EN_BASE réservations en base, compteur du créneau à $NB_RESERVATIONS"
+        ECHEC=1
+    else
+        log_success "Compteur du créneau cohérent avec les réservations en base ($NB_RESERVATIONS/$CAPACITE)"
+    fi
+
+    if [ "$NB_AUTRES" -ne 0 ]; then
+        log_warning "$NB_AUTRES réponses inattendues (ni 200 ni 409)"
+        ECHEC=1
+    fi
+
+    cleanup
+
+    if [ "$ECHEC" -ne 0 ]; then
+        log_error "Le test de concurrence a échoué"
+        exit 1
+    fi
+
+    echo ""
+    log_success "🎉 Aucune surréservation sous $NOMBRE_REQUETES requêtes concurrentes !"
+}
+
+# Exécution
+main "$@"
@@ -2,8 +2,10 @@ package com.garage.reservation;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class GarageReservationApplication {
     public static void main(String[] args) {
         SpringApplication.run(GarageReservationApplication.class, args);
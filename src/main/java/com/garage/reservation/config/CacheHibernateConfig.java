@@ -0,0 +1,33 @@
+package com.garage.reservation.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+
+/**
+ * Cache de second niveau Hibernate (JCache, implémentation Caffeine)
+ *
+ * Les régions (taille maximale, expiration) sont décrites dans cache-hibernate.conf. Le CacheManager
+ * est un bean partagé avec Hibernate : les statistiques des régions sont lues sur les mêmes caches.
+ */
+@Configuration
+public class CacheHibernateConfig {
+
+    private static final URI CONFIGURATION_REGIONS = URI.create("classpath:cache-hibernate.conf");
+
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManagerHibernate() {
+        return Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(CONFIGURATION_REGIONS, getClass().getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheHibernatePropertiesCustomizer(CacheManager cacheManagerHibernate) {
+        return properties -> properties.put("hibernate.javax.cache.cache_manager", cacheManagerHibernate);
+    }
+}
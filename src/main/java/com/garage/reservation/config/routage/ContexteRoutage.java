@@ -0,0 +1,55 @@
+package com.garage.reservation.config.routage;
+
+import java.util.function.Supplier;
+
+/**
+ * Force la base principale pour les lectures du thread courant
+ *
+ * Positionné par le filtre de lecture après écriture pour toute la requête, ou autour d'une lecture
+ * qui ne doit pas voir de données en retard (remplissage d'un cache partagé, reconstruction au
+ * démarrage). Sans effet lorsque le routage vers le réplica est désactivé.
+ */
+public final class ContexteRoutage {
+
+    private static final ThreadLocal<Boolean> PRINCIPALE_REQUISE = new ThreadLocal<>();
+
+    private ContexteRoutage() {
+    }
+
+    /**
+     * Vrai si les lectures du thread courant doivent aller sur la base principale
+     */
+    public static boolean principaleRequise() {
+        return Boolean.TRUE.equals(PRINCIPALE_REQUISE.get());
+    }
+
+    /**
+     * Exécute une lecture sur la base principale ; la connexion doit être obtenue pendant l'appel
+     * (première requête de la transaction)
+     */
+    public static <T> T surPrincipale(Supplier<T> lecture) {
+        Boolean precedent = PRINCIPALE_REQUISE.get();
+        PRINCIPALE_REQUISE.set(Boolean.TRUE);
+        try {
+            return lecture.get();
+        } finally {
+            restaurer(precedent);
+        }
+    }
+
+    static void forcerPrincipale() {
+        PRINCIPALE_REQUISE.set(Boolean.TRUE);
+    }
+
+    static void restaurer(Boolean precedent) {
+        if (precedent == null) {
+            PRINCIPALE_REQUISE.remove();
+        } else {
+            PRINCIPALE_REQUISE.set(precedent);
+        }
+    }
+
+    static Boolean etat() {
+        return PRINCIPALE_REQUISE.get();
+    }
+}
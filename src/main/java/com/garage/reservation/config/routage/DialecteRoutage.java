@@ -0,0 +1,61 @@
+package com.garage.reservation.config.routage;
+
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Dialecte JPA des transactions routées vers le réplica : contournement du cache de second niveau
+ *
+ * Une entité ou un résultat de requête lu sur un réplica en retard ne doit pas être placé dans le
+ * cache partagé, où la base principale le relirait. Le temps de la transaction, l'EntityManager
+ * ignore le cache (modes BYPASS, hérités par les requêtes). La lecture seule ne suffit pas :
+ * Hibernate enregistre le résultat d'une requête absente du cache dès que la lecture est permise.
+ */
+public class DialecteRoutage extends HibernateJpaDialect {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String CACHE_RETRIEVE_MODE = "jakarta.persistence.cache.retrieveMode";
+    private static final String CACHE_STORE_MODE = "jakarta.persistence.cache.storeMode";
+
+    private record LectureReplica(Object donnees, EntityManager entityManager,
+                                  Object retrieveModePrecedent, Object storeModePrecedent) {
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object donnees = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly() || ContexteRoutage.principaleRequise()) {
+            return donnees;
+        }
+        Map<String, Object> proprietes = entityManager.getProperties();
+        LectureReplica lecture = new LectureReplica(donnees, entityManager,
+                proprietes.getOrDefault(CACHE_RETRIEVE_MODE, CacheRetrieveMode.USE),
+                proprietes.getOrDefault(CACHE_STORE_MODE, CacheStoreMode.USE));
+        entityManager.setProperty(CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS);
+        entityManager.setProperty(CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        return lecture;
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof LectureReplica lecture) {
+            if (lecture.entityManager().isOpen()) {
+                lecture.entityManager().setProperty(CACHE_RETRIEVE_MODE, lecture.retrieveModePrecedent());
+                lecture.entityManager().setProperty(CACHE_STORE_MODE, lecture.storeModePrecedent());
+            }
+            super.cleanupTransaction(lecture.donnees());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+}
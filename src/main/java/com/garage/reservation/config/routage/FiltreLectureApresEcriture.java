@@ -0,0 +1,98 @@
+package com.garage.reservation.config.routage;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Lecture après écriture : un client qui vient d'écrire lit la base principale
+ *
+ * Toute requête d'écriture (POST, PUT, PATCH, DELETE) dépose l'échéance du délai de cohérence dans
+ * un cookie et dans l'en-tête X-Garage-Ecriture, et s'exécute entièrement sur la base principale.
+ * Tant que l'échéance n'est pas passée, les requêtes qui renvoient le cookie ou l'en-tête y restent :
+ * le client relit ses propres écritures même si le réplica est en retard. Les navigateurs n'envoient
+ * pas le cookie aux requêtes cross-origin (CORS sans credentials) : un front sur une autre origine
+ * renvoie l'en-tête, exposé par les contrôleurs. Les autres clients lisent le réplica.
+ */
+public class FiltreLectureApresEcriture extends OncePerRequestFilter {
+
+    static final String COOKIE = "garage-ecriture";
+
+    /** En-tête portant l'échéance, dans la réponse à une écriture et dans les requêtes qui suivent */
+    public static final String ENTETE = "X-Garage-Ecriture";
+
+    private static final Set<String> METHODES_ECRITURE = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    private final Duration delaiCoherence;
+
+    public FiltreLectureApresEcriture(Duration delaiCoherence) {
+        this.delaiCoherence = delaiCoherence;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean ecriture = METHODES_ECRITURE.contains(request.getMethod());
+        if (ecriture) {
+            // Avant la chaîne : les en-têtes ne peuvent plus être modifiés une fois la réponse envoyée
+            long echeance = System.currentTimeMillis() + delaiCoherence.toMillis();
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, Long.toString(echeance))
+                    .path("/")
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .maxAge(delaiCoherence)
+                    .build()
+                    .toString());
+            response.setHeader(ENTETE, Long.toString(echeance));
+        }
+
+        if (!ecriture && !ecritureRecente(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Boolean precedent = ContexteRoutage.etat();
+        ContexteRoutage.forcerPrincipale();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ContexteRoutage.restaurer(precedent);
+        }
+    }
+
+    private static boolean ecritureRecente(HttpServletRequest request) {
+        if (echeanceFuture(request.getHeader(ENTETE))) {
+            return true;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                return echeanceFuture(cookie.getValue());
+            }
+        }
+        return false;
+    }
+
+    private static boolean echeanceFuture(String valeur) {
+        if (valeur == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(valeur.trim()) > System.currentTimeMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
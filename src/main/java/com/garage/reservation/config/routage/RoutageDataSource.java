@@ -0,0 +1,25 @@
+package com.garage.reservation.config.routage;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Aiguille chaque connexion vers la base principale ou le réplica
+ *
+ * Seules les transactions en lecture seule (readOnly = true) vont sur le réplica, sauf si le thread
+ * doit lire la base principale (ContexteRoutage). Placé derrière un LazyConnectionDataSourceProxy :
+ * la connexion n'est obtenue qu'à la première requête SQL, une fois la transaction marquée
+ * en lecture seule par le gestionnaire de transactions.
+ */
+public class RoutageDataSource extends AbstractRoutingDataSource {
+
+    public enum Cible { PRINCIPALE, REPLICA }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !ContexteRoutage.principaleRequise()) {
+            return Cible.REPLICA;
+        }
+        return Cible.PRINCIPALE;
+    }
+}
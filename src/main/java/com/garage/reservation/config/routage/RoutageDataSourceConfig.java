@@ -0,0 +1,136 @@
+package com.garage.reservation.config.routage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseDataSource;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Routage des lectures vers un réplica (garage.reservation.replica.enabled=true)
+ *
+ * Deux pools Hikari distincts : la base principale (spring.datasource.*, migrée par Liquibase) et
+ * le réplica (garage.reservation.replica.datasource.*). Les transactions readOnly lisent le réplica,
+ * tout le reste (écritures, lectures hors transaction) la base principale.
+ */
+@Configuration
+@ConditionalOnProperty(name = "garage.reservation.replica.enabled", havingValue = "true")
+@Slf4j
+public class RoutageDataSourceConfig {
+
+    @Bean
+    @LiquibaseDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrincipale(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("garage-principale");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("garage.reservation.replica.datasource")
+    public HikariDataSource dataSourceReplica() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("garage-replica");
+        return dataSource;
+    }
+
+    /**
+     * Source de données utilisée par JPA et JdbcTemplate
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("dataSourcePrincipale") DataSource principale,
+                                 @Qualifier("dataSourceReplica") DataSource replica) {
+        RoutageDataSource routage = new RoutageDataSource();
+        routage.setTargetDataSources(Map.of(
+                RoutageDataSource.Cible.PRINCIPALE, principale,
+                RoutageDataSource.Cible.REPLICA, replica));
+        routage.setDefaultTargetDataSource(principale);
+        routage.afterPropertiesSet();
+        log.info("🔀 Lectures readOnly routées vers le réplica");
+        return new LazyConnectionDataSourceProxy(routage);
+    }
+
+    /**
+     * Adaptateur JPA de l'auto-configuration, avec le dialecte qui protège le cache de second niveau
+     * des lectures sur le réplica
+     */
+    @Bean
+    public JpaVendorAdapter jpaVendorAdapter(JpaProperties jpaProperties) {
+        DialecteRoutage dialecte = new DialecteRoutage();
+        HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter() {
+            @Override
+            public HibernateJpaDialect getJpaDialect() {
+                return dialecte;
+            }
+        };
+        adapter.setShowSql(jpaProperties.isShowSql());
+        adapter.setDatabasePlatform(jpaProperties.getDatabasePlatform());
+        adapter.setGenerateDdl(jpaProperties.isGenerateDdl());
+        return adapter;
+    }
+
+    @Bean
+    public FilterRegistrationBean<FiltreLectureApresEcriture> filtreLectureApresEcriture(
+            @Value("${garage.reservation.replica.delai-coherence-secondes:5}") long delaiCoherenceSecondes) {
+        FilterRegistrationBean<FiltreLectureApresEcriture> enregistrement = new FilterRegistrationBean<>(
+                new FiltreLectureApresEcriture(Duration.ofSeconds(delaiCoherenceSecondes)));
+        enregistrement.addUrlPatterns("/api/*");
+        enregistrement.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return enregistrement;
+    }
+
+    /**
+     * Migre le schéma du réplica avec le changelog de la base principale (test local avec deux bases H2
+     * non répliquées) ; un réplica réel reçoit le schéma par réplication
+     */
+    @Bean
+    @ConditionalOnProperty(name = "garage.reservation.replica.liquibase", havingValue = "true")
+    public MigrationReplica migrationReplica(@Qualifier("dataSourceReplica") DataSource replica,
+                                             LiquibaseProperties liquibaseProperties) {
+        return new MigrationReplica(replica, liquibaseProperties);
+    }
+
+    /**
+     * Volontairement pas un bean SpringLiquibase : l'auto-configuration Liquibase de la base
+     * principale s'effacerait
+     */
+    public static class MigrationReplica {
+
+        MigrationReplica(DataSource replica, LiquibaseProperties liquibaseProperties) {
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(replica);
+            liquibase.setChangeLog(liquibaseProperties.getChangeLog());
+            liquibase.setContexts(liquibaseProperties.getContexts() != null
+                    ? String.join(",", liquibaseProperties.getContexts()) : null);
+            liquibase.setResourceLoader(new DefaultResourceLoader());
+            try {
+                liquibase.afterPropertiesSet();
+            } catch (Exception e) {
+                throw new IllegalStateException("Migration du réplica impossible", e);
+            }
+            log.info("🔀 Schéma du réplica migré");
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package com.garage.reservation.controller;
 
+import com.garage.reservation.dto.JourFerieDTO;
+import com.garage.reservation.dto.ModeleHoraireDTO;
+import com.garage.reservation.dto.StatistiquesCacheDTO;
+import com.garage.reservation.dto.TacheAdminDTO;
 import com.garage.reservation.service.CreneauGenerationService;
+import com.garage.reservation.service.ModeleHoraireService;
+import com.garage.reservation.service.cache.CacheDisponibilites;
+import com.garage.reservation.service.cache.CacheSecondNiveau;
+import com.garage.reservation.service.tache.TachesAdminService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Map;
+import java.net.URI;
+import java.time.DayOfWeek;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -19,157 +30,283 @@ import java.util.Map;
 public class AdminController {
     
     private final CreneauGenerationService creneauGenerationService;
+    private final ModeleHoraireService modeleHoraireService;
+    private final CacheDisponibilites cacheDisponibilites;
+    private final CacheSecondNiveau cacheSecondNiveau;
+    private final TachesAdminService tachesAdminService;
     
     /**
-     * Génère les créneaux pour juillet et août 2025
+     * Génère les créneaux pour juillet et août 2025 (tâche de fond)
      * POST /api/admin/creneaux/generate/juillet-aout-2025
      */
     @PostMapping("/creneaux/generate/juillet-aout-2025")
     @Operation(summary = "Génère les créneaux pour juillet-août 2025", 
-               description = "Crée automatiquement tous les créneaux pour les mois de juillet et août 2025 (lundi-samedi, 8h-18h, hors jours fériés)")
+               description = "Soumet la création des créneaux manquants de juillet et août 2025 selon les modèles d'horaires, " +
+                       "hors jours fériés (les créneaux déjà présents ne sont pas dupliqués) ; suivi via /api/admin/taches/{id}")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Créneaux générés avec succès"),
-            @ApiResponse(responseCode = "500", description = "Erreur lors de la génération")
+            @ApiResponse(responseCode = "202", description = "Tâche de génération soumise"),
+            @ApiResponse(responseCode = "409", description = "Trop de tâches d'administration en cours")
     })
-    public ResponseEntity<Map<String, Object>> generateCreneauxJuilletAout2025() {
-        try {
-            int nombreCreneaux = creneauGenerationService.generateCreneauxJuilletAout2025();
-            
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Créneaux générés avec succès pour juillet-août 2025",
-                    "nombreCreneaux", nombreCreneaux,
-                    "periode", "Juillet-Août 2025",
-                    "horaires", "8h-18h (lundi-samedi, hors pause déjeuner 12h-14h)",
-                    "capacite", "2 véhicules par créneau"
-            ));
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of(
-                    "success", false,
-                    "message", "Erreur lors de la génération des créneaux",
-                    "error", e.getMessage()
-            ));
-        }
+    public ResponseEntity<TacheAdminDTO> generateCreneauxJuilletAout2025() {
+        return accepter(creneauGenerationService.soumettreGenerationJuilletAout2025());
     }
     
     /**
-     * Génère les créneaux pour un mois donné
+     * Génère les créneaux pour un mois donné (tâche de fond)
      * POST /api/admin/creneaux/generate/month?year=2025&month=7
      */
     @PostMapping("/creneaux/generate/month")
     @Operation(summary = "Génère les créneaux pour un mois", 
-               description = "Crée automatiquement tous les créneaux pour un mois donné")
+               description = "Soumet la création des créneaux manquants d'un mois donné selon les modèles d'horaires, " +
+                       "hors jours fériés ; suivi via /api/admin/taches/{id}")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Créneaux générés avec succès"),
+            @ApiResponse(responseCode = "202", description = "Tâche de génération soumise"),
             @ApiResponse(responseCode = "400", description = "Paramètres invalides"),
-            @ApiResponse(responseCode = "500", description = "Erreur lors de la génération")
+            @ApiResponse(responseCode = "409", description = "Trop de tâches d'administration en cours")
     })
-    public ResponseEntity<Map<String, Object>> generateCreneauxForMonth(
+    public ResponseEntity<TacheAdminDTO> generateCreneauxForMonth(
             @Parameter(description = "Année (ex: 2025)", example = "2025")
             @RequestParam int year,
             @Parameter(description = "Mois (1-12)", example = "7")
             @RequestParam int month) {
         
         if (year < 2024 || year > 2030) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "success", false,
-                    "message", "Année invalide. Doit être entre 2024 et 2030"
-            ));
+            throw new IllegalArgumentException("Année invalide. Doit être entre 2024 et 2030");
         }
         
         if (month < 1 || month > 12) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "success", false,
-                    "message", "Mois invalide. Doit être entre 1 et 12"
-            ));
+            throw new IllegalArgumentException("Mois invalide. Doit être entre 1 et 12");
         }
         
-        try {
-            int nombreCreneaux = creneauGenerationService.generateCreneauxForMonth(year, month);
-            
-            String[] moisNoms = {
-                    "Janvier", "Février", "Mars", "Avril", "Mai", "Juin",
-                    "Juillet", "Août", "Septembre", "Octobre", "Novembre", "Décembre"
-            };
-            
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", String.format("Créneaux générés avec succès pour %s %d", moisNoms[month-1], year),
-                    "nombreCreneaux", nombreCreneaux,
-                    "periode", String.format("%s %d", moisNoms[month-1], year),
-                    "year", year,
-                    "month", month
-            ));
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of(
-                    "success", false,
-                    "message", "Erreur lors de la génération des créneaux",
-                    "error", e.getMessage()
-            ));
-        }
+        return accepter(creneauGenerationService.soumettreGenerationMois(year, month));
+    }
+    
+    /**
+     * Complète les créneaux des prochaines semaines (tâche de fond, soumise aussi chaque nuit par la tâche planifiée)
+     * POST /api/admin/creneaux/horizon
+     */
+    @PostMapping("/creneaux/horizon")
+    @Operation(summary = "Complète l'horizon de génération",
+               description = "Soumet l'insertion des créneaux manquants des prochaines semaines " +
+                       "(garage.reservation.generation.horizon-semaines) selon les modèles d'horaires")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Tâche de génération soumise"),
+            @ApiResponse(responseCode = "409", description = "Trop de tâches d'administration en cours")
+    })
+    public ResponseEntity<TacheAdminDTO> completerHorizon() {
+        return accepter(creneauGenerationService.soumettreHorizon());
+    }
+    
+    /**
+     * Dernières tâches d'administration
+     * GET /api/admin/taches
+     */
+    @GetMapping("/taches")
+    @Operation(summary = "Historique des tâches d'administration",
+               description = "Générations et nettoyages soumis, du plus récent au plus ancien (50 au plus), avec leur avancement")
+    public ResponseEntity<List<TacheAdminDTO>> getTaches() {
+        return ResponseEntity.ok(tachesAdminService.getTaches());
+    }
+    
+    /**
+     * État d'une tâche d'administration
+     * GET /api/admin/taches/{id}
+     */
+    @GetMapping("/taches/{id}")
+    @Operation(summary = "État d'une tâche d'administration",
+               description = "Statut, lignes prévues et traitées, lots validés et résumé final")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tâche trouvée"),
+            @ApiResponse(responseCode = "404", description = "Tâche non trouvée")
+    })
+    public ResponseEntity<TacheAdminDTO> getTache(@PathVariable Long id) {
+        return tachesAdminService.getTache(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Annule une tâche d'administration
+     * DELETE /api/admin/taches/{id}
+     */
+    @DeleteMapping("/taches/{id}")
+    @Operation(summary = "Annule une tâche d'administration",
+               description = "Une tâche en attente ne démarre pas ; une tâche en cours s'arrête après le lot en cours " +
+                       "(les lots déjà validés sont conservés)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Annulation demandée"),
+            @ApiResponse(responseCode = "404", description = "Tâche non trouvée"),
+            @ApiResponse(responseCode = "409", description = "Tâche déjà terminée")
+    })
+    public ResponseEntity<TacheAdminDTO> annulerTache(@PathVariable Long id) {
+        return tachesAdminService.annuler(id)
+                .map(tache -> ResponseEntity.accepted().body(tache))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Modèles d'horaires des jours ouverts
+     * GET /api/admin/modeles-horaires
+     */
+    @GetMapping("/modeles-horaires")
+    @Operation(summary = "Modèles d'horaires",
+               description = "Horaires d'ouverture, pause, durée et capacité des créneaux par jour de la semaine (UTC) ; " +
+                       "un jour absent est fermé")
+    public ResponseEntity<List<ModeleHoraireDTO>> getModelesHoraires() {
+        return ResponseEntity.ok(modeleHoraireService.getModeles());
+    }
+    
+    /**
+     * Crée ou remplace le modèle d'horaires d'un jour de la semaine
+     * PUT /api/admin/modeles-horaires/MONDAY
+     */
+    @PutMapping("/modeles-horaires/{jour}")
+    @Operation(summary = "Enregistre le modèle d'horaires d'un jour",
+               description = "S'applique aux créneaux générés ensuite ; les créneaux existants ne sont pas modifiés")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Modèle enregistré"),
+            @ApiResponse(responseCode = "400", description = "Horaires incohérents")
+    })
+    public ResponseEntity<ModeleHoraireDTO> enregistrerModeleHoraire(
+            @Parameter(description = "Jour de la semaine", example = "MONDAY")
+            @PathVariable DayOfWeek jour,
+            @Valid @RequestBody ModeleHoraireDTO modeleDTO) {
+        return ResponseEntity.ok(modeleHoraireService.enregistrerModele(jour, modeleDTO));
+    }
+    
+    /**
+     * Ferme un jour de la semaine
+     * DELETE /api/admin/modeles-horaires/SUNDAY
+     */
+    @DeleteMapping("/modeles-horaires/{jour}")
+    @Operation(summary = "Ferme un jour de la semaine", description = "Supprime son modèle d'horaires")
+    public ResponseEntity<Void> supprimerModeleHoraire(@PathVariable DayOfWeek jour) {
+        return modeleHoraireService.supprimerModele(jour)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+    
+    /**
+     * Jours fériés d'une année
+     * GET /api/admin/jours-feries?annee=2026
+     */
+    @GetMapping("/jours-feries")
+    @Operation(summary = "Jours fériés d'une année", description = "Dates fixes et fêtes mobiles (calculées à partir de Pâques)")
+    public ResponseEntity<List<JourFerieDTO>> getJoursFeries(
+            @Parameter(description = "Année", example = "2026")
+            @RequestParam int annee) {
+        return ResponseEntity.ok(modeleHoraireService.getJoursFeries(annee));
     }
     
     /**
-     * Supprime tous les créneaux futurs sans réservations
+     * Ajoute un jour férié
+     * POST /api/admin/jours-feries
+     */
+    @PostMapping("/jours-feries")
+    @Operation(summary = "Ajoute un jour férié",
+               description = "Date fixe (mois et jour) ou fête mobile (decalagePaques) ; annee limite la fermeture à une année")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Jour férié ajouté"),
+            @ApiResponse(responseCode = "400", description = "Règle incomplète ou ambiguë")
+    })
+    public ResponseEntity<JourFerieDTO> ajouterJourFerie(@Valid @RequestBody JourFerieDTO jourFerieDTO) {
+        return ResponseEntity.ok(modeleHoraireService.ajouterJourFerie(jourFerieDTO));
+    }
+    
+    /**
+     * Supprime un jour férié
+     * DELETE /api/admin/jours-feries/{id}
+     */
+    @DeleteMapping("/jours-feries/{id}")
+    @Operation(summary = "Supprime un jour férié")
+    public ResponseEntity<Void> supprimerJourFerie(@PathVariable Long id) {
+        return modeleHoraireService.supprimerJourFerie(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+    
+    /**
+     * Supprime tous les créneaux futurs sans réservations (tâche de fond)
      * DELETE /api/admin/creneaux/clean-future
      */
     @DeleteMapping("/creneaux/clean-future")
     @Operation(summary = "Nettoie les créneaux futurs", 
-               description = "Supprime tous les créneaux futurs qui n'ont aucune réservation")
+               description = "Soumet la suppression des créneaux futurs qui n'ont aucune réservation, retenue ni inscription " +
+                             "en liste d'attente, par lots validés séparément ; suivi via /api/admin/taches/{id}")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Nettoyage effectué avec succès"),
-            @ApiResponse(responseCode = "500", description = "Erreur lors du nettoyage")
+            @ApiResponse(responseCode = "202", description = "Tâche de nettoyage soumise"),
+            @ApiResponse(responseCode = "409", description = "Trop de tâches d'administration en cours")
     })
-    public ResponseEntity<Map<String, Object>> cleanCreneauxFuturs() {
-        try {
-            int nombreSupprimes = creneauGenerationService.cleanCreneauxFuturs();
-            
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Nettoyage des créneaux futurs effectué avec succès",
-                    "nombreSupprimes", nombreSupprimes
-            ));
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of(
-                    "success", false,
-                    "message", "Erreur lors du nettoyage",
-                    "error", e.getMessage()
-            ));
-        }
+    public ResponseEntity<TacheAdminDTO> cleanCreneauxFuturs() {
+        return accepter(creneauGenerationService.soumettreNettoyage());
     }
     
     /**
-     * Workflow complet : nettoie puis génère juillet-août 2025
+     * Workflow complet : nettoie puis génère juillet-août 2025 (une seule tâche de fond)
      * POST /api/admin/creneaux/reset-juillet-aout-2025
      */
     @PostMapping("/creneaux/reset-juillet-aout-2025")
     @Operation(summary = "Remet à zéro et génère juillet-août 2025", 
-               description = "Supprime les créneaux futurs puis génère ceux de juillet-août 2025")
+               description = "Soumet la suppression des créneaux futurs puis la génération de ceux de juillet-août 2025 ; " +
+                       "suivi via /api/admin/taches/{id}")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Opération effectuée avec succès"),
-            @ApiResponse(responseCode = "500", description = "Erreur lors de l'opération")
+            @ApiResponse(responseCode = "202", description = "Tâche soumise"),
+            @ApiResponse(responseCode = "409", description = "Trop de tâches d'administration en cours")
     })
-    public ResponseEntity<Map<String, Object>> resetAndGenerateJuilletAout2025() {
-        try {
-            // Étape 1 : Nettoyage
-            int nombreSupprimes = creneauGenerationService.cleanCreneauxFuturs();
-            
-            // Étape 2 : Génération
-            int nombreCrees = creneauGenerationService.generateCreneauxJuilletAout2025();
-            
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Remise à zéro et génération effectuées avec succès",
-                    "nombreSupprimes", nombreSupprimes,
-                    "nombreCrees", nombreCrees,
-                    "periode", "Juillet-Août 2025"
-            ));
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of(
-                    "success", false,
-                    "message", "Erreur lors de l'opération",
-                    "error", e.getMessage()
-            ));
-        }
+    public ResponseEntity<TacheAdminDTO> resetAndGenerateJuilletAout2025() {
+        return accepter(creneauGenerationService.soumettreReset());
+    }
+    
+    /**
+     * Statistiques du cache des disponibilités
+     * GET /api/admin/cache/disponibilites
+     */
+    @GetMapping("/cache/disponibilites")
+    @Operation(summary = "Statistiques du cache des disponibilités", 
+               description = "Succès, échecs, évictions et invalidations du cache des créneaux par jour/semaine/période")
+    public ResponseEntity<StatistiquesCacheDTO> getStatistiquesCacheDisponibilites() {
+        return ResponseEntity.ok(cacheDisponibilites.getStatistiques());
+    }
+    
+    /**
+     * Vide le cache des disponibilités
+     * DELETE /api/admin/cache/disponibilites
+     */
+    @DeleteMapping("/cache/disponibilites")
+    @Operation(summary = "Vide le cache des disponibilités")
+    public ResponseEntity<Void> viderCacheDisponibilites() {
+        cacheDisponibilites.vider();
+        return ResponseEntity.noContent().build();
+    }
+    
+    /**
+     * Statistiques du cache de second niveau Hibernate
+     * GET /api/admin/cache/hibernate
+     */
+    @GetMapping("/cache/hibernate")
+    @Operation(summary = "Statistiques du cache de second niveau Hibernate", 
+               description = "Succès, échecs et évictions des régions des entités Creneau et des requêtes sur les créneaux")
+    public ResponseEntity<List<StatistiquesCacheDTO>> getStatistiquesCacheHibernate() {
+        return ResponseEntity.ok(cacheSecondNiveau.getStatistiques());
+    }
+    
+    /**
+     * Vide le cache de second niveau Hibernate
+     * DELETE /api/admin/cache/hibernate
+     */
+    @DeleteMapping("/cache/hibernate")
+    @Operation(summary = "Vide le cache de second niveau Hibernate")
+    public ResponseEntity<Void> viderCacheHibernate() {
+        cacheSecondNiveau.vider();
+        return ResponseEntity.noContent().build();
+    }
+    
+    /**
+     * Réponse 202 d'une tâche soumise, avec l'adresse de suivi
+     */
+    private ResponseEntity<TacheAdminDTO> accepter(TacheAdminDTO tache) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/admin/taches/" + tache.getId()))
+                .body(tache);
     }
-} 
\ No newline at end of file
+}
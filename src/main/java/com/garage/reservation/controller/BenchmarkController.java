@@ -0,0 +1,86 @@
+package com.garage.reservation.controller;
+
+import com.garage.reservation.dto.ResultatBenchmarkDTO;
+import com.garage.reservation.dto.ResultatGenerationDTO;
+import com.garage.reservation.service.capacite.BenchmarkConcurrenceService;
+import com.garage.reservation.service.capacite.TypeStrategieCapacite;
+import com.garage.reservation.service.generation.BenchmarkGenerationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/benchmark")
+@RequiredArgsConstructor
+@Profile("dev")
+@Tag(name = "Banc d'essai", description = "Mesures de performance (profil dev uniquement)")
+public class BenchmarkController {
+    
+    private final BenchmarkConcurrenceService benchmarkConcurrenceService;
+    private final BenchmarkGenerationService benchmarkGenerationService;
+    
+    /**
+     * Compare les stratégies de concurrence des réservations
+     * POST /api/admin/benchmark/concurrence?scenario=chaud&requetes=500&parallelisme=50
+     */
+    @PostMapping("/concurrence")
+    @Operation(summary = "Banc d'essai des stratégies de concurrence",
+               description = "Envoie des réservations concurrentes sur un créneau chaud ou sur plusieurs créneaux froids " +
+                       "et mesure débit, latence p99, réessais et surréservations pour chaque stratégie")
+    public ResponseEntity<List<ResultatBenchmarkDTO>> benchmarkConcurrence(
+            @Parameter(description = "Stratégie à mesurer (toutes si absent)")
+            @RequestParam(required = false) TypeStrategieCapacite strategie,
+            @Parameter(description = "Scénario : chaud (un seul créneau) ou froid (plusieurs créneaux)", example = "chaud")
+            @RequestParam(defaultValue = BenchmarkConcurrenceService.SCENARIO_CHAUD) String scenario,
+            @RequestParam(defaultValue = "500") int requetes,
+            @RequestParam(defaultValue = "50") int parallelisme,
+            @Parameter(description = "Nombre de créneaux du scénario froid", example = "100")
+            @RequestParam(defaultValue = "100") int creneaux,
+            @RequestParam(defaultValue = "10") int capacite) {
+        
+        if (requetes < 1 || requetes > 100_000 || parallelisme < 1 || parallelisme > 500
+                || creneaux < 1 || capacite < 1) {
+            throw new IllegalArgumentException("Paramètres du banc d'essai invalides");
+        }
+        if (!BenchmarkConcurrenceService.SCENARIO_CHAUD.equals(scenario)
+                && !BenchmarkConcurrenceService.SCENARIO_FROID.equals(scenario)) {
+            throw new IllegalArgumentException("Scénario inconnu : " + scenario);
+        }
+        
+        List<TypeStrategieCapacite> types = strategie != null ? List.of(strategie) : List.of(TypeStrategieCapacite.values());
+        List<ResultatBenchmarkDTO> resultats = new ArrayList<>();
+        for (TypeStrategieCapacite type : types) {
+            resultats.add(benchmarkConcurrenceService.executer(type, scenario, requetes, parallelisme, creneaux, capacite));
+        }
+        return ResponseEntity.ok(resultats);
+    }
+    
+    /**
+     * Compare la génération de créneaux par saveAll et par insertion en masse
+     * POST /api/admin/benchmark/generation?jours=365&dureeMinutes=15&capacite=4
+     */
+    @PostMapping("/generation")
+    @Operation(summary = "Banc d'essai de la génération de créneaux",
+               description = "Insère la même grille de créneaux (0h-24h) par JPA saveAll puis par lots JDBC " +
+                       "et mesure la durée et le débit (lignes par seconde) de chaque méthode")
+    public ResponseEntity<List<ResultatGenerationDTO>> benchmarkGeneration(
+            @Parameter(description = "Nombre de jours générés", example = "365")
+            @RequestParam(defaultValue = "365") int jours,
+            @Parameter(description = "Durée d'un créneau en minutes", example = "15")
+            @RequestParam(defaultValue = "15") int dureeMinutes,
+            @Parameter(description = "Capacité de chaque créneau (nombre de postes)", example = "4")
+            @RequestParam(defaultValue = "4") int capacite) {
+        
+        if (jours < 1 || jours > 3660 || dureeMinutes < 5 || dureeMinutes > 1440 || capacite < 1) {
+            throw new IllegalArgumentException("Paramètres du banc d'essai invalides");
+        }
+        return ResponseEntity.ok(benchmarkGenerationService.comparer(jours, dureeMinutes, capacite));
+    }
+}
@@ -1,7 +1,18 @@
 package com.garage.reservation.controller;
 
+import com.garage.reservation.config.routage.FiltreLectureApresEcriture;
+import com.garage.reservation.dto.CalendrierMoisDTO;
 import com.garage.reservation.dto.CreneauDTO;
+import com.garage.reservation.dto.RetenueDTO;
+import com.garage.reservation.model.FormatExport;
+import com.garage.reservation.service.CalendrierService;
 import com.garage.reservation.service.CreneauService;
+import com.garage.reservation.service.ExportService;
+import com.garage.reservation.service.RetenueService;
+import com.garage.reservation.service.cache.VersionsJours;
+import com.garage.reservation.service.generation.MaterialisationCreneaux;
+import com.garage.reservation.service.flux.FluxDisponibilites;
+import com.garage.reservation.util.CurseurPagination;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -9,34 +20,67 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.DayOfWeek;
 import java.time.Instant;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/creneaux")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {CurseurPagination.ENTETE_CURSEUR_SUIVANT, CurseurPagination.ENTETE_TOTAL, FiltreLectureApresEcriture.ENTETE, HttpHeaders.ETAG})
 @Tag(name = "Créneaux", description = "Gestion des créneaux horaires disponibles")
 public class CreneauController {
     
     @Autowired
     private CreneauService creneauService;
     
+    @Autowired
+    private RetenueService retenueService;
+    
+    @Autowired
+    private ExportService exportService;
+    
+    @Autowired
+    private VersionsJours versionsJours;
+    
+    @Autowired
+    private CalendrierService calendrierService;
+    
+    @Autowired
+    private FluxDisponibilites fluxDisponibilites;
+    
+    @Autowired
+    private MaterialisationCreneaux materialisationCreneaux;
+    
     /**
-     * Récupère tous les créneaux
-     * GET /api/creneaux
+     * Récupère les créneaux, page par page
+     * GET /api/creneaux?curseur=...&taille=50
      */
     @GetMapping
-    @Operation(summary = "Récupère tous les créneaux", description = "Retourne la liste complète de tous les créneaux")
+    @Operation(summary = "Récupère les créneaux", description = "Retourne une page de créneaux triés par heure de début ; " +
+            "la page suivante s'obtient avec le curseur de l'en-tête X-Next-Cursor (absent sur la dernière page)")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Liste des créneaux récupérée avec succès")
+            @ApiResponse(responseCode = "200", description = "Page de créneaux récupérée avec succès"),
+            @ApiResponse(responseCode = "400", description = "Curseur ou taille de page invalide")
     })
-    public ResponseEntity<List<CreneauDTO>> getAllCreneaux() {
-        List<CreneauDTO> creneaux = creneauService.getAllCreneaux();
-        return ResponseEntity.ok(creneaux);
+    public ResponseEntity<List<CreneauDTO>> getAllCreneaux(
+            @Parameter(description = "Curseur de continuation (en-tête X-Next-Cursor de la page précédente)")
+            @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de page (50 par défaut, 500 au plus)", example = "50")
+            @RequestParam(required = false) Integer taille,
+            @Parameter(description = "Renvoyer le nombre total d'éléments (en-tête X-Total-Count)")
+            @RequestParam(defaultValue = "false") boolean avecTotal) {
+        return CurseurPagination.reponse(creneauService.getCreneaux(curseur, taille, avecTotal));
     }
     
     /**
@@ -57,13 +101,21 @@ public class CreneauController {
     @GetMapping("/jour/{dateDebut}")
     @Operation(summary = "Récupère les créneaux d'un jour", description = "Retourne tous les créneaux ou seulement les disponibles pour une date donnée")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Liste des créneaux du jour récupérée avec succès")
+            @ApiResponse(responseCode = "200", description = "Liste des créneaux du jour récupérée avec succès"),
+            @ApiResponse(responseCode = "304", description = "Liste inchangée depuis l'ETag fourni dans If-None-Match")
     })
     public ResponseEntity<List<CreneauDTO>> getCreneauxByDate(
             @Parameter(description = "Date début au format ISO-8601", example = "2024-12-23T00:00:00Z")
             @PathVariable Instant dateDebut,
             @Parameter(description = "Filtrer seulement les créneaux disponibles", example = "true")
-            @RequestParam(defaultValue = "false") boolean disponiblesOnly) {
+            @RequestParam(defaultValue = "false") boolean disponiblesOnly,
+            WebRequest requete) {
+        
+        // Version lue avant les créneaux : au pire un ETag plus ancien que la liste, jamais l'inverse
+        String etag = versionsJours.etagJour(dateDebut, disponiblesOnly);
+        if (requete.checkNotModified(etag)) {
+            return null;
+        }
         
         List<CreneauDTO> creneaux;
         if (disponiblesOnly) {
@@ -71,7 +123,7 @@ public class CreneauController {
         } else {
             creneaux = creneauService.getCreneauxByDate(dateDebut);
         }
-        return ResponseEntity.ok(creneaux);
+        return ResponseEntity.ok().eTag(etag).body(creneaux);
     }
     
     /**
@@ -81,7 +133,13 @@ public class CreneauController {
     @GetMapping("/semaine/{dateDebut}")
     public ResponseEntity<List<CreneauDTO>> getCreneauxByWeek(
             @PathVariable Instant dateDebut,
-            @RequestParam(defaultValue = "false") boolean disponiblesOnly) {
+            @RequestParam(defaultValue = "false") boolean disponiblesOnly,
+            WebRequest requete) {
+        
+        String etag = versionsJours.etagSemaine(dateDebut, disponiblesOnly);
+        if (requete.checkNotModified(etag)) {
+            return null;
+        }
         
         List<CreneauDTO> creneaux;
         if (disponiblesOnly) {
@@ -89,7 +147,7 @@ public class CreneauController {
         } else {
             creneaux = creneauService.getCreneauxByWeek(dateDebut);
         }
-        return ResponseEntity.ok(creneaux);
+        return ResponseEntity.ok().eTag(etag).body(creneaux);
     }
     
     /**
@@ -112,16 +170,104 @@ public class CreneauController {
     }
     
     /**
-     * Récupère les créneaux disponibles seulement
+     * Exporte en flux les créneaux entre deux dates (saisons entières)
+     * GET /api/creneaux/periode/export?dateDebut=2025-07-01T00:00:00Z&dateFin=2025-09-01T00:00:00Z&format=NDJSON
+     */
+    @GetMapping("/periode/export")
+    @Operation(summary = "Exporte les créneaux d'une période", description = "Écrit les créneaux au fil de la lecture, " +
+            "en tableau JSON ou en NDJSON (un créneau par ligne), sans limite de taille de période")
+    public ResponseEntity<StreamingResponseBody> exporterCreneaux(
+            @RequestParam Instant dateDebut,
+            @RequestParam Instant dateFin,
+            @RequestParam(defaultValue = "false") boolean disponiblesOnly,
+            @Parameter(description = "Format de sortie : JSON ou NDJSON", example = "NDJSON")
+            @RequestParam(defaultValue = "JSON") FormatExport format) {
+        
+        StreamingResponseBody corps = exportService.exporterCreneaux(dateDebut, dateFin, disponiblesOnly, format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getTypeMime()))
+                .body(corps);
+    }
+    
+    /**
+     * Récupère la synthèse des disponibilités de chaque jour d'un mois
+     * GET /api/creneaux/calendrier/2025/7
+     */
+    @GetMapping("/calendrier/{annee}/{mois}")
+    @Operation(summary = "Calendrier mensuel des disponibilités", description = "Retourne, pour chaque jour du mois (UTC), " +
+            "le nombre de créneaux, la capacité totale, les places réservées, retenues et libres")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Calendrier du mois"),
+        @ApiResponse(responseCode = "400", description = "Mois invalide")
+    })
+    public ResponseEntity<CalendrierMoisDTO> getCalendrier(
+            @Parameter(description = "Année", example = "2025") @PathVariable int annee,
+            @Parameter(description = "Mois (1 à 12)", example = "7") @PathVariable int mois) {
+        return ResponseEntity.ok(calendrierService.getCalendrier(annee, mois));
+    }
+    
+    /**
+     * Flux SSE des changements de disponibilité des créneaux d'une fenêtre
+     * GET /api/creneaux/flux?debut=2025-07-07T00:00:00Z&fin=2025-07-14T00:00:00Z
+     */
+    @GetMapping(value = "/flux", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Flux des disponibilités", description = "Server-Sent Events : l'état initial puis, à chaque " +
+            "changement, un événement \"" + FluxDisponibilites.EVENEMENT_CRENEAUX + "\" portant [{id, placesLibres}] " +
+            "des créneaux modifiés de la fenêtre ; \"" + FluxDisponibilites.EVENEMENT_RECHARGER + "\" demande de relire la fenêtre")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flux ouvert"),
+        @ApiResponse(responseCode = "400", description = "Fenêtre invalide ou trop longue"),
+        @ApiResponse(responseCode = "409", description = "Nombre maximal de flux ouverts atteint")
+    })
+    public SseEmitter getFluxDisponibilites(
+            @Parameter(description = "Début de la fenêtre (inclus)", example = "2025-07-07T00:00:00Z")
+            @RequestParam Instant debut,
+            @Parameter(description = "Fin de la fenêtre (exclue)", example = "2025-07-14T00:00:00Z")
+            @RequestParam Instant fin) {
+        return fluxDisponibilites.abonner(debut, fin);
+    }
+    
+    /**
+     * Récupère les créneaux à venir encore réservables, page par page
      * GET /api/creneaux/disponibles
      */
     @GetMapping("/disponibles")
-    public ResponseEntity<List<CreneauDTO>> getCreneauxDisponibles() {
-        List<CreneauDTO> creneaux = creneauService.getAllCreneaux()
-                .stream()
-                .filter(CreneauDTO::getDisponible)
-                .toList();
-        return ResponseEntity.ok(creneaux);
+    @Operation(summary = "Récupère les créneaux réservables", description = "Retourne une page de créneaux à venir " +
+            "ayant encore des places (réservations actives et retenues comprises), triés par heure de début")
+    public ResponseEntity<List<CreneauDTO>> getCreneauxDisponibles(
+            @Parameter(description = "Curseur de continuation (en-tête X-Next-Cursor de la page précédente)")
+            @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de page (50 par défaut, 500 au plus)", example = "50")
+            @RequestParam(required = false) Integer taille,
+            @Parameter(description = "Renvoyer le nombre total d'éléments (en-tête X-Total-Count)")
+            @RequestParam(defaultValue = "false") boolean avecTotal) {
+        return CurseurPagination.reponse(creneauService.getCreneauxDisponiblesFuturs(curseur, taille, avecTotal));
+    }
+    
+    /**
+     * Recherche les premiers créneaux réservables à partir d'un instant, en une seule requête
+     * GET /api/creneaux/prochain-disponible?apres=2025-07-01T00:00:00Z&limite=3&jours=MONDAY,TUESDAY&heureMin=08:00&heureMax=12:00
+     */
+    @GetMapping("/prochain-disponible")
+    @Operation(summary = "Recherche les prochains créneaux libres", description = "Retourne les premiers créneaux " +
+            "ayant encore des places à partir d'une date, quel que soit leur éloignement, filtrés si besoin par jour " +
+            "de la semaine et par heure de début (UTC)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Créneaux trouvés, par heure de début croissante (liste vide si aucun)"),
+        @ApiResponse(responseCode = "400", description = "Limite ou plage horaire invalide")
+    })
+    public ResponseEntity<List<CreneauDTO>> getProchainsDisponibles(
+            @Parameter(description = "Instant à partir duquel chercher (maintenant par défaut)", example = "2025-07-01T00:00:00Z")
+            @RequestParam(required = false) Instant apres,
+            @Parameter(description = "Nombre de créneaux (1 par défaut, " + CreneauService.LIMITE_MAX_PROCHAINS + " au plus)", example = "3")
+            @RequestParam(required = false) Integer limite,
+            @Parameter(description = "Jours de la semaine acceptés", example = "MONDAY,TUESDAY")
+            @RequestParam(required = false) Set<DayOfWeek> jours,
+            @Parameter(description = "Heure de début minimale (incluse, UTC)", example = "08:00")
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime heureMin,
+            @Parameter(description = "Heure de début maximale (exclue, UTC)", example = "12:00")
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime heureMax) {
+        return ResponseEntity.ok(creneauService.getProchainsDisponibles(apres, limite, jours, heureMin, heureMax));
     }
     
     /**
@@ -172,4 +318,49 @@ public class CreneauController {
         }
         return ResponseEntity.notFound().build();
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Retient temporairement une place du créneau
+     * POST /api/creneaux/{id}/holds?dureeSecondes=180
+     */
+    @PostMapping("/{id}/holds")
+    @Operation(summary = "Retient une place du créneau", 
+               description = "Bloque une place pendant la saisie de la réservation. La retenue compte dans la capacité " +
+                       "du créneau jusqu'à son expiration ; elle se convertit en réservation en passant son ID (retenueId) " +
+                       "à POST /api/reservations.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Place retenue"),
+            @ApiResponse(responseCode = "400", description = "Créneau inexistant ou durée invalide"),
+            @ApiResponse(responseCode = "409", description = "Créneau complet")
+    })
+    public ResponseEntity<RetenueDTO> creerRetenue(
+            @PathVariable Long id,
+            @Parameter(description = "Durée de la retenue en secondes (180 par défaut)")
+            @RequestParam(required = false) Integer dureeSecondes) {
+        try {
+            // Créneau virtuel matérialisé avant la transaction de la retenue
+            return ResponseEntity.ok(retenueService.creerRetenue(materialisationCreneaux.resoudre(id), dureeSecondes));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).build(); // Conflict
+        }
+    }
+    
+    /**
+     * Abandonne une retenue et rend sa place
+     * DELETE /api/creneaux/{id}/holds/{retenueId}
+     */
+    @DeleteMapping("/{id}/holds/{retenueId}")
+    @Operation(summary = "Abandonne une retenue", description = "Rend immédiatement la place retenue")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Retenue abandonnée"),
+            @ApiResponse(responseCode = "404", description = "Retenue inexistante, expirée ou déjà convertie")
+    })
+    public ResponseEntity<Void> libererRetenue(@PathVariable Long id, @PathVariable Long retenueId) {
+        if (retenueService.libererRetenue(id, retenueId)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
@@ -1,9 +1,21 @@
 package com.garage.reservation.controller;
 
+import com.garage.reservation.config.routage.FiltreLectureApresEcriture;
 import com.garage.reservation.dto.CreationReservationDTO;
+import com.garage.reservation.dto.CreationReservationsLotDTO;
+import com.garage.reservation.dto.InscriptionAttenteDTO;
 import com.garage.reservation.dto.ReservationDTO;
+import com.garage.reservation.dto.ResultatLotDTO;
+import com.garage.reservation.model.FormatExport;
+import com.garage.reservation.model.ModeLot;
 import com.garage.reservation.model.StatutReservation;
+import com.garage.reservation.service.ExportService;
+import com.garage.reservation.service.IdempotenceService;
+import com.garage.reservation.service.ListeAttenteService;
+import com.garage.reservation.service.ReservationLotService;
 import com.garage.reservation.service.ReservationService;
+import com.garage.reservation.service.generation.MaterialisationCreneaux;
+import com.garage.reservation.util.CurseurPagination;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,8 +24,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.util.List;
@@ -21,21 +35,41 @@ import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/reservations")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {CurseurPagination.ENTETE_CURSEUR_SUIVANT, CurseurPagination.ENTETE_TOTAL, FiltreLectureApresEcriture.ENTETE})
 @Tag(name = "Réservations", description = "Gestion des réservations de créneaux")
 public class ReservationController {
     
     @Autowired
     private ReservationService reservationService;
     
+    @Autowired
+    private ReservationLotService reservationLotService;
+    
+    @Autowired
+    private IdempotenceService idempotenceService;
+    
+    @Autowired
+    private ListeAttenteService listeAttenteService;
+    
+    @Autowired
+    private ExportService exportService;
+    
+    @Autowired
+    private MaterialisationCreneaux materialisationCreneaux;
+    
     /**
-     * Récupère toutes les réservations
-     * GET /api/reservations
+     * Récupère les réservations, page par page (curseur suivant dans l'en-tête X-Next-Cursor)
+     * GET /api/reservations?curseur=...&taille=50
      */
     @GetMapping
-    public ResponseEntity<List<ReservationDTO>> getAllReservations() {
-        List<ReservationDTO> reservations = reservationService.getAllReservations();
-        return ResponseEntity.ok(reservations);
+    public ResponseEntity<List<ReservationDTO>> getAllReservations(
+            @Parameter(description = "Curseur de continuation (en-tête X-Next-Cursor de la page précédente)")
+            @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de page (50 par défaut, 500 au plus)", example = "50")
+            @RequestParam(required = false) Integer taille,
+            @Parameter(description = "Renvoyer le nombre total d'éléments (en-tête X-Total-Count)")
+            @RequestParam(defaultValue = "false") boolean avecTotal) {
+        return CurseurPagination.reponse(reservationService.getAllReservations(curseur, taille, avecTotal));
     }
     
     /**
@@ -55,9 +89,43 @@ public class ReservationController {
      */
     @GetMapping("/immatriculation/{immatriculation}")
     public ResponseEntity<List<ReservationDTO>> getReservationsByImmatriculation(
-            @PathVariable String immatriculation) {
-        List<ReservationDTO> reservations = reservationService.getReservationsByImmatriculation(immatriculation);
-        return ResponseEntity.ok(reservations);
+            @PathVariable String immatriculation,
+            @Parameter(description = "Curseur de continuation (en-tête X-Next-Cursor de la page précédente)")
+            @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de page (50 par défaut, 500 au plus)", example = "50")
+            @RequestParam(required = false) Integer taille,
+            @Parameter(description = "Renvoyer le nombre total d'éléments (en-tête X-Total-Count)")
+            @RequestParam(defaultValue = "false") boolean avecTotal) {
+        return CurseurPagination.reponse(
+                reservationService.getReservationsByImmatriculation(immatriculation, curseur, taille, avecTotal));
+    }
+    
+    /**
+     * Recherche les réservations par début d'immatriculation ou de numéro de téléphone
+     * GET /api/reservations/recherche?immatriculation=ab-12
+     * GET /api/reservations/recherche?telephone=87 12
+     */
+    @GetMapping("/recherche")
+    @Operation(summary = "Recherche par préfixe", description = "Recherche les réservations dont l'immatriculation ou le " +
+            "numéro de téléphone commence par la saisie, sans tenir compte de la casse, des tirets, des espaces ni de " +
+            "l'indicatif +689. Résultats par heure de créneau croissante, page par page")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Page de réservations"),
+        @ApiResponse(responseCode = "400", description = "Critère absent, double ou trop court (2 caractères au moins)")
+    })
+    public ResponseEntity<List<ReservationDTO>> rechercherReservations(
+            @Parameter(description = "Début d'immatriculation", example = "AB-12")
+            @RequestParam(required = false) String immatriculation,
+            @Parameter(description = "Début de numéro de téléphone", example = "87 12")
+            @RequestParam(required = false) String telephone,
+            @Parameter(description = "Curseur de continuation (en-tête X-Next-Cursor de la page précédente)")
+            @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de page (50 par défaut, 500 au plus)", example = "50")
+            @RequestParam(required = false) Integer taille,
+            @Parameter(description = "Renvoyer le nombre total d'éléments (en-tête X-Total-Count)")
+            @RequestParam(defaultValue = "false") boolean avecTotal) {
+        return CurseurPagination.reponse(
+                reservationService.rechercherReservations(immatriculation, telephone, curseur, taille, avecTotal));
     }
     
     /**
@@ -66,9 +134,15 @@ public class ReservationController {
      */
     @GetMapping("/telephone/{numeroTelephone}")
     public ResponseEntity<List<ReservationDTO>> getReservationsByNumeroTelephone(
-            @PathVariable String numeroTelephone) {
-        List<ReservationDTO> reservations = reservationService.getReservationsByPhone(numeroTelephone);
-        return ResponseEntity.ok(reservations);
+            @PathVariable String numeroTelephone,
+            @Parameter(description = "Curseur de continuation (en-tête X-Next-Cursor de la page précédente)")
+            @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de page (50 par défaut, 500 au plus)", example = "50")
+            @RequestParam(required = false) Integer taille,
+            @Parameter(description = "Renvoyer le nombre total d'éléments (en-tête X-Total-Count)")
+            @RequestParam(defaultValue = "false") boolean avecTotal) {
+        return CurseurPagination.reponse(
+                reservationService.getReservationsByPhone(numeroTelephone, curseur, taille, avecTotal));
     }
     
     /**
@@ -98,19 +172,43 @@ public class ReservationController {
      * GET /api/reservations/futures
      */
     @GetMapping("/futures")
-    public ResponseEntity<List<ReservationDTO>> getReservationsFutures() {
-        List<ReservationDTO> reservations = reservationService.getReservationsFutures();
-        return ResponseEntity.ok(reservations);
+    public ResponseEntity<List<ReservationDTO>> getReservationsFutures(
+            @Parameter(description = "Curseur de continuation (en-tête X-Next-Cursor de la page précédente)")
+            @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de page (50 par défaut, 500 au plus)", example = "50")
+            @RequestParam(required = false) Integer taille,
+            @Parameter(description = "Renvoyer le nombre total d'éléments (en-tête X-Total-Count)")
+            @RequestParam(defaultValue = "false") boolean avecTotal) {
+        return CurseurPagination.reponse(reservationService.getReservationsFutures(curseur, taille, avecTotal));
     }
     
     /**
-     * Récupère les réservations passées
+     * Récupère les réservations passées, de la plus récente à la plus ancienne
      * GET /api/reservations/passees
      */
     @GetMapping("/passees")
-    public ResponseEntity<List<ReservationDTO>> getReservationsPassees() {
-        List<ReservationDTO> reservations = reservationService.getReservationsPassees();
-        return ResponseEntity.ok(reservations);
+    public ResponseEntity<List<ReservationDTO>> getReservationsPassees(
+            @Parameter(description = "Curseur de continuation (en-tête X-Next-Cursor de la page précédente)")
+            @RequestParam(required = false) String curseur,
+            @Parameter(description = "Taille de page (50 par défaut, 500 au plus)", example = "50")
+            @RequestParam(required = false) Integer taille,
+            @Parameter(description = "Renvoyer le nombre total d'éléments (en-tête X-Total-Count)")
+            @RequestParam(defaultValue = "false") boolean avecTotal) {
+        return CurseurPagination.reponse(reservationService.getReservationsPassees(curseur, taille, avecTotal));
+    }
+    
+    /**
+     * Exporte en flux tout l'historique des réservations passées
+     * GET /api/reservations/passees/export?format=NDJSON
+     */
+    @GetMapping("/passees/export")
+    public ResponseEntity<StreamingResponseBody> exporterReservationsPassees(
+            @Parameter(description = "Format de sortie : JSON ou NDJSON", example = "NDJSON")
+            @RequestParam(defaultValue = "JSON") FormatExport format) {
+        StreamingResponseBody corps = exportService.exporterReservationsPassees(format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getTypeMime()))
+                .body(corps);
     }
     
     /**
@@ -119,7 +217,8 @@ public class ReservationController {
      */
     @PostMapping
     @Operation(summary = "Crée une nouvelle réservation", 
-               description = "Crée une réservation pour un créneau donné avec les informations du véhicule")
+               description = "Crée une réservation pour un créneau donné avec les informations du véhicule. " +
+                       "Avec l'en-tête Idempotency-Key, une requête rejouée renvoie la réservation d'origine.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Réservation créée avec succès"),
             @ApiResponse(responseCode = "400", description = "Données invalides"),
@@ -127,9 +226,15 @@ public class ReservationController {
     })
     public ResponseEntity<ReservationDTO> createReservation(
             @Parameter(description = "Informations de la réservation à créer")
-            @Valid @RequestBody CreationReservationDTO creationDTO) {
+            @Valid @RequestBody CreationReservationDTO creationDTO,
+            @Parameter(description = "Clé unique de la requête : une requête rejouée avec la même clé renvoie la réservation d'origine")
+            @RequestHeader(value = "Idempotency-Key", required = false) String cleIdempotence) {
         try {
-            ReservationDTO reservation = reservationService.createReservation(creationDTO);
+            // Créneau virtuel matérialisé avant la transaction de réservation
+            creationDTO.setCreneauId(materialisationCreneaux.resoudre(creationDTO.getCreneauId()));
+            ReservationDTO reservation = cleIdempotence == null
+                    ? reservationService.createReservation(creationDTO)
+                    : idempotenceService.executer(cleIdempotence, creationDTO, () -> reservationService.createReservation(creationDTO));
             return ResponseEntity.ok(reservation);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
@@ -138,6 +243,84 @@ public class ReservationController {
         }
     }
     
+    /**
+     * Crée un lot de réservations (flottes de véhicules)
+     * POST /api/reservations/batch
+     */
+    @PostMapping("/batch")
+    @Operation(summary = "Crée un lot de réservations", 
+               description = "Crée jusqu'à 100 réservations en une requête. Mode TOUT_OU_RIEN (défaut) : aucune réservation " +
+                       "n'est créée si l'une échoue. Mode MEILLEUR_EFFORT : les réservations possibles sont créées. " +
+                       "Le résultat est détaillé pour chaque réservation du lot.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lot traité (voir le résultat de chaque réservation)"),
+            @ApiResponse(responseCode = "400", description = "Données invalides"),
+            @ApiResponse(responseCode = "409", description = "Mode tout ou rien : au moins une réservation a échoué, aucune n'a été créée")
+    })
+    public ResponseEntity<ResultatLotDTO> createReservationsLot(
+            @Parameter(description = "Réservations à créer et mode de traitement du lot")
+            @Valid @RequestBody CreationReservationsLotDTO lotDTO) {
+        materialisationCreneaux.resoudreDemandes(lotDTO.getReservations());
+        ResultatLotDTO resultat = reservationLotService.createReservations(lotDTO);
+        if (resultat.getMode() == ModeLot.TOUT_OU_RIEN && resultat.getNombreEchecs() > 0) {
+            return ResponseEntity.status(409).body(resultat); // Conflict
+        }
+        return ResponseEntity.ok(resultat);
+    }
+    
+    /**
+     * Inscrit un véhicule en liste d'attente d'un créneau complet
+     * POST /api/reservations/attente
+     */
+    @PostMapping("/attente")
+    @Operation(summary = "Inscrit un véhicule en liste d'attente", 
+               description = "Sur un créneau complet, place la demande de réservation dans une file d'attente. " +
+                       "À la première annulation, la tête de file reçoit automatiquement la place libérée " +
+                       "(statut PROMUE et reservationId renseigné).")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Inscription enregistrée"),
+            @ApiResponse(responseCode = "400", description = "Données invalides ou créneau inexistant"),
+            @ApiResponse(responseCode = "409", description = "Le créneau a encore des places : réserver directement")
+    })
+    public ResponseEntity<InscriptionAttenteDTO> inscrireListeAttente(
+            @Parameter(description = "Réservation à créer lorsqu'une place se libère")
+            @Valid @RequestBody CreationReservationDTO creationDTO) {
+        try {
+            return ResponseEntity.ok(listeAttenteService.inscrire(creationDTO));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).build(); // Conflict
+        }
+    }
+    
+    /**
+     * Récupère une inscription en liste d'attente (rang dans la file ou réservation obtenue)
+     * GET /api/reservations/attente/{id}
+     */
+    @GetMapping("/attente/{id}")
+    public ResponseEntity<InscriptionAttenteDTO> getInscriptionListeAttente(@PathVariable Long id) {
+        return listeAttenteService.getInscription(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Retire une inscription de la liste d'attente
+     * DELETE /api/reservations/attente/{id}
+     */
+    @DeleteMapping("/attente/{id}")
+    public ResponseEntity<Void> retirerListeAttente(@PathVariable Long id) {
+        try {
+            if (listeAttenteService.retirer(id)) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).build(); // Conflict
+        }
+    }
+    
     /**
      * Met à jour le statut d'une réservation
      * PUT /api/reservations/{id}/statut
@@ -0,0 +1,21 @@
+package com.garage.reservation.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CalendrierMoisDTO {
+    
+    private Integer annee;
+    
+    private Integer mois;
+    
+    /** Un élément par jour du mois, y compris les jours sans créneau */
+    private List<DisponibiliteJourDTO> jours;
+}
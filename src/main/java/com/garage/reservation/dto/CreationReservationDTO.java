@@ -37,4 +37,9 @@ public class CreationReservationDTO {
     
     @NotNull(message = "L'ID du créneau est obligatoire")
     private Long creneauId;
+    
+    /**
+     * Retenue temporaire à convertir en réservation (optionnelle)
+     */
+    private Long retenueId;
 } 
\ No newline at end of file
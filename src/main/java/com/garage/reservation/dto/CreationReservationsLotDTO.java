@@ -0,0 +1,24 @@
+package com.garage.reservation.dto;
+
+import com.garage.reservation.model.ModeLot;
+import jakarta.validation.constraints.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CreationReservationsLotDTO {
+    
+    @NotEmpty(message = "Le lot doit contenir au moins une réservation")
+    @Size(max = 100, message = "Un lot ne peut pas dépasser 100 réservations")
+    private List<CreationReservationDTO> reservations;
+    
+    @Builder.Default
+    private ModeLot mode = ModeLot.TOUT_OU_RIEN;
+}
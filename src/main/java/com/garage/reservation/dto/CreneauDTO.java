@@ -26,4 +26,6 @@ public class CreneauDTO {
     private Integer capaciteTotale;
     
     private Integer nombreReservations;
+    
+    private Integer nombreRetenues;
 } 
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.garage.reservation.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Changement de disponibilité d'un créneau, poussé dans le flux SSE
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DeltaCreneauDTO {
+    
+    private Long id;
+    
+    /** Places encore réservables (0 si le créneau est fermé ou complet) */
+    private Integer placesLibres;
+}
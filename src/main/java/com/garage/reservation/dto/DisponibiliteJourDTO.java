@@ -0,0 +1,29 @@
+package com.garage.reservation.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DisponibiliteJourDTO {
+    
+    private LocalDate jour;
+    
+    private Integer nombreCreneaux;
+    
+    private Integer capaciteTotale;
+    
+    /** Réservations actives (non-annulées) */
+    private Integer placesReservees;
+    
+    /** Places retenues temporairement */
+    private Integer placesRetenues;
+    
+    /** Capacité restante : capacité totale moins les places réservées et retenues */
+    private Integer placesLibres;
+}
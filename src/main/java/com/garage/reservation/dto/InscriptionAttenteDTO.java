@@ -0,0 +1,48 @@
+package com.garage.reservation.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.garage.reservation.model.StatutInscriptionAttente;
+import com.garage.reservation.model.TypeVehicule;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InscriptionAttenteDTO {
+    
+    private Long id;
+    
+    private Long creneauId;
+    
+    private String immatriculation;
+    
+    private Integer kilometrage;
+    
+    private TypeVehicule typeVehicule;
+    
+    private Boolean poidsLourd;
+    
+    private String numeroTelephone;
+    
+    private String email;
+    
+    private StatutInscriptionAttente statut;
+    
+    /**
+     * Rang dans la file (1 = prochaine promue), absent une fois promue
+     */
+    private Integer position;
+    
+    /**
+     * Réservation créée lors de la promotion
+     */
+    private Long reservationId;
+    
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Instant dateInscription;
+}
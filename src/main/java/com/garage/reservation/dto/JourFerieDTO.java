@@ -0,0 +1,39 @@
+package com.garage.reservation.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JourFerieDTO {
+    
+    private Long id;
+    
+    @NotBlank(message = "Le libellé est obligatoire")
+    @Size(max = 100, message = "Le libellé ne peut pas dépasser 100 caractères")
+    private String libelle;
+    
+    /** Date fixe : mois et jour */
+    @Min(value = 1, message = "Le mois doit être compris entre 1 et 12")
+    @Max(value = 12, message = "Le mois doit être compris entre 1 et 12")
+    private Integer mois;
+    
+    @Min(value = 1, message = "Le jour doit être compris entre 1 et 31")
+    @Max(value = 31, message = "Le jour doit être compris entre 1 et 31")
+    private Integer jour;
+    
+    /** Fête mobile : jours après le dimanche de Pâques (à la place du mois et du jour) */
+    private Integer decalagePaques;
+    
+    /** Année de la fermeture si elle n'est pas annuelle */
+    private Integer annee;
+    
+    /** Date calculée pour l'année demandée (lecture seule) */
+    private LocalDate date;
+}
@@ -0,0 +1,38 @@
+package com.garage.reservation.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ModeleHoraireDTO {
+    
+    /** Fixé par le chemin de la requête en écriture */
+    private DayOfWeek jourSemaine;
+    
+    @NotNull(message = "L'heure d'ouverture est obligatoire")
+    private LocalTime heureOuverture;
+    
+    @NotNull(message = "L'heure de fermeture est obligatoire")
+    private LocalTime heureFermeture;
+    
+    /** Pause facultative (début et fin renseignés ensemble) */
+    private LocalTime pauseDebut;
+    
+    private LocalTime pauseFin;
+    
+    @NotNull(message = "La durée des créneaux est obligatoire")
+    @Min(value = 5, message = "Un créneau dure au moins 5 minutes")
+    private Integer dureeMinutes;
+    
+    @NotNull(message = "La capacité est obligatoire")
+    @Min(value = 1, message = "La capacité doit être d'au moins 1")
+    private Integer capacite;
+}
@@ -0,0 +1,24 @@
+package com.garage.reservation.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.util.List;
+
+/**
+ * Page d'une liste paginée par curseur
+ * (curseurSuivant absent sur la dernière page, total renseigné seulement sur demande)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PageCurseurDTO<T> {
+    
+    private List<T> elements;
+    
+    private String curseurSuivant;
+    
+    private Long total;
+}
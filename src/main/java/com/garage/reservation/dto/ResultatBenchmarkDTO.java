@@ -0,0 +1,45 @@
+package com.garage.reservation.dto;
+
+import com.garage.reservation.service.capacite.TypeStrategieCapacite;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResultatBenchmarkDTO {
+    
+    private TypeStrategieCapacite strategie;
+    
+    private String scenario;
+    
+    private Integer nombreCreneaux;
+    
+    private Integer nombreRequetes;
+    
+    private Integer parallelisme;
+    
+    private Integer reservationsCreees;
+    
+    private Integer reservationsRefusees;
+    
+    /** Réservations abandonnées après épuisement des réessais sur conflit de version (stratégie optimiste) */
+    private Integer abandons;
+    
+    private Integer erreurs;
+    
+    private Long dureeMs;
+    
+    private Double debitParSeconde;
+    
+    private Double latenceP50Ms;
+    
+    private Double latenceP99Ms;
+    
+    private Long reessais;
+    
+    private Integer surreservations;
+}
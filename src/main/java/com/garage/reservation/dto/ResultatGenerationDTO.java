@@ -0,0 +1,29 @@
+package com.garage.reservation.dto;
+
+import com.garage.reservation.model.MethodeInsertion;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResultatGenerationDTO {
+    
+    private MethodeInsertion methode;
+    
+    /** Créneaux insérés */
+    private Integer nombreCreneaux;
+    
+    /** Créneaux prévus déjà présents en base, non réinsérés */
+    @Builder.Default
+    private Integer nombreExistants = 0;
+    
+    private Integer nombreLots;
+    
+    private Long dureeMs;
+    
+    private Double lignesParSeconde;
+}
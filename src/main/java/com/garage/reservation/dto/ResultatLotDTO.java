@@ -0,0 +1,26 @@
+package com.garage.reservation.dto;
+
+import com.garage.reservation.model.ModeLot;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResultatLotDTO {
+    
+    private ModeLot mode;
+    
+    private Integer nombreDemandees;
+    
+    private Integer nombreCreees;
+    
+    private Integer nombreEchecs;
+    
+    private List<ResultatReservationLotDTO> resultats;
+}
@@ -0,0 +1,21 @@
+package com.garage.reservation.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResultatNettoyageDTO {
+    
+    /** Créneaux futurs supprimés */
+    private Integer nombreSupprimes;
+    
+    /** Lots validés séparément */
+    private Integer nombreLots;
+    
+    private Long dureeMs;
+}
@@ -0,0 +1,21 @@
+package com.garage.reservation.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResultatReservationLotDTO {
+    
+    private Integer index;
+    
+    private Boolean succes;
+    
+    private ReservationDTO reservation;
+    
+    private String erreur;
+}
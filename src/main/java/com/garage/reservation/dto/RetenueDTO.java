@@ -0,0 +1,25 @@
+package com.garage.reservation.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RetenueDTO {
+    
+    private Long id;
+    
+    private Long creneauId;
+    
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Instant dateCreation;
+    
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Instant dateExpiration;
+}
@@ -0,0 +1,33 @@
+package com.garage.reservation.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatistiquesCacheDTO {
+    
+    private String nom;
+    
+    private Boolean actif;
+    
+    private Long nombreEntrees;
+    
+    private Long tailleMax;
+    
+    private Long ttlSecondes;
+    
+    private Long succes;
+    
+    private Long echecs;
+    
+    private Double tauxSucces;
+    
+    private Long evictions;
+    
+    private Long invalidations;
+}
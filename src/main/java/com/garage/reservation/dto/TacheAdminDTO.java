@@ -0,0 +1,51 @@
+package com.garage.reservation.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.garage.reservation.model.StatutTacheAdmin;
+import com.garage.reservation.model.TypeTacheAdmin;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TacheAdminDTO {
+    
+    private Long id;
+    
+    private TypeTacheAdmin type;
+    
+    private StatutTacheAdmin statut;
+    
+    /** Jours des créneaux concernés (UTC) ; fin absente pour tous les créneaux à partir du début */
+    private LocalDate debutPeriode;
+    
+    private LocalDate finPeriode;
+    
+    /** Lignes à traiter, si connues */
+    private Integer lignesPrevues;
+    
+    private Integer lignesTraitees;
+    
+    private Integer lotsTraites;
+    
+    /** Pourcentage d'avancement, si les lignes à traiter sont connues */
+    private Integer progression;
+    
+    private String message;
+    
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Instant dateCreation;
+    
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Instant dateDebut;
+    
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Instant dateFin;
+}
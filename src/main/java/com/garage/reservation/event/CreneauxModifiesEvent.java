@@ -0,0 +1,38 @@
+package com.garage.reservation.event;
+
+import java.time.Instant;
+
+/**
+ * Événement publié lorsque la disponibilité de créneaux change (réservation, annulation,
+ * retenue, création ou suppression de créneaux). Les abonnés le traitent après le commit.
+ *
+ * debut et fin bornent les heures de début des créneaux concernés (incluses) ;
+ * null pour les deux signifie que tous les créneaux peuvent avoir changé.
+ */
+public record CreneauxModifiesEvent(Instant debut, Instant fin) {
+    
+    /**
+     * Un seul créneau modifié
+     */
+    public static CreneauxModifiesEvent creneau(Instant heureDebut) {
+        return new CreneauxModifiesEvent(heureDebut, heureDebut);
+    }
+    
+    /**
+     * Créneaux modifiés dont l'heure de début est comprise entre debut et fin
+     */
+    public static CreneauxModifiesEvent periode(Instant debut, Instant fin) {
+        return new CreneauxModifiesEvent(debut, fin);
+    }
+    
+    /**
+     * Modification pouvant toucher n'importe quel créneau
+     */
+    public static CreneauxModifiesEvent tous() {
+        return new CreneauxModifiesEvent(null, null);
+    }
+    
+    public boolean concerneTous() {
+        return debut == null || fin == null;
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -70,6 +71,15 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.CONFLICT);
     }
     
+    /**
+     * Gère les connexions interrompues par le client (flux SSE, exports) : la réponse,
+     * déjà commencée, ne peut plus être écrite
+     */
+    @ExceptionHandler(IOException.class)
+    public void handleIOException(IOException ex) {
+        // Rien à renvoyer au client
+    }
+    
     /**
      * Gère toutes les autres erreurs non prévues
      */
@@ -11,9 +11,13 @@ public interface CreneauMapper {
     
     CreneauMapper INSTANCE = Mappers.getMapper(CreneauMapper.class);
     
-    @Mapping(target = "nombreReservations", expression = "java(creneau.getNombreReservations())")
+    @Mapping(target = "nombreReservations", source = "placesReservees")
+    @Mapping(target = "nombreRetenues", source = "placesRetenues")
     CreneauDTO toDTO(Creneau creneau);
     
     @Mapping(target = "reservations", ignore = true)
+    @Mapping(target = "placesReservees", ignore = true)
+    @Mapping(target = "placesRetenues", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Creneau toEntity(CreneauDTO creneauDTO);
 } 
\ No newline at end of file
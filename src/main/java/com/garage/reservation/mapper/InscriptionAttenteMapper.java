@@ -0,0 +1,35 @@
+package com.garage.reservation.mapper;
+
+import com.garage.reservation.dto.CreationReservationDTO;
+import com.garage.reservation.dto.InscriptionAttenteDTO;
+import com.garage.reservation.model.InscriptionAttente;
+import com.garage.reservation.model.Reservation;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface InscriptionAttenteMapper {
+    
+    @Mapping(target = "creneauId", source = "creneau.id")
+    @Mapping(target = "position", ignore = true)
+    InscriptionAttenteDTO toDTO(InscriptionAttente inscription);
+    
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "creneau", ignore = true)
+    @Mapping(target = "statut", ignore = true)
+    @Mapping(target = "reservationId", ignore = true)
+    @Mapping(target = "dateInscription", ignore = true)
+    InscriptionAttente toEntity(CreationReservationDTO creationReservationDTO);
+    
+    /**
+     * Réservation à créer lors de la promotion (le créneau et le statut sont fixés par l'appelant)
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "creneau", ignore = true)
+    @Mapping(target = "statut", ignore = true)
+    @Mapping(target = "dateCreation", ignore = true)
+    @Mapping(target = "dateModification", ignore = true)
+    @Mapping(target = "immatriculationNormalisee", ignore = true)
+    @Mapping(target = "telephoneNormalise", ignore = true)
+    Reservation toReservation(InscriptionAttente inscription);
+}
@@ -0,0 +1,28 @@
+package com.garage.reservation.mapper;
+
+import com.garage.reservation.dto.JourFerieDTO;
+import com.garage.reservation.dto.ModeleHoraireDTO;
+import com.garage.reservation.model.JourFerie;
+import com.garage.reservation.model.ModeleHoraire;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+@Mapper(componentModel = "spring")
+public interface ModeleHoraireMapper {
+    
+    ModeleHoraireDTO toDTO(ModeleHoraire modele);
+    
+    /**
+     * Remplace les horaires d'un modèle (le jour de la semaine est fixé par l'appelant)
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "jourSemaine", ignore = true)
+    void mettreAJour(ModeleHoraireDTO modeleDTO, @MappingTarget ModeleHoraire modele);
+    
+    @Mapping(target = "date", ignore = true)
+    JourFerieDTO toDTO(JourFerie jourFerie);
+    
+    @Mapping(target = "id", ignore = true)
+    JourFerie toEntity(JourFerieDTO jourFerieDTO);
+}
@@ -19,5 +19,7 @@ public interface ReservationMapper {
     @Mapping(target = "dateModification", ignore = true)
     @Mapping(target = "statut", ignore = true)
     @Mapping(target = "creneau", ignore = true)
+    @Mapping(target = "immatriculationNormalisee", ignore = true)
+    @Mapping(target = "telephoneNormalise", ignore = true)
     Reservation toEntity(CreationReservationDTO creationReservationDTO);
 } 
\ No newline at end of file
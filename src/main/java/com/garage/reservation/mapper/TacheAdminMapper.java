@@ -0,0 +1,27 @@
+package com.garage.reservation.mapper;
+
+import com.garage.reservation.dto.TacheAdminDTO;
+import com.garage.reservation.model.StatutTacheAdmin;
+import com.garage.reservation.model.TacheAdmin;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface TacheAdminMapper {
+    
+    @Mapping(target = "progression", expression = "java(progression(tache))")
+    TacheAdminDTO toDTO(TacheAdmin tache);
+    
+    /**
+     * Pourcentage des lignes prévues déjà traitées ; 100 pour une tâche terminée
+     */
+    default Integer progression(TacheAdmin tache) {
+        if (tache.getStatut() == StatutTacheAdmin.TERMINEE) {
+            return 100;
+        }
+        if (tache.getLignesPrevues() == null || tache.getLignesPrevues() == 0) {
+            return null;
+        }
+        return (int) Math.min(100, 100L * tache.getLignesTraitees() / tache.getLignesPrevues());
+    }
+}
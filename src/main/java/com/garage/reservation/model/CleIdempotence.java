@@ -0,0 +1,56 @@
+package com.garage.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.domain.Persistable;
+import java.time.Instant;
+
+/**
+ * Clé d'idempotence associée à la réservation qu'elle a créée
+ */
+@Entity
+@Table(name = "cles_idempotence")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CleIdempotence implements Persistable<String> {
+    
+    @Id
+    @Column(name = "cle", nullable = false, length = 255)
+    private String cle;
+    
+    /** Empreinte SHA-256 du corps de la requête d'origine */
+    @Column(name = "empreinte", nullable = false, length = 64)
+    private String empreinte;
+    
+    @Column(name = "reservation_id", nullable = false)
+    private Long reservationId;
+    
+    @Column(name = "date_creation", nullable = false)
+    private Instant dateCreation;
+    
+    // Identifiant assigné : insertion directe sans SELECT préalable
+    @Transient
+    @Builder.Default
+    private boolean nouvelle = true;
+    
+    @Override
+    public String getId() {
+        return cle;
+    }
+    
+    @Override
+    public boolean isNew() {
+        return nouvelle;
+    }
+    
+    @PostLoad
+    @PostPersist
+    void marquerPersistee() {
+        this.nouvelle = false;
+    }
+}
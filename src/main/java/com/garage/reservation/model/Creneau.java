@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.Instant;
 import java.util.List;
 
@@ -17,14 +19,23 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @ToString(exclude = "reservations")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Creneau.REGION_CACHE)
 public class Creneau {
     
+    /** Région du cache de second niveau des entités (voir cache-hibernate.conf) */
+    public static final String REGION_CACHE = "creneaux";
+    
+    /** Région du cache des requêtes sur les créneaux par jour, semaine et identifiant */
+    public static final String REGION_CACHE_REQUETES = "creneaux-requetes";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    /** Unique : une génération relancée n'insère que les créneaux manquants */
     @NotNull
-    @Column(name = "heure_debut", nullable = false)
+    @Column(name = "heure_debut", nullable = false, unique = true)
     private Instant heureDebut;
     
     @NotNull
@@ -39,6 +50,27 @@ public class Creneau {
     @Column(name = "capacite_totale")
     private Integer capaciteTotale = 1;
     
+    /**
+     * Compteur des réservations actives (non-annulées), maintenu par mise à jour conditionnelle
+     */
+    @Builder.Default
+    @Column(name = "places_reservees", nullable = false)
+    private Integer placesReservees = 0;
+    
+    /**
+     * Compteur des places bloquées par des retenues temporaires non expirées
+     */
+    @Builder.Default
+    @Column(name = "places_retenues", nullable = false)
+    private Integer placesRetenues = 0;
+    
+    /**
+     * Version pour le verrouillage optimiste (incrémentée à chaque modification du compteur)
+     */
+    @Version
+    @Column(name = "version")
+    private Long version;
+    
     @OneToMany(mappedBy = "creneau", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Reservation> reservations;
     
@@ -48,35 +80,29 @@ public class Creneau {
      * Vérifie si le créneau est disponible pour une nouvelle réservation
      * Un créneau est disponible si :
      * - Le flag disponible est à true
-     * - Le nombre de réservations non-annulées est inférieur à la capacité totale
+     * - Le nombre de réservations non-annulées et de retenues est inférieur à la capacité totale
      */
     public boolean estDisponible() {
         if (!disponible) {
             return false;
         }
         
-        if (reservations == null) {
-            return true;
-        }
-        
-        long reservationsActives = reservations.stream()
-                .filter(reservation -> reservation.getStatut() != StatutReservation.ANNULEE)
-                .count();
-        
-        return reservationsActives < capaciteTotale;
+        return getNombreReservations() + getNombreRetenues() < capaciteTotale;
     }
     
     /**
      * Retourne le nombre de réservations actives (non-annulées)
+     * (lu sur le compteur places_reservees, sans charger les réservations)
      */
     public int getNombreReservations() {
-        if (reservations == null) {
-            return 0;
-        }
-        
-        return (int) reservations.stream()
-                .filter(reservation -> reservation.getStatut() != StatutReservation.ANNULEE)
-                .count();
+        return placesReservees != null ? placesReservees : 0;
+    }
+    
+    /**
+     * Retourne le nombre de places retenues temporairement
+     */
+    public int getNombreRetenues() {
+        return placesRetenues != null ? placesRetenues : 0;
     }
     
     /**
@@ -90,6 +116,6 @@ public class Creneau {
      * Retourne le nombre de places encore disponibles
      */
     public int getNombrePlacesDisponibles() {
-        return Math.max(0, capaciteTotale - getNombreReservations());
+        return Math.max(0, capaciteTotale - getNombreReservations() - getNombreRetenues());
     }
 } 
\ No newline at end of file
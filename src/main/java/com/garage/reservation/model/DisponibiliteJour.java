@@ -0,0 +1,58 @@
+package com.garage.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.domain.Persistable;
+import java.time.LocalDate;
+
+/**
+ * Synthèse des créneaux d'un jour (UTC), tenue à jour par incréments
+ */
+@Entity
+@Table(name = "disponibilite_jour")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DisponibiliteJour implements Persistable<LocalDate> {
+    
+    @Id
+    @Column(name = "jour", nullable = false)
+    private LocalDate jour;
+    
+    @Column(name = "nombre_creneaux", nullable = false)
+    private Integer nombreCreneaux;
+    
+    @Column(name = "capacite_totale", nullable = false)
+    private Integer capaciteTotale;
+    
+    @Column(name = "places_reservees", nullable = false)
+    private Integer placesReservees;
+    
+    @Column(name = "places_retenues", nullable = false)
+    private Integer placesRetenues;
+    
+    // Identifiant assigné : insertion directe sans SELECT préalable
+    @Transient
+    @Builder.Default
+    private boolean nouvelle = true;
+    
+    @Override
+    public LocalDate getId() {
+        return jour;
+    }
+    
+    @Override
+    public boolean isNew() {
+        return nouvelle;
+    }
+    
+    @PostLoad
+    @PostPersist
+    void marquerPersistee() {
+        this.nouvelle = false;
+    }
+}
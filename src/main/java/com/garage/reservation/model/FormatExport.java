@@ -0,0 +1,22 @@
+package com.garage.reservation.model;
+
+public enum FormatExport {
+    JSON("Tableau JSON", "application/json"),
+    NDJSON("JSON délimité par des retours à la ligne", "application/x-ndjson");
+
+    private final String libelle;
+    private final String typeMime;
+
+    FormatExport(String libelle, String typeMime) {
+        this.libelle = libelle;
+        this.typeMime = typeMime;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+
+    public String getTypeMime() {
+        return typeMime;
+    }
+}
@@ -0,0 +1,70 @@
+package com.garage.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.ToString;
+import java.time.Instant;
+
+/**
+ * Inscription en liste d'attente d'un créneau complet
+ * (porte les informations de la réservation à créer lorsqu'une place se libère)
+ */
+@Entity
+@Table(name = "inscriptions_attente")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString(exclude = "creneau")
+public class InscriptionAttente {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "creneau_id", nullable = false)
+    private Creneau creneau;
+    
+    @Column(name = "immatriculation", nullable = false)
+    private String immatriculation;
+    
+    @Column(name = "kilometrage", nullable = false)
+    private Integer kilometrage;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type_vehicule", nullable = false)
+    private TypeVehicule typeVehicule;
+    
+    @Builder.Default
+    @Column(name = "poids_lourd")
+    private Boolean poidsLourd = false;
+    
+    @Column(name = "numero_telephone", nullable = false)
+    private String numeroTelephone;
+    
+    @Column(name = "email")
+    private String email;
+    
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut", nullable = false)
+    private StatutInscriptionAttente statut = StatutInscriptionAttente.EN_ATTENTE;
+    
+    /**
+     * Réservation créée lors de la promotion
+     */
+    @Column(name = "reservation_id")
+    private Long reservationId;
+    
+    @Column(name = "date_inscription", nullable = false)
+    private Instant dateInscription;
+    
+    @PrePersist
+    public void prePersist() {
+        this.dateInscription = Instant.now();
+    }
+}
@@ -0,0 +1,77 @@
+package com.garage.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+
+/**
+ * Jour de fermeture : date fixe (mois, jour) ou fête mobile (décalage par rapport au dimanche de Pâques)
+ * Une année renseignée limite la fermeture à cette année-là
+ */
+@Entity
+@Table(name = "jours_feries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JourFerie {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "libelle", nullable = false, length = 100)
+    private String libelle;
+    
+    @Column(name = "mois")
+    private Integer mois;
+    
+    @Column(name = "jour")
+    private Integer jour;
+    
+    /** Jours après le dimanche de Pâques (1 : lundi de Pâques, 39 : Ascension, 50 : lundi de Pentecôte) */
+    @Column(name = "decalage_paques")
+    private Integer decalagePaques;
+    
+    @Column(name = "annee")
+    private Integer annee;
+    
+    // Méthodes métier (non générées par Lombok)
+    
+    /**
+     * Date du jour férié pour une année, null s'il ne s'applique pas cette année-là
+     */
+    public LocalDate dateEn(int anneeCalendaire) {
+        if (annee != null && annee != anneeCalendaire) {
+            return null;
+        }
+        if (decalagePaques != null) {
+            return dimanchePaques(anneeCalendaire).plusDays(decalagePaques);
+        }
+        return LocalDate.of(anneeCalendaire, mois, jour);
+    }
+    
+    /**
+     * Dimanche de Pâques du calendrier grégorien (algorithme de Meeus/Jones/Butcher)
+     */
+    public static LocalDate dimanchePaques(int annee) {
+        int a = annee % 19;
+        int b = annee / 100;
+        int c = annee % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int mois = (h + l - 7 * m + 114) / 31;
+        int jour = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(annee, mois, jour);
+    }
+}
@@ -0,0 +1,17 @@
+package com.garage.reservation.model;
+
+public enum MethodeInsertion {
+    COPY("COPY PostgreSQL"),
+    LOTS_JDBC("Insertions JDBC par lots"),
+    SAVE_ALL("JPA saveAll");
+
+    private final String libelle;
+
+    MethodeInsertion(String libelle) {
+        this.libelle = libelle;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+}
@@ -0,0 +1,16 @@
+package com.garage.reservation.model;
+
+public enum ModeLot {
+    TOUT_OU_RIEN("Tout ou rien"),
+    MEILLEUR_EFFORT("Meilleur effort");
+
+    private final String libelle;
+
+    ModeLot(String libelle) {
+        this.libelle = libelle;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+}
@@ -0,0 +1,50 @@
+package com.garage.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * Horaires d'ouverture d'un jour de la semaine, à partir desquels les créneaux sont générés
+ * (heures UTC ; un jour sans modèle est fermé)
+ */
+@Entity
+@Table(name = "modeles_horaires")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ModeleHoraire {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "jour_semaine", nullable = false, unique = true, length = 9)
+    private DayOfWeek jourSemaine;
+    
+    @Column(name = "heure_ouverture", nullable = false)
+    private LocalTime heureOuverture;
+    
+    @Column(name = "heure_fermeture", nullable = false)
+    private LocalTime heureFermeture;
+    
+    /** Début de la pause (facultative) : aucun créneau ne la chevauche */
+    @Column(name = "pause_debut")
+    private LocalTime pauseDebut;
+    
+    @Column(name = "pause_fin")
+    private LocalTime pauseFin;
+    
+    @Column(name = "duree_minutes", nullable = false)
+    private Integer dureeMinutes;
+    
+    /** Capacité de chaque créneau généré */
+    @Column(name = "capacite", nullable = false)
+    private Integer capacite;
+}
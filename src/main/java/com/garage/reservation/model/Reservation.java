@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.ToString;
+import com.garage.reservation.util.NormalisationContact;
 import java.time.Instant;
 
 @Entity
@@ -19,7 +20,8 @@ import java.time.Instant;
 public class Reservation {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservations_seq")
+    @SequenceGenerator(name = "reservations_seq", sequenceName = "reservations_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank
@@ -46,6 +48,13 @@ public class Reservation {
     @Column(name = "numero_telephone", nullable = false)
     private String numeroTelephone;
     
+    // Clés de recherche (forme canonique), recalculées à chaque écriture
+    @Column(name = "immatriculation_normalisee", nullable = false, length = 20)
+    private String immatriculationNormalisee;
+    
+    @Column(name = "telephone_normalise", nullable = false, length = 20)
+    private String telephoneNormalise;
+    
     @Email
     @Size(max = 100)
     @Column(name = "email")
@@ -71,10 +80,17 @@ public class Reservation {
     public void prePersist() {
         this.dateCreation = Instant.now();
         this.dateModification = Instant.now();
+        normaliser();
     }
     
     @PreUpdate
     public void preUpdate() {
         this.dateModification = Instant.now();
+        normaliser();
+    }
+    
+    private void normaliser() {
+        this.immatriculationNormalisee = NormalisationContact.immatriculation(immatriculation);
+        this.telephoneNormalise = NormalisationContact.telephone(numeroTelephone);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.garage.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.ToString;
+import java.time.Instant;
+
+/**
+ * Retenue temporaire d'une place sur un créneau, le temps de finaliser la réservation
+ */
+@Entity
+@Table(name = "retenues")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString(exclude = "creneau")
+public class Retenue {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "creneau_id", nullable = false)
+    private Creneau creneau;
+    
+    @Column(name = "date_creation", nullable = false)
+    private Instant dateCreation;
+    
+    @Column(name = "date_expiration", nullable = false)
+    private Instant dateExpiration;
+}
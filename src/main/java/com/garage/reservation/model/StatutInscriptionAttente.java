@@ -0,0 +1,16 @@
+package com.garage.reservation.model;
+
+public enum StatutInscriptionAttente {
+    EN_ATTENTE("En attente"),
+    PROMUE("Promue");
+
+    private final String libelle;
+
+    StatutInscriptionAttente(String libelle) {
+        this.libelle = libelle;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+}
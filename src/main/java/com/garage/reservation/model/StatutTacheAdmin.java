@@ -0,0 +1,23 @@
+package com.garage.reservation.model;
+
+public enum StatutTacheAdmin {
+    EN_ATTENTE("En attente"),
+    EN_COURS("En cours"),
+    TERMINEE("Terminée"),
+    ECHOUEE("Échouée"),
+    ANNULEE("Annulée");
+
+    private final String libelle;
+
+    StatutTacheAdmin(String libelle) {
+        this.libelle = libelle;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+
+    public boolean estTerminal() {
+        return this == TERMINEE || this == ECHOUEE || this == ANNULEE;
+    }
+}
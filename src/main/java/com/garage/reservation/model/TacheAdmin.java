@@ -0,0 +1,77 @@
+package com.garage.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Tâche d'administration exécutée en fond (génération ou nettoyage de créneaux) et son avancement
+ */
+@Entity
+@Table(name = "taches_admin")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TacheAdmin {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private TypeTacheAdmin type;
+    
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut", nullable = false)
+    private StatutTacheAdmin statut = StatutTacheAdmin.EN_ATTENTE;
+    
+    /**
+     * Jours des créneaux concernés (UTC) ; fin nulle pour tous les créneaux à partir du début
+     */
+    @Column(name = "debut_periode", nullable = false)
+    private LocalDate debutPeriode;
+    
+    @Column(name = "fin_periode")
+    private LocalDate finPeriode;
+    
+    /**
+     * Lignes à traiter, si connues au démarrage (créneaux à insérer d'une génération)
+     */
+    @Column(name = "lignes_prevues")
+    private Integer lignesPrevues;
+    
+    @Builder.Default
+    @Column(name = "lignes_traitees", nullable = false)
+    private Integer lignesTraitees = 0;
+    
+    @Builder.Default
+    @Column(name = "lots_traites", nullable = false)
+    private Integer lotsTraites = 0;
+    
+    /**
+     * Résumé du résultat ou cause de l'échec
+     */
+    @Column(name = "message", length = 500)
+    private String message;
+    
+    @Column(name = "date_creation", nullable = false)
+    private Instant dateCreation;
+    
+    @Column(name = "date_debut")
+    private Instant dateDebut;
+    
+    @Column(name = "date_fin")
+    private Instant dateFin;
+    
+    @PrePersist
+    public void prePersist() {
+        this.dateCreation = Instant.now();
+    }
+}
@@ -0,0 +1,19 @@
+package com.garage.reservation.model;
+
+public enum TypeTacheAdmin {
+    GENERATION_MOIS("Génération d'un mois"),
+    GENERATION_JUILLET_AOUT_2025("Génération de juillet-août 2025"),
+    HORIZON("Complément de l'horizon de génération"),
+    NETTOYAGE_FUTURS("Nettoyage des créneaux futurs"),
+    RESET_JUILLET_AOUT_2025("Nettoyage puis génération de juillet-août 2025");
+
+    private final String libelle;
+
+    TypeTacheAdmin(String libelle) {
+        this.libelle = libelle;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+}
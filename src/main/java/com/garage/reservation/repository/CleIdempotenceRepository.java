@@ -0,0 +1,28 @@
+package com.garage.reservation.repository;
+
+import com.garage.reservation.model.CleIdempotence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface CleIdempotenceRepository extends JpaRepository<CleIdempotence, String> {
+    
+    /**
+     * Supprime les clés créées avant la date limite
+     */
+    @Modifying
+    @Query("DELETE FROM CleIdempotence c WHERE c.dateCreation < :limite")
+    int deleteByDateCreationBefore(@Param("limite") Instant limite);
+    
+    /**
+     * Supprime la clé si elle a expiré, pour permettre sa réutilisation
+     */
+    @Modifying
+    @Query("DELETE FROM CleIdempotence c WHERE c.cle = :cle AND c.dateCreation < :limite")
+    int deleteExpiree(@Param("cle") String cle, @Param("limite") Instant limite);
+}
@@ -1,14 +1,24 @@
 package com.garage.reservation.repository;
 
+import com.garage.reservation.dto.CreneauDTO;
 import com.garage.reservation.model.Creneau;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CreneauRepository extends JpaRepository<Creneau, Long> {
@@ -19,65 +29,127 @@ public interface CreneauRepository extends JpaRepository<Creneau, Long> {
     @Query("SELECT c FROM Creneau c WHERE c.id = :id AND c.disponible = true")
     List<Creneau> findCreneauDisponible(@Param("id") Long id);
     
+    /**
+     * Projection d'un créneau en CreneauDTO (ordre des champs de CreneauDTO), sans charger l'entité
+     * ni ses réservations : le nombre de réservations actives est le compteur placesReservees
+     */
+    String SELECT_CRENEAU_DTO = "SELECT new com.garage.reservation.dto.CreneauDTO(c.id, c.heureDebut, c.heureFin, " +
+            "c.disponible, c.capaciteTotale, c.placesReservees, c.placesRetenues) FROM Creneau c ";
+    
+    /**
+     * Récupère un créneau par son ID
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Creneau.REGION_CACHE_REQUETES)})
+    @Query(SELECT_CRENEAU_DTO + "WHERE c.id = :id")
+    Optional<CreneauDTO> findCreneauById(@Param("id") Long id);
+    
+    /**
+     * Page de créneaux après la position (heureDebut, id), dans l'ordre (heureDebut, id)
+     * (pagination par curseur : pas d'OFFSET, la lecture reprend sur l'index)
+     */
+    @Query(SELECT_CRENEAU_DTO +
+           "WHERE c.heureDebut > :heureDebut OR (c.heureDebut = :heureDebut AND c.id > :id) " +
+           "ORDER BY c.heureDebut, c.id")
+    List<CreneauDTO> findPageCreneaux(@Param("heureDebut") Instant heureDebut, @Param("id") Long id, Limit limit);
+    
+    /**
+     * Page de créneaux à venir encore réservables (réservations et retenues comprises),
+     * après la position (heureDebut, id) ; parcourt l'index (disponible, heure_debut, id)
+     */
+    @Query(SELECT_CRENEAU_DTO +
+           "WHERE c.disponible = true AND c.heureDebut > :maintenant " +
+           "AND (c.heureDebut > :heureDebut OR (c.heureDebut = :heureDebut AND c.id > :id)) " +
+           "AND c.placesReservees + c.placesRetenues < c.capaciteTotale " +
+           "ORDER BY c.heureDebut, c.id")
+    List<CreneauDTO> findPageCreneauxDisponiblesFuturs(@Param("maintenant") Instant maintenant,
+                                                       @Param("heureDebut") Instant heureDebut, @Param("id") Long id,
+                                                       Limit limit);
+    
+    /**
+     * Compte les créneaux à venir encore réservables
+     */
+    @Query("SELECT COUNT(c) FROM Creneau c WHERE c.disponible = true AND c.heureDebut > :maintenant " +
+           "AND c.placesReservees + c.placesRetenues < c.capaciteTotale")
+    long countCreneauxDisponiblesFuturs(@Param("maintenant") Instant maintenant);
+    
     /**
      * Trouve tous les créneaux entre deux dates
      */
-    @Query("SELECT c FROM Creneau c WHERE c.heureDebut >= :dateDebut AND c.heureFin <= :dateFin ORDER BY c.heureDebut")
-    List<Creneau> findCreneauxBetweenDates(@Param("dateDebut") Instant dateDebut, 
-                                           @Param("dateFin") Instant dateFin);
+    @Query(SELECT_CRENEAU_DTO + "WHERE c.heureDebut >= :dateDebut AND c.heureFin <= :dateFin ORDER BY c.heureDebut")
+    List<CreneauDTO> findCreneauxBetweenDates(@Param("dateDebut") Instant dateDebut, 
+                                              @Param("dateFin") Instant dateFin);
     
     /**
-     * Trouve tous les créneaux disponibles entre deux dates (en considérant les réservations)
+     * Trouve tous les créneaux disponibles entre deux dates (en considérant les réservations et les retenues)
      */
-    @Query("SELECT DISTINCT c FROM Creneau c LEFT JOIN c.reservations r " +
+    @Query(SELECT_CRENEAU_DTO +
            "WHERE c.heureDebut >= :dateDebut AND c.heureFin <= :dateFin AND c.disponible = true " +
-           "GROUP BY c.id " +
-           "HAVING COUNT(CASE WHEN r.statut != 'ANNULEE' THEN 1 END) < c.capaciteTotale " +
+           "AND c.placesReservees + c.placesRetenues < c.capaciteTotale " +
            "ORDER BY c.heureDebut")
-    List<Creneau> findCreneauxDisponiblesBetweenDates(@Param("dateDebut") Instant dateDebut, 
-                                                      @Param("dateFin") Instant dateFin);
+    List<CreneauDTO> findCreneauxDisponiblesBetweenDates(@Param("dateDebut") Instant dateDebut, 
+                                                         @Param("dateFin") Instant dateFin);
+    
+    /**
+     * Lecture en flux des créneaux entre deux dates (export), par lots de 500 lignes côté JDBC
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_CRENEAU_DTO +
+           "WHERE c.heureDebut >= :dateDebut AND c.heureFin <= :dateFin " +
+           "AND (:disponiblesOnly = false OR (c.disponible = true AND c.placesReservees + c.placesRetenues < c.capaciteTotale)) " +
+           "ORDER BY c.heureDebut, c.id")
+    Stream<CreneauDTO> streamCreneauxBetweenDates(@Param("dateDebut") Instant dateDebut,
+                                                  @Param("dateFin") Instant dateFin,
+                                                  @Param("disponiblesOnly") boolean disponiblesOnly);
     
     /**
      * Trouve tous les créneaux d'un jour donné (entre 00:00 et 23:59:59)
      */
-    @Query("SELECT c FROM Creneau c LEFT JOIN FETCH c.reservations WHERE c.heureDebut >= :debutJour AND c.heureDebut < :finJour ORDER BY c.heureDebut")
-    List<Creneau> findCreneauxByDate(@Param("debutJour") Instant debutJour, @Param("finJour") Instant finJour);
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Creneau.REGION_CACHE_REQUETES)})
+    @Query(SELECT_CRENEAU_DTO + "WHERE c.heureDebut >= :debutJour AND c.heureDebut < :finJour ORDER BY c.heureDebut")
+    List<CreneauDTO> findCreneauxByDate(@Param("debutJour") Instant debutJour, @Param("finJour") Instant finJour);
     
     /**
-     * Trouve tous les créneaux disponibles d'un jour donné (en considérant les réservations)
+     * Trouve tous les créneaux disponibles d'un jour donné (en considérant les réservations et les retenues)
      */
-    @Query("SELECT DISTINCT c FROM Creneau c LEFT JOIN c.reservations r " +
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Creneau.REGION_CACHE_REQUETES)})
+    @Query(SELECT_CRENEAU_DTO +
            "WHERE c.heureDebut >= :debutJour AND c.heureDebut < :finJour AND c.disponible = true " +
-           "GROUP BY c.id " +
-           "HAVING COUNT(CASE WHEN r.statut != 'ANNULEE' THEN 1 END) < c.capaciteTotale " +
+           "AND c.placesReservees + c.placesRetenues < c.capaciteTotale " +
            "ORDER BY c.heureDebut")
-    List<Creneau> findCreneauxDisponiblesByDate(@Param("debutJour") Instant debutJour, @Param("finJour") Instant finJour);
+    List<CreneauDTO> findCreneauxDisponiblesByDate(@Param("debutJour") Instant debutJour, @Param("finJour") Instant finJour);
     
     /**
      * Trouve tous les créneaux d'une semaine (du lundi au dimanche)
      */
-    @Query("SELECT c FROM Creneau c LEFT JOIN FETCH c.reservations WHERE c.heureDebut >= :debutSemaine AND c.heureDebut < :finSemaine ORDER BY c.heureDebut")
-    List<Creneau> findCreneauxByWeek(@Param("debutSemaine") Instant debutSemaine, @Param("finSemaine") Instant finSemaine);
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Creneau.REGION_CACHE_REQUETES)})
+    @Query(SELECT_CRENEAU_DTO + "WHERE c.heureDebut >= :debutSemaine AND c.heureDebut < :finSemaine ORDER BY c.heureDebut")
+    List<CreneauDTO> findCreneauxByWeek(@Param("debutSemaine") Instant debutSemaine, @Param("finSemaine") Instant finSemaine);
     
     /**
-     * Trouve tous les créneaux disponibles d'une semaine (en considérant les réservations)
+     * Trouve tous les créneaux disponibles d'une semaine (en considérant les réservations et les retenues)
      */
-    @Query("SELECT DISTINCT c FROM Creneau c LEFT JOIN c.reservations r " +
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Creneau.REGION_CACHE_REQUETES)})
+    @Query(SELECT_CRENEAU_DTO +
            "WHERE c.heureDebut >= :debutSemaine AND c.heureDebut < :finSemaine AND c.disponible = true " +
-           "GROUP BY c.id " +
-           "HAVING COUNT(CASE WHEN r.statut != 'ANNULEE' THEN 1 END) < c.capaciteTotale " +
+           "AND c.placesReservees + c.placesRetenues < c.capaciteTotale " +
            "ORDER BY c.heureDebut")
-    List<Creneau> findCreneauxDisponiblesByWeek(@Param("debutSemaine") Instant debutSemaine, @Param("finSemaine") Instant finSemaine);
+    List<CreneauDTO> findCreneauxDisponiblesByWeek(@Param("debutSemaine") Instant debutSemaine, @Param("finSemaine") Instant finSemaine);
     
     /**
-     * Vérifie si un créneau est réellement disponible en comptant ses réservations actives
+     * Vérifie si un créneau est réellement disponible (réservations actives et retenues comprises)
      */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Creneau.REGION_CACHE_REQUETES)})
     @Query("SELECT CASE WHEN (c.disponible = true AND " +
-           "COUNT(CASE WHEN r.statut != 'ANNULEE' THEN 1 END) < c.capaciteTotale) " +
+           "c.placesReservees + c.placesRetenues < c.capaciteTotale) " +
            "THEN true ELSE false END " +
-           "FROM Creneau c LEFT JOIN c.reservations r " +
-           "WHERE c.id = :creneauId " +
-           "GROUP BY c.id, c.disponible, c.capaciteTotale")
+           "FROM Creneau c " +
+           "WHERE c.id = :creneauId")
     Boolean isCreneauReallyAvailable(@Param("creneauId") Long creneauId);
     
     /**
@@ -85,4 +157,151 @@ public interface CreneauRepository extends JpaRepository<Creneau, Long> {
      */
     @Query("SELECT c FROM Creneau c LEFT JOIN FETCH c.reservations WHERE c.id = :id")
     Optional<Creneau> findByIdWithReservations(@Param("id") Long id);
-} 
\ No newline at end of file
+    
+    /**
+     * Récupère un créneau en posant un verrou exclusif sur sa ligne (SELECT ... FOR UPDATE)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Creneau c WHERE c.id = :id")
+    Optional<Creneau> findByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * Lit l'état de capacité d'un créneau sans charger l'entité (lecture pour le verrouillage optimiste)
+     */
+    @Query("SELECT new com.garage.reservation.repository.EtatCapacite(c.version, c.disponible, c.placesReservees, c.placesRetenues, c.capaciteTotale) " +
+           "FROM Creneau c WHERE c.id = :id")
+    Optional<EtatCapacite> findEtatCapacite(@Param("id") Long id);
+    
+    /**
+     * Occupe une place du créneau par une mise à jour conditionnelle atomique
+     * (la condition sur le compteur empêche toute surréservation, même en concurrence)
+     * Retourne 1 si la place a été prise, 0 si le créneau est complet ou n'existe pas
+     */
+    @Modifying
+    @Query("UPDATE Creneau c SET c.placesReservees = c.placesReservees + 1, " +
+           "c.disponible = CASE WHEN c.placesReservees + c.placesRetenues + 1 < c.capaciteTotale THEN true ELSE false END, " +
+           "c.version = c.version + 1 " +
+           "WHERE c.id = :id AND c.disponible = true AND c.placesReservees + c.placesRetenues < c.capaciteTotale")
+    int occuperPlace(@Param("id") Long id);
+    
+    /**
+     * Occupe une place du créneau seulement si sa version n'a pas changé depuis la lecture
+     * (verrouillage optimiste : 0 ligne modifiée signifie qu'une autre transaction est passée avant)
+     */
+    @Modifying
+    @Query("UPDATE Creneau c SET c.placesReservees = c.placesReservees + 1, " +
+           "c.disponible = CASE WHEN c.placesReservees + c.placesRetenues + 1 < c.capaciteTotale THEN true ELSE false END, " +
+           "c.version = c.version + 1 " +
+           "WHERE c.id = :id AND c.version = :version")
+    int occuperPlaceVersionnee(@Param("id") Long id, @Param("version") Long version);
+    
+    /**
+     * Occupe plusieurs places du créneau en une seule mise à jour conditionnelle (réservations par lot)
+     * Retourne 1 si toutes les places ont été prises, 0 sinon (aucune place n'est alors prise)
+     */
+    @Modifying
+    @Query("UPDATE Creneau c SET c.placesReservees = c.placesReservees + :nombre, " +
+           "c.disponible = CASE WHEN c.placesReservees + c.placesRetenues + :nombre < c.capaciteTotale THEN true ELSE false END, " +
+           "c.version = c.version + 1 " +
+           "WHERE c.id = :id AND c.disponible = true AND c.placesReservees + c.placesRetenues + :nombre <= c.capaciteTotale")
+    int occuperPlaces(@Param("id") Long id, @Param("nombre") int nombre);
+    
+    /**
+     * Pose le verrou exclusif de la ligne du créneau, celui que prennent les mises à jour de ses compteurs,
+     * sans charger l'entité ni modifier la ligne (gardé jusqu'à la fin de la transaction)
+     * Retourne 0 si le créneau n'existe pas
+     */
+    @Modifying
+    @Query("UPDATE Creneau c SET c.version = c.version WHERE c.id = :id")
+    int verrouiller(@Param("id") Long id);
+    
+    /**
+     * Libère une place du créneau (annulation ou suppression d'une réservation active)
+     */
+    @Modifying
+    @Query("UPDATE Creneau c SET c.placesReservees = c.placesReservees - 1, c.disponible = true, " +
+           "c.version = c.version + 1 " +
+           "WHERE c.id = :id AND c.placesReservees > 0")
+    int libererPlace(@Param("id") Long id);
+    
+    /**
+     * Retient une place du créneau par une mise à jour conditionnelle atomique (retenue temporaire)
+     * Retourne 1 si la place a été retenue, 0 si le créneau est complet ou n'existe pas
+     */
+    @Modifying
+    @Query("UPDATE Creneau c SET c.placesRetenues = c.placesRetenues + 1, " +
+           "c.disponible = CASE WHEN c.placesReservees + c.placesRetenues + 1 < c.capaciteTotale THEN true ELSE false END, " +
+           "c.version = c.version + 1 " +
+           "WHERE c.id = :id AND c.disponible = true AND c.placesReservees + c.placesRetenues < c.capaciteTotale")
+    int retenirPlace(@Param("id") Long id);
+    
+    /**
+     * Libère des places retenues (retenues expirées ou abandonnées)
+     */
+    @Modifying
+    @Query("UPDATE Creneau c SET c.placesRetenues = c.placesRetenues - :nombre, c.disponible = true, " +
+           "c.version = c.version + 1 " +
+           "WHERE c.id = :id AND c.placesRetenues >= :nombre")
+    int libererRetenues(@Param("id") Long id, @Param("nombre") int nombre);
+    
+    /**
+     * Transforme une place retenue en place réservée (aucune vérification de capacité nécessaire)
+     */
+    @Modifying
+    @Query("UPDATE Creneau c SET c.placesRetenues = c.placesRetenues - 1, c.placesReservees = c.placesReservees + 1, " +
+           "c.version = c.version + 1 " +
+           "WHERE c.id = :id AND c.placesRetenues > 0")
+    int convertirRetenue(@Param("id") Long id);
+    
+    /**
+     * Places encore libres des créneaux non terminés (reconstruction du registre de capacité)
+     */
+    @Query("SELECT new com.garage.reservation.repository.PlacesRestantes(c.id, " +
+           "CASE WHEN c.disponible = true THEN c.capaciteTotale - c.placesReservees - c.placesRetenues ELSE 0 END) " +
+           "FROM Creneau c WHERE c.heureFin > :maintenant")
+    List<PlacesRestantes> findPlacesRestantesFutures(@Param("maintenant") Instant maintenant);
+    
+    /**
+     * Places encore libres des créneaux commençant entre deux instants inclus (créneaux insérés en masse)
+     */
+    @Query("SELECT new com.garage.reservation.repository.PlacesRestantes(c.id, " +
+           "CASE WHEN c.disponible = true THEN c.capaciteTotale - c.placesReservees - c.placesRetenues ELSE 0 END) " +
+           "FROM Creneau c WHERE c.heureDebut >= :debut AND c.heureDebut <= :fin")
+    List<PlacesRestantes> findPlacesRestantesEntre(@Param("debut") Instant debut, @Param("fin") Instant fin);
+    
+    /**
+     * Places encore libres d'un ensemble de créneaux (une seule requête pour un lot de réservations)
+     */
+    @Query("SELECT new com.garage.reservation.repository.PlacesRestantes(c.id, " +
+           "CASE WHEN c.disponible = true THEN c.capaciteTotale - c.placesReservees - c.placesRetenues ELSE 0 END) " +
+           "FROM Creneau c WHERE c.id IN :ids")
+    List<PlacesRestantes> findPlacesRestantes(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Occupation des créneaux commençant dans l'intervalle [debut, fin), triée par heure de début
+     * (chargement et actualisation de l'index d'occupation)
+     */
+    @Query("SELECT new com.garage.reservation.repository.OccupationCreneau(c.id, c.heureDebut, c.heureFin, " +
+           "c.disponible, c.capaciteTotale, c.placesReservees, c.placesRetenues) " +
+           "FROM Creneau c WHERE c.heureDebut >= :debut AND c.heureDebut < :fin ORDER BY c.heureDebut, c.id")
+    List<OccupationCreneau> findOccupations(@Param("debut") Instant debut, @Param("fin") Instant fin);
+    
+    /**
+     * Plages des créneaux commençant dans l'intervalle [debut, fin), triées par heure de début
+     * (une génération n'insère que les créneaux qui n'en chevauchent aucune)
+     */
+    @Query("SELECT new com.garage.reservation.repository.PlageCreneau(c.heureDebut, c.heureFin) " +
+           "FROM Creneau c WHERE c.heureDebut >= :debut AND c.heureDebut < :fin ORDER BY c.heureDebut")
+    List<PlageCreneau> findPlages(@Param("debut") Instant debut, @Param("fin") Instant fin);
+    
+    /**
+     * Vérifie qu'aucun créneau ne commence déjà à cette heure (heure_debut est unique)
+     */
+    boolean existsByHeureDebut(Instant heureDebut);
+    
+    /**
+     * Identifiant du créneau commençant à cette heure (matérialisation d'un créneau virtuel)
+     */
+    @Query("SELECT c.id FROM Creneau c WHERE c.heureDebut = :heureDebut")
+    Optional<Long> findIdByHeureDebut(@Param("heureDebut") Instant heureDebut);
+}
@@ -0,0 +1,33 @@
+package com.garage.reservation.repository;
+
+import com.garage.reservation.model.DisponibiliteJour;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DisponibiliteJourRepository extends JpaRepository<DisponibiliteJour, LocalDate> {
+    
+    /**
+     * Synthèses des jours compris entre deux dates (incluses), dans l'ordre chronologique
+     */
+    List<DisponibiliteJour> findByJourBetweenOrderByJour(LocalDate debut, LocalDate fin);
+    
+    /**
+     * Ajoute des écarts aux compteurs d'un jour (incréments : sûr en concurrence sous le verrou de ligne)
+     * Retourne 0 si le jour n'a pas encore de ligne
+     */
+    @Modifying
+    @Query("UPDATE DisponibiliteJour d SET d.nombreCreneaux = d.nombreCreneaux + :creneaux, " +
+           "d.capaciteTotale = d.capaciteTotale + :capacite, " +
+           "d.placesReservees = d.placesReservees + :reservees, " +
+           "d.placesRetenues = d.placesRetenues + :retenues " +
+           "WHERE d.jour = :jour")
+    int ajuster(@Param("jour") LocalDate jour, @Param("creneaux") int creneaux, @Param("capacite") int capacite,
+                @Param("reservees") int reservees, @Param("retenues") int retenues);
+}
@@ -0,0 +1,9 @@
+package com.garage.reservation.repository;
+
+import java.time.Instant;
+
+/**
+ * Échéance d'une retenue lue par projection (planification de son expiration)
+ */
+public record EcheanceRetenue(Long retenueId, Long creneauId, Instant heureDebutCreneau, Instant dateExpiration) {
+}
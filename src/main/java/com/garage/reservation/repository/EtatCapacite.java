@@ -0,0 +1,15 @@
+package com.garage.reservation.repository;
+
+/**
+ * État de capacité d'un créneau lu par projection (sans entité ni réservations)
+ */
+public record EtatCapacite(Long version, Boolean disponible, Integer placesReservees,
+                           Integer placesRetenues, Integer capaciteTotale) {
+    
+    /**
+     * Vérifie s'il reste au moins une place sur le créneau
+     */
+    public boolean aUnePlaceLibre() {
+        return Boolean.TRUE.equals(disponible) && placesReservees + placesRetenues < capaciteTotale;
+    }
+}
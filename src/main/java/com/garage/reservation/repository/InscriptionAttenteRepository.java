@@ -0,0 +1,40 @@
+package com.garage.reservation.repository;
+
+import com.garage.reservation.model.InscriptionAttente;
+import com.garage.reservation.model.StatutInscriptionAttente;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InscriptionAttenteRepository extends JpaRepository<InscriptionAttente, Long> {
+    
+    /**
+     * Récupère une inscription en posant un verrou exclusif sur sa ligne (promotion)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM InscriptionAttente i WHERE i.id = :id")
+    Optional<InscriptionAttente> findByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * Retire une inscription encore en attente
+     * Retourne 0 si elle n'existe pas ou a déjà été promue
+     */
+    @Modifying
+    @Query("DELETE FROM InscriptionAttente i WHERE i.id = :id AND i.statut = :statut")
+    int deleteByIdAndStatut(@Param("id") Long id, @Param("statut") StatutInscriptionAttente statut);
+    
+    /**
+     * Files d'attente à reconstruire au démarrage, dans l'ordre d'arrivée
+     */
+    @Query("SELECT new com.garage.reservation.repository.PositionAttente(i.id, i.creneau.id) " +
+           "FROM InscriptionAttente i WHERE i.statut = :statut ORDER BY i.id")
+    List<PositionAttente> findPositions(@Param("statut") StatutInscriptionAttente statut);
+}
@@ -0,0 +1,9 @@
+package com.garage.reservation.repository;
+
+import com.garage.reservation.model.JourFerie;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JourFerieRepository extends JpaRepository<JourFerie, Long> {
+}
@@ -0,0 +1,14 @@
+package com.garage.reservation.repository;
+
+import com.garage.reservation.model.ModeleHoraire;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.DayOfWeek;
+import java.util.Optional;
+
+@Repository
+public interface ModeleHoraireRepository extends JpaRepository<ModeleHoraire, Long> {
+    
+    Optional<ModeleHoraire> findByJourSemaine(DayOfWeek jourSemaine);
+}
@@ -0,0 +1,10 @@
+package com.garage.reservation.repository;
+
+import java.time.Instant;
+
+/**
+ * Occupation d'un créneau lue par projection (chargement de l'index d'occupation en mémoire)
+ */
+public record OccupationCreneau(Long id, Instant heureDebut, Instant heureFin, Boolean disponible,
+                                Integer capaciteTotale, Integer placesReservees, Integer placesRetenues) {
+}
@@ -0,0 +1,7 @@
+package com.garage.reservation.repository;
+
+/**
+ * Nombre de places encore libres d'un créneau, lu par projection
+ */
+public record PlacesRestantes(Long creneauId, Integer places) {
+}
@@ -0,0 +1,9 @@
+package com.garage.reservation.repository;
+
+import java.time.Instant;
+
+/**
+ * Heures de début et de fin d'un créneau existant (créneaux manquants d'une génération)
+ */
+public record PlageCreneau(Instant heureDebut, Instant heureFin) {
+}
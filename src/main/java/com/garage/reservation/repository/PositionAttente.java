@@ -0,0 +1,7 @@
+package com.garage.reservation.repository;
+
+/**
+ * Inscription en attente lue par projection (reconstruction des files d'attente)
+ */
+public record PositionAttente(Long inscriptionId, Long creneauId) {
+}
@@ -2,14 +2,19 @@ package com.garage.reservation.repository;
 
 import com.garage.reservation.model.Reservation;
 import com.garage.reservation.model.StatutReservation;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
@@ -24,16 +29,6 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
      */
     List<Reservation> findByStatut(StatutReservation statut);
     
-    /**
-     * Trouve toutes les réservations par immatriculation
-     */
-    List<Reservation> findByImmatriculation(String immatriculation);
-    
-    /**
-     * Trouve toutes les réservations par numéro de téléphone
-     */
-    List<Reservation> findByNumeroTelephone(String numeroTelephone);
-    
     /**
      * Trouve toutes les réservations entre deux dates
      */
@@ -65,14 +60,116 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
     Optional<Reservation> findByImmatriculationAndCreneauId(String immatriculation, Long creneauId);
     
     /**
-     * Trouve toutes les réservations futures (créneaux non passés)
+     * Page de réservations après la position (heureDebut du créneau, id), dans cet ordre
+     */
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.creneau c " +
+           "WHERE (c.heureDebut > :heureDebut OR (c.heureDebut = :heureDebut AND r.id > :id)) " +
+           "ORDER BY c.heureDebut, r.id")
+    List<Reservation> findPageReservations(@Param("heureDebut") Instant heureDebut, @Param("id") Long id, Limit limit);
+    
+    /**
+     * Page de réservations d'une immatriculation (forme normalisée) après la position (heureDebut du créneau, id)
+     */
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.creneau c " +
+           "WHERE r.immatriculationNormalisee = :immatriculation " +
+           "AND (c.heureDebut > :heureDebut OR (c.heureDebut = :heureDebut AND r.id > :id)) " +
+           "ORDER BY c.heureDebut, r.id")
+    List<Reservation> findPageByImmatriculation(@Param("immatriculation") String immatriculation,
+                                                @Param("heureDebut") Instant heureDebut, @Param("id") Long id, Limit limit);
+    
+    /**
+     * Compte les réservations d'une immatriculation (forme normalisée)
+     */
+    long countByImmatriculationNormalisee(String immatriculationNormalisee);
+    
+    /**
+     * Page de réservations d'un numéro de téléphone (forme normalisée) après la position (heureDebut du créneau, id)
+     */
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.creneau c " +
+           "WHERE r.telephoneNormalise = :numeroTelephone " +
+           "AND (c.heureDebut > :heureDebut OR (c.heureDebut = :heureDebut AND r.id > :id)) " +
+           "ORDER BY c.heureDebut, r.id")
+    List<Reservation> findPageByNumeroTelephone(@Param("numeroTelephone") String numeroTelephone,
+                                                @Param("heureDebut") Instant heureDebut, @Param("id") Long id, Limit limit);
+    
+    /**
+     * Compte les réservations d'un numéro de téléphone (forme normalisée)
+     */
+    long countByTelephoneNormalise(String telephoneNormalise);
+    
+    /**
+     * Page de réservations dont l'immatriculation normalisée commence par un préfixe (motif LIKE 'préfixe%'),
+     * après la position (heureDebut du créneau, id)
+     */
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.creneau c " +
+           "WHERE r.immatriculationNormalisee LIKE :motif " +
+           "AND (c.heureDebut > :heureDebut OR (c.heureDebut = :heureDebut AND r.id > :id)) " +
+           "ORDER BY c.heureDebut, r.id")
+    List<Reservation> findPageByImmatriculationPrefixe(@Param("motif") String motif,
+                                                       @Param("heureDebut") Instant heureDebut, @Param("id") Long id, Limit limit);
+    
+    /**
+     * Compte les réservations dont l'immatriculation normalisée commence par un préfixe
+     */
+    long countByImmatriculationNormaliseeStartingWith(String prefixe);
+    
+    /**
+     * Page de réservations dont le téléphone normalisé commence par un préfixe (motif LIKE 'préfixe%'),
+     * après la position (heureDebut du créneau, id)
+     */
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.creneau c " +
+           "WHERE r.telephoneNormalise LIKE :motif " +
+           "AND (c.heureDebut > :heureDebut OR (c.heureDebut = :heureDebut AND r.id > :id)) " +
+           "ORDER BY c.heureDebut, r.id")
+    List<Reservation> findPageByTelephonePrefixe(@Param("motif") String motif,
+                                                 @Param("heureDebut") Instant heureDebut, @Param("id") Long id, Limit limit);
+    
+    /**
+     * Compte les réservations dont le téléphone normalisé commence par un préfixe
+     */
+    long countByTelephoneNormaliseStartingWith(String prefixe);
+    
+    /**
+     * Page de réservations futures (créneaux non passés) après la position (heureDebut du créneau, id)
+     */
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.creneau c " +
+           "WHERE c.heureDebut > :now " +
+           "AND (c.heureDebut > :heureDebut OR (c.heureDebut = :heureDebut AND r.id > :id)) " +
+           "ORDER BY c.heureDebut, r.id")
+    List<Reservation> findPageReservationsFutures(@Param("now") Instant now,
+                                                  @Param("heureDebut") Instant heureDebut, @Param("id") Long id, Limit limit);
+    
+    /**
+     * Compte les réservations futures
+     */
+    @Query("SELECT COUNT(r) FROM Reservation r WHERE r.creneau.heureDebut > :now")
+    long countReservationsFutures(@Param("now") Instant now);
+    
+    /**
+     * Page de réservations passées (créneaux terminés), de la plus récente à la plus ancienne,
+     * avant la position (heureDebut du créneau, id)
+     */
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.creneau c " +
+           "WHERE c.heureFin < :now " +
+           "AND (c.heureDebut < :heureDebut OR (c.heureDebut = :heureDebut AND r.id < :id)) " +
+           "ORDER BY c.heureDebut DESC, r.id DESC")
+    List<Reservation> findPageReservationsPassees(@Param("now") Instant now,
+                                                  @Param("heureDebut") Instant heureDebut, @Param("id") Long id, Limit limit);
+    
+    /**
+     * Lecture en flux des réservations passées, de la plus récente à la plus ancienne (export),
+     * par lots de 500 lignes côté JDBC et sans instantané de modification (lecture seule)
      */
-    @Query("SELECT r FROM Reservation r WHERE r.creneau.heureDebut > :now ORDER BY r.creneau.heureDebut")
-    List<Reservation> findReservationsFutures(@Param("now") Instant now);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.creneau c WHERE c.heureFin < :now ORDER BY c.heureDebut DESC, r.id DESC")
+    Stream<Reservation> streamReservationsPassees(@Param("now") Instant now);
     
     /**
-     * Trouve toutes les réservations passées (créneaux terminés)
+     * Compte les réservations passées
      */
-    @Query("SELECT r FROM Reservation r WHERE r.creneau.heureFin < :now ORDER BY r.creneau.heureDebut DESC")
-    List<Reservation> findReservationsPassees(@Param("now") Instant now);
-} 
\ No newline at end of file
+    @Query("SELECT COUNT(r) FROM Reservation r WHERE r.creneau.heureFin < :now")
+    long countReservationsPassees(@Param("now") Instant now);
+}
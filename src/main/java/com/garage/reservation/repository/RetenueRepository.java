@@ -0,0 +1,52 @@
+package com.garage.reservation.repository;
+
+import com.garage.reservation.model.Retenue;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RetenueRepository extends JpaRepository<Retenue, Long> {
+    
+    /**
+     * Supprime une retenue non expirée du créneau (conversion en réservation)
+     * Retourne 1 si la retenue a été consommée, 0 si elle a expiré ou n'existe pas
+     */
+    @Modifying
+    @Query("DELETE FROM Retenue r WHERE r.id = :id AND r.creneau.id = :creneauId AND r.dateExpiration > :maintenant")
+    int supprimerActive(@Param("id") Long id, @Param("creneauId") Long creneauId, @Param("maintenant") Instant maintenant);
+    
+    /**
+     * Supprime une retenue du créneau (abandon par l'usager)
+     */
+    @Modifying
+    @Query("DELETE FROM Retenue r WHERE r.id = :id AND r.creneau.id = :creneauId")
+    int supprimer(@Param("id") Long id, @Param("creneauId") Long creneauId);
+    
+    /**
+     * Supprime une retenue si elle a expiré (0 si elle a été convertie ou abandonnée entre-temps)
+     */
+    @Modifying
+    @Query("DELETE FROM Retenue r WHERE r.id = :id AND r.dateExpiration <= :maintenant")
+    int supprimerExpiree(@Param("id") Long id, @Param("maintenant") Instant maintenant);
+    
+    /**
+     * Échéances des retenues données (expiration planifiée par la roue temporelle)
+     */
+    @Query("SELECT new com.garage.reservation.repository.EcheanceRetenue(r.id, r.creneau.id, r.creneau.heureDebut, r.dateExpiration) " +
+           "FROM Retenue r WHERE r.id IN :ids")
+    List<EcheanceRetenue> findEcheances(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Échéances de toutes les retenues en cours (rechargement au démarrage)
+     */
+    @Query("SELECT new com.garage.reservation.repository.EcheanceRetenue(r.id, r.creneau.id, r.creneau.heureDebut, r.dateExpiration) " +
+           "FROM Retenue r")
+    List<EcheanceRetenue> findAllEcheances();
+}
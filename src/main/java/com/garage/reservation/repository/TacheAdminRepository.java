@@ -0,0 +1,32 @@
+package com.garage.reservation.repository;
+
+import com.garage.reservation.model.StatutTacheAdmin;
+import com.garage.reservation.model.TacheAdmin;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TacheAdminRepository extends JpaRepository<TacheAdmin, Long> {
+    
+    /**
+     * Dernières tâches soumises, de la plus récente à la plus ancienne
+     */
+    List<TacheAdmin> findByOrderByIdDesc(Limit limit);
+    
+    /**
+     * Termine en échec les tâches restées en attente ou en cours (application arrêtée pendant leur exécution)
+     */
+    @Modifying
+    @Query("UPDATE TacheAdmin t SET t.statut = com.garage.reservation.model.StatutTacheAdmin.ECHOUEE, " +
+           "t.message = :message, t.dateFin = :maintenant WHERE t.statut IN :statuts")
+    int terminerEnEchec(@Param("statuts") Collection<StatutTacheAdmin> statuts, @Param("message") String message,
+                        @Param("maintenant") Instant maintenant);
+}
@@ -0,0 +1,225 @@
+package com.garage.reservation.service;
+
+import com.garage.reservation.dto.CalendrierMoisDTO;
+import com.garage.reservation.dto.DisponibiliteJourDTO;
+import com.garage.reservation.model.Creneau;
+import com.garage.reservation.model.DisponibiliteJour;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.repository.DisponibiliteJourRepository;
+import com.garage.reservation.service.generation.CreneauxVirtuels;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Calendrier mensuel des disponibilités, lu dans la synthèse quotidienne disponibilite_jour
+ *
+ * Chaque modification des compteurs d'un créneau (réservation, annulation, retenue, création ou
+ * suppression) ajoute le même écart à la ligne de son jour, dans la même transaction : la synthèse
+ * ne diverge jamais des créneaux et n'est jamais recalculée. Les jours sont mis à jour dans
+ * l'ordre chronologique (ordre de verrouillage constant entre transactions concurrentes).
+ */
+@Service
+public class CalendrierService {
+
+    private final DisponibiliteJourRepository disponibiliteJourRepository;
+    private final CreneauRepository creneauRepository;
+    private final CreneauxVirtuels creneauxVirtuels;
+    private final TransactionTemplate nouvelleTransaction;
+
+    public CalendrierService(DisponibiliteJourRepository disponibiliteJourRepository,
+                             CreneauRepository creneauRepository,
+                             CreneauxVirtuels creneauxVirtuels,
+                             PlatformTransactionManager transactionManager) {
+        this.disponibiliteJourRepository = disponibiliteJourRepository;
+        this.creneauRepository = creneauRepository;
+        this.creneauxVirtuels = creneauxVirtuels;
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Synthèse de chaque jour d'un mois (jours sans créneau compris), créneaux virtuels ajoutés
+     * Lève IllegalArgumentException si le mois est invalide
+     */
+    @Transactional(readOnly = true)
+    public CalendrierMoisDTO getCalendrier(int annee, int mois) {
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.of(annee, mois);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Mois invalide : " + annee + "/" + mois);
+        }
+
+        Map<LocalDate, DisponibiliteJour> parJour = disponibiliteJourRepository
+                .findByJourBetweenOrderByJour(yearMonth.atDay(1), yearMonth.atEndOfMonth())
+                .stream()
+                .collect(Collectors.toMap(DisponibiliteJour::getJour, Function.identity()));
+
+        Map<LocalDate, List<Creneau>> virtuelsParJour = creneauxVirtuels.parJour(yearMonth.atDay(1), yearMonth.atEndOfMonth());
+
+        List<DisponibiliteJourDTO> jours = new ArrayList<>(yearMonth.lengthOfMonth());
+        for (int jour = 1; jour <= yearMonth.lengthOfMonth(); jour++) {
+            LocalDate date = yearMonth.atDay(jour);
+            DisponibiliteJour synthese = parJour.get(date);
+            DisponibiliteJourDTO disponibilite = synthese != null ? toDTO(synthese) : jourVide(date);
+            ajouterVirtuels(disponibilite, virtuelsParJour.getOrDefault(date, List.of()));
+            jours.add(disponibilite);
+        }
+
+        return CalendrierMoisDTO.builder()
+                .annee(annee)
+                .mois(mois)
+                .jours(jours)
+                .build();
+    }
+
+    /**
+     * Reporte sur le jour du créneau un écart de places réservées et retenues
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ajusterOccupation(Long creneauId, int reservees, int retenues) {
+        ajusterOccupation(creneauRepository.getReferenceById(creneauId).getHeureDebut(), reservees, retenues);
+    }
+
+    /**
+     * Reporte un écart de places réservées et retenues sur le jour d'un créneau dont l'heure de début est connue
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ajusterOccupation(Instant heureDebut, int reservees, int retenues) {
+        if (reservees != 0 || retenues != 0) {
+            disponibiliteJourRepository.ajuster(jourDe(heureDebut), 0, 0, reservees, retenues);
+        }
+    }
+
+    /**
+     * Reporte des places réservées par créneau (lots), regroupées par jour dans l'ordre chronologique
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ajouterReservations(Map<Long, Integer> placesParCreneau) {
+        Map<LocalDate, Integer> parJour = new TreeMap<>();
+        placesParCreneau.forEach((creneauId, places) -> parJour.merge(
+                jourDe(creneauRepository.getReferenceById(creneauId).getHeureDebut()), places, Integer::sum));
+        parJour.forEach((jour, places) -> disponibiliteJourRepository.ajuster(jour, 0, 0, places, 0));
+    }
+
+    /**
+     * Ajoute des créneaux nouvellement enregistrés à la synthèse de leurs jours
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ajouterCreneaux(Collection<Creneau> creneaux) {
+        parJour(creneaux).forEach((jour, ecart) -> {
+            if (disponibiliteJourRepository.ajuster(jour, ecart[0], ecart[1], ecart[2], ecart[3]) == 0) {
+                creerJour(jour);
+                disponibiliteJourRepository.ajuster(jour, ecart[0], ecart[1], ecart[2], ecart[3]);
+            }
+        });
+    }
+
+    /**
+     * Crée, chacune dans sa propre transaction, les lignes manquantes des jours de créneaux sur le point d'être
+     * ajoutés ; appelé hors transaction, ajouterCreneaux n'a ensuite plus besoin d'une seconde connexion
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void preparerJours(Collection<Creneau> creneaux) {
+        parJour(creneaux).keySet().stream()
+                .filter(jour -> !disponibiliteJourRepository.existsById(jour))
+                .forEach(this::creerJour);
+    }
+
+    /**
+     * Retire des créneaux supprimés (avec leurs compteurs) de la synthèse de leurs jours
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void retirerCreneaux(Collection<Creneau> creneaux) {
+        parJour(creneaux).forEach((jour, ecart) ->
+                disponibiliteJourRepository.ajuster(jour, -ecart[0], -ecart[1], -ecart[2], -ecart[3]));
+    }
+
+    /**
+     * Crée la ligne vide d'un jour dans une transaction séparée : une création concurrente du même
+     * jour échoue sans annuler la transaction appelante, et une ligne vide reste juste si celle-ci échoue
+     */
+    private void creerJour(LocalDate jour) {
+        try {
+            nouvelleTransaction.executeWithoutResult(status -> disponibiliteJourRepository.saveAndFlush(
+                    DisponibiliteJour.builder()
+                            .jour(jour)
+                            .nombreCreneaux(0)
+                            .capaciteTotale(0)
+                            .placesReservees(0)
+                            .placesRetenues(0)
+                            .build()));
+        } catch (DataIntegrityViolationException e) {
+            // Ligne créée entre-temps par une autre transaction
+        }
+    }
+
+    /**
+     * Écarts par jour, dans l'ordre chronologique : créneaux, capacité, places réservées, places retenues
+     */
+    private static Map<LocalDate, int[]> parJour(Collection<Creneau> creneaux) {
+        Map<LocalDate, int[]> ecarts = new TreeMap<>();
+        for (Creneau creneau : creneaux) {
+            int[] ecart = ecarts.computeIfAbsent(jourDe(creneau.getHeureDebut()), j -> new int[4]);
+            ecart[0]++;
+            ecart[1] += creneau.getCapaciteTotale() != null ? creneau.getCapaciteTotale() : 0;
+            ecart[2] += creneau.getNombreReservations();
+            ecart[3] += creneau.getNombreRetenues();
+        }
+        return ecarts;
+    }
+
+    private static LocalDate jourDe(Instant heureDebut) {
+        return LocalDate.ofInstant(heureDebut, ZoneOffset.UTC);
+    }
+
+    private static DisponibiliteJourDTO toDTO(DisponibiliteJour synthese) {
+        return DisponibiliteJourDTO.builder()
+                .jour(synthese.getJour())
+                .nombreCreneaux(synthese.getNombreCreneaux())
+                .capaciteTotale(synthese.getCapaciteTotale())
+                .placesReservees(synthese.getPlacesReservees())
+                .placesRetenues(synthese.getPlacesRetenues())
+                .placesLibres(Math.max(0, synthese.getCapaciteTotale() - synthese.getPlacesReservees() - synthese.getPlacesRetenues()))
+                .build();
+    }
+
+    /**
+     * Un créneau virtuel n'a ni réservation ni retenue : toute sa capacité est libre
+     */
+    private static void ajouterVirtuels(DisponibiliteJourDTO disponibilite, List<Creneau> virtuels) {
+        int capacite = virtuels.stream().mapToInt(Creneau::getCapaciteTotale).sum();
+        disponibilite.setNombreCreneaux(disponibilite.getNombreCreneaux() + virtuels.size());
+        disponibilite.setCapaciteTotale(disponibilite.getCapaciteTotale() + capacite);
+        disponibilite.setPlacesLibres(disponibilite.getPlacesLibres() + capacite);
+    }
+
+    private static DisponibiliteJourDTO jourVide(LocalDate jour) {
+        return DisponibiliteJourDTO.builder()
+                .jour(jour)
+                .nombreCreneaux(0)
+                .capaciteTotale(0)
+                .placesReservees(0)
+                .placesRetenues(0)
+                .placesLibres(0)
+                .build();
+    }
+}
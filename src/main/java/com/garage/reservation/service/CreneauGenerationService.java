@@ -1,176 +1,218 @@
 package com.garage.reservation.service;
 
+import com.garage.reservation.dto.ResultatGenerationDTO;
+import com.garage.reservation.dto.ResultatNettoyageDTO;
+import com.garage.reservation.dto.TacheAdminDTO;
 import com.garage.reservation.model.Creneau;
-import com.garage.reservation.repository.CreneauRepository;
-import lombok.RequiredArgsConstructor;
+import com.garage.reservation.model.TypeTacheAdmin;
+import com.garage.reservation.service.generation.CreneauxVirtuels;
+import com.garage.reservation.service.generation.InsertionCreneauxMasse;
+import com.garage.reservation.service.generation.SuppressionCreneauxMasse;
+import com.garage.reservation.service.tache.SuiviTache;
+import com.garage.reservation.service.tache.TachesAdminService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.DayOfWeek;
 import java.time.Instant;
 import java.time.LocalDate;
-import java.time.LocalTime;
 import java.time.ZoneOffset;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
+/**
+ * Génération des créneaux à partir des modèles d'horaires et des jours fériés (ModeleHoraireService)
+ *
+ * Les générations sont idempotentes : seuls les créneaux manquants sont insérés (heure_debut est unique).
+ * Une tâche planifiée complète chaque nuit l'horizon des prochaines semaines ; un passage sur un horizon
+ * déjà couvert se limite à une lecture indexée des créneaux existants. Les générations et nettoyages demandés
+ * par l'administration sont soumis comme tâches de fond (TachesAdminService) : la réponse n'attend pas la fin.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 @Transactional
 public class CreneauGenerationService {
     
-    private final CreneauRepository creneauRepository;
+    private final InsertionCreneauxMasse insertionCreneauxMasse;
+    private final SuppressionCreneauxMasse suppressionCreneauxMasse;
+    private final ModeleHoraireService modeleHoraireService;
+    private final CreneauxVirtuels creneauxVirtuels;
+    private final TachesAdminService tachesAdminService;
+    private final int horizonSemaines;
     
-    // Jours fériés fixes pour 2025 (France)
-    private static final Set<LocalDate> JOURS_FERIES_2025 = Set.of(
-            LocalDate.of(2025, 1, 1),   // Nouvel An
-            LocalDate.of(2025, 5, 1),   // Fête du Travail
-            LocalDate.of(2025, 5, 8),   // Victoire 1945
-            LocalDate.of(2025, 7, 14),  // Fête Nationale
-            LocalDate.of(2025, 8, 15),  // Assomption
-            LocalDate.of(2025, 11, 1),  // Toussaint
-            LocalDate.of(2025, 11, 11), // Armistice
-            LocalDate.of(2025, 12, 25)  // Noël
-    );
+    public CreneauGenerationService(InsertionCreneauxMasse insertionCreneauxMasse,
+                                    SuppressionCreneauxMasse suppressionCreneauxMasse,
+                                    ModeleHoraireService modeleHoraireService,
+                                    CreneauxVirtuels creneauxVirtuels,
+                                    TachesAdminService tachesAdminService,
+                                    @Value("${garage.reservation.generation.horizon-semaines:8}") int horizonSemaines) {
+        this.insertionCreneauxMasse = insertionCreneauxMasse;
+        this.suppressionCreneauxMasse = suppressionCreneauxMasse;
+        this.modeleHoraireService = modeleHoraireService;
+        this.creneauxVirtuels = creneauxVirtuels;
+        this.tachesAdminService = tachesAdminService;
+        this.horizonSemaines = horizonSemaines;
+    }
     
     /**
-     * Génère les créneaux pour juillet et août 2025
+     * Soumet la génération des créneaux manquants d'un mois donné
      */
-    public int generateCreneauxJuilletAout2025() {
-        log.info("🚀 Génération des créneaux pour juillet et août 2025...");
-        
-        List<Creneau> creneauxToSave = new ArrayList<>();
-        
-        // Juillet 2025
-        LocalDate debutJuillet = LocalDate.of(2025, 7, 1);
-        LocalDate finJuillet = LocalDate.of(2025, 7, 31);
-        creneauxToSave.addAll(generateCreneauxForPeriod(debutJuillet, finJuillet));
-        
-        // Août 2025  
-        LocalDate debutAout = LocalDate.of(2025, 8, 1);
-        LocalDate finAout = LocalDate.of(2025, 8, 31);
-        creneauxToSave.addAll(generateCreneauxForPeriod(debutAout, finAout));
-        
-        // Sauvegarde en base
-        List<Creneau> savedCreneaux = creneauRepository.saveAll(creneauxToSave);
-        
-        log.info("✅ {} créneaux générés avec succès pour juillet-août 2025", savedCreneaux.size());
-        return savedCreneaux.size();
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TacheAdminDTO soumettreGenerationMois(int year, int month) {
+        LocalDate debut = LocalDate.of(year, month, 1);
+        return tachesAdminService.soumettre(TypeTacheAdmin.GENERATION_MOIS, debut, debut.withDayOfMonth(debut.lengthOfMonth()),
+                suivi -> resumer(generateCreneauxForMonth(year, month, suivi)));
     }
     
     /**
-     * Génère les créneaux pour une période donnée
+     * Soumet la génération des créneaux manquants de juillet et août 2025
      */
-    private List<Creneau> generateCreneauxForPeriod(LocalDate debut, LocalDate fin) {
-        List<Creneau> creneaux = new ArrayList<>();
-        
-        LocalDate currentDate = debut;
-        
-        while (!currentDate.isAfter(fin)) {
-            // Vérifier si c'est un jour ouvrable
-            if (isJourOuvrable(currentDate)) {
-                creneaux.addAll(generateCreneauxForDay(currentDate));
-            } else {
-                log.debug("⏭️  Jour non-ouvrable ignoré : {}", currentDate);
-            }
-            currentDate = currentDate.plusDays(1);
-        }
-        
-        return creneaux;
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TacheAdminDTO soumettreGenerationJuilletAout2025() {
+        return tachesAdminService.soumettre(TypeTacheAdmin.GENERATION_JUILLET_AOUT_2025,
+                LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 31),
+                suivi -> resumer(generateCreneauxJuilletAout2025(suivi)));
     }
     
     /**
-     * Génère les créneaux pour une journée (8h-18h, créneaux de 1h)
+     * Soumet le complément de l'horizon de génération
      */
-    private List<Creneau> generateCreneauxForDay(LocalDate date) {
-        List<Creneau> creneaux = new ArrayList<>();
-        
-        // Horaires du garage : 8h - 18h
-        LocalTime heureDebut = LocalTime.of(8, 0);
-        LocalTime heureFin = LocalTime.of(18, 0);
-        
-        LocalTime currentTime = heureDebut;
-        
-        while (currentTime.isBefore(heureFin)) {
-            LocalTime nextTime = currentTime.plusHours(1);
-            
-            // Pause déjeuner 12h-14h - pas de créneaux
-            if (!(currentTime.equals(LocalTime.of(12, 0)) || currentTime.equals(LocalTime.of(13, 0)))) {
-                Instant instantDebut = date.atTime(currentTime).toInstant(ZoneOffset.UTC);
-                Instant instantFin = date.atTime(nextTime).toInstant(ZoneOffset.UTC);
-                
-                Creneau creneau = Creneau.builder()
-                        .heureDebut(instantDebut)
-                        .heureFin(instantFin)
-                        .disponible(true)
-                        .capaciteTotale(2) // 2 véhicules par créneau
-                        .build();
-                
-                creneaux.add(creneau);
-            }
-            
-            currentTime = nextTime;
-        }
-        
-        log.debug("📅 {} créneaux générés pour le {}", creneaux.size(), date);
-        return creneaux;
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TacheAdminDTO soumettreHorizon() {
+        LocalDate aujourdhui = LocalDate.now(ZoneOffset.UTC);
+        return tachesAdminService.soumettre(TypeTacheAdmin.HORIZON,
+                aujourdhui, aujourdhui.plusWeeks(horizonSemaines).minusDays(1),
+                suivi -> resumer(completerHorizon(suivi)));
     }
     
     /**
-     * Vérifie si un jour est ouvrable (lundi-samedi, hors jours fériés)
+     * Soumet la suppression des créneaux futurs sans réservation
      */
-    private boolean isJourOuvrable(LocalDate date) {
-        DayOfWeek dayOfWeek = date.getDayOfWeek();
-        
-        // Dimanche fermé
-        if (dayOfWeek == DayOfWeek.SUNDAY) {
-            return false;
-        }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TacheAdminDTO soumettreNettoyage() {
+        return tachesAdminService.soumettre(TypeTacheAdmin.NETTOYAGE_FUTURS, LocalDate.now(ZoneOffset.UTC), null,
+                suivi -> resumer(cleanCreneauxFuturs(suivi)));
+    }
+    
+    /**
+     * Soumet le nettoyage des créneaux futurs suivi de la génération de juillet-août 2025
+     * (la génération n'est pas lancée si la tâche est annulée pendant le nettoyage)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TacheAdminDTO soumettreReset() {
+        LocalDate debutGeneration = LocalDate.of(2025, 7, 1);
+        LocalDate aujourdhui = LocalDate.now(ZoneOffset.UTC);
+        return tachesAdminService.soumettre(TypeTacheAdmin.RESET_JUILLET_AOUT_2025,
+                aujourdhui.isBefore(debutGeneration) ? aujourdhui : debutGeneration, null,
+                suivi -> {
+                    String nettoyage = resumer(cleanCreneauxFuturs(suivi));
+                    if (suivi.estAnnulee()) {
+                        return nettoyage;
+                    }
+                    return nettoyage + " ; " + resumer(generateCreneauxJuilletAout2025(suivi));
+                });
+    }
+    
+    /**
+     * Génère les créneaux manquants de juillet et août 2025
+     * (insertion en masse par lots validés séparément : pas de transaction englobante)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResultatGenerationDTO generateCreneauxJuilletAout2025(SuiviTache suivi) {
+        log.info("🚀 Génération des créneaux pour juillet et août 2025...");
         
-        // Jours fériés fermés
-        if (JOURS_FERIES_2025.contains(date)) {
-            return false;
-        }
+        ResultatGenerationDTO resultat = genererPeriode(LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 31), suivi);
         
-        return true;
+        log.info("✅ {} créneaux générés pour juillet-août 2025 ({} déjà présents)",
+                resultat.getNombreCreneaux(), resultat.getNombreExistants());
+        return resultat;
     }
     
     /**
-     * Génère les créneaux pour un mois donné
+     * Génère les créneaux manquants d'un mois donné
+     * (insertion en masse par lots validés séparément : pas de transaction englobante)
      */
-    public int generateCreneauxForMonth(int year, int month) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResultatGenerationDTO generateCreneauxForMonth(int year, int month, SuiviTache suivi) {
         log.info("🚀 Génération des créneaux pour {}/{}", month, year);
         
         LocalDate debut = LocalDate.of(year, month, 1);
-        LocalDate fin = debut.withDayOfMonth(debut.lengthOfMonth());
-        
-        List<Creneau> creneaux = generateCreneauxForPeriod(debut, fin);
-        List<Creneau> savedCreneaux = creneauRepository.saveAll(creneaux);
+        ResultatGenerationDTO resultat = genererPeriode(debut, debut.withDayOfMonth(debut.lengthOfMonth()), suivi);
         
-        log.info("✅ {} créneaux générés pour {}/{}", savedCreneaux.size(), month, year);
-        return savedCreneaux.size();
+        log.info("✅ {} créneaux générés pour {}/{} ({} déjà présents)",
+                resultat.getNombreCreneaux(), month, year, resultat.getNombreExistants());
+        return resultat;
     }
     
     /**
-     * Supprime tous les créneaux futurs (pour nettoyage avant regénération)
+     * Complète les créneaux des prochaines semaines (horizon glissant), à partir de maintenant
      */
-    @Transactional
-    public int cleanCreneauxFuturs() {
-        log.info("🧹 Suppression des créneaux futurs...");
-        
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResultatGenerationDTO completerHorizon(SuiviTache suivi) {
         Instant maintenant = Instant.now();
-        List<Creneau> creneauxFuturs = creneauRepository.findAll()
+        LocalDate aujourdhui = LocalDate.ofInstant(maintenant, ZoneOffset.UTC);
+        List<Creneau> prevus = modeleHoraireService.getRegles()
+                .creneauxPrevus(aujourdhui, aujourdhui.plusWeeks(horizonSemaines).minusDays(1))
                 .stream()
-                .filter(c -> c.getHeureDebut().isAfter(maintenant))
-                .filter(c -> c.getReservations() == null || c.getReservations().isEmpty())
+                .filter(creneau -> creneau.getHeureDebut().isAfter(maintenant))
                 .toList();
+        ResultatGenerationDTO resultat = insertionCreneauxMasse.insererManquants(prevus, suivi);
+        
+        log.info("🗓️ Horizon de {} semaines complété : {} créneaux ajoutés, {} déjà présents ({} ms)",
+                horizonSemaines, resultat.getNombreCreneaux(), resultat.getNombreExistants(), resultat.getDureeMs());
+        return resultat;
+    }
+    
+    /**
+     * Tâche planifiée (chaque nuit par défaut), soumise comme les autres tâches d'administration :
+     * un échec est enregistré dans l'historique et rattrapé au passage suivant
+     * Inutile avec les créneaux virtuels : seuls les créneaux réservés sont alors écrits
+     */
+    @Scheduled(cron = "${garage.reservation.generation.horizon-cron:0 15 3 * * *}", zone = "UTC")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void planifierHorizon() {
+        if (creneauxVirtuels.isActif()) {
+            return;
+        }
+        try {
+            soumettreHorizon();
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Génération planifiée des créneaux non soumise : {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Insère les créneaux manquants entre deux dates incluses
+     */
+    private ResultatGenerationDTO genererPeriode(LocalDate debut, LocalDate fin, SuiviTache suivi) {
+        return insertionCreneauxMasse.insererManquants(modeleHoraireService.getRegles().creneauxPrevus(debut, fin), suivi);
+    }
+    
+    /**
+     * Supprime les créneaux futurs sans réservation (pour nettoyage avant regénération)
+     * (suppression ensembliste par lots validés séparément : pas de transaction englobante)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResultatNettoyageDTO cleanCreneauxFuturs(SuiviTache suivi) {
+        log.info("🧹 Suppression des créneaux futurs...");
         
-        creneauRepository.deleteAll(creneauxFuturs);
+        ResultatNettoyageDTO resultat = suppressionCreneauxMasse.supprimerApres(Instant.now(), suivi);
         
-        log.info("✅ {} créneaux futurs supprimés", creneauxFuturs.size());
-        return creneauxFuturs.size();
+        log.info("✅ {} créneaux futurs supprimés ({} lots, {} ms)",
+                resultat.getNombreSupprimes(), resultat.getNombreLots(), resultat.getDureeMs());
+        return resultat;
+    }
+    
+    private static String resumer(ResultatGenerationDTO generation) {
+        return String.format("%d créneaux générés, %d déjà présents (%s, %d lots, %d ms)",
+                generation.getNombreCreneaux(), generation.getNombreExistants(), generation.getMethode().getLibelle(),
+                generation.getNombreLots(), generation.getDureeMs());
+    }
+    
+    private static String resumer(ResultatNettoyageDTO nettoyage) {
+        return String.format("%d créneaux supprimés (%d lots, %d ms)",
+                nettoyage.getNombreSupprimes(), nettoyage.getNombreLots(), nettoyage.getDureeMs());
     }
-} 
\ No newline at end of file
+}
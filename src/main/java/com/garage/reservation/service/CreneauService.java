@@ -1,41 +1,158 @@
 package com.garage.reservation.service;
 
 import com.garage.reservation.dto.CreneauDTO;
+import com.garage.reservation.dto.PageCurseurDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
 import com.garage.reservation.mapper.CreneauMapper;
 import com.garage.reservation.model.Creneau;
 import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.service.cache.CacheDisponibilites;
+import com.garage.reservation.service.cache.IndexOccupation;
+import com.garage.reservation.service.capacite.RegistreCapacite;
+import com.garage.reservation.service.generation.CreneauxVirtuels;
+import com.garage.reservation.util.CurseurPagination;
+import com.garage.reservation.util.CurseurPagination.Position;
 import com.garage.reservation.util.DateTimeUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @Service
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class CreneauService {
     
+    /** Nombre maximal de créneaux renvoyés par la recherche des prochains créneaux libres */
+    public static final int LIMITE_MAX_PROCHAINS = 50;
+    
+    /** Horizon de la recherche filtrée (jours ou heures) : au-delà, la recherche s'arrête sans résultat */
+    private static final Duration HORIZON_PROCHAINS = Duration.ofDays(366);
+    
     private final CreneauRepository creneauRepository;
     private final CreneauMapper creneauMapper;
+    private final RegistreCapacite registreCapacite;
+    private final CalendrierService calendrierService;
+    private final CacheDisponibilites cacheDisponibilites;
+    private final IndexOccupation indexOccupation;
+    private final CreneauxVirtuels creneauxVirtuels;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    /**
+     * Récupère une page de créneaux (pagination par curseur)
+     */
+    public PageCurseurDTO<CreneauDTO> getCreneaux(String curseur, Integer taille, boolean avecTotal) {
+        Position position = CurseurPagination.decoder(curseur, CurseurPagination.DEBUT_CROISSANT);
+        int tailleEffective = CurseurPagination.taille(taille);
+        return CurseurPagination.page(
+                creneauRepository.findPageCreneaux(position.heureDebut(), position.id(), Limit.of(tailleEffective + 1)),
+                tailleEffective, CreneauDTO::getHeureDebut, CreneauDTO::getId, Function.identity(),
+                avecTotal, creneauRepository::count);
+    }
     
     /**
-     * Récupère tous les créneaux
+     * Récupère une page de créneaux à venir encore réservables
+     * (lue dans l'index d'occupation s'il est actif, sinon par une requête indexée : le coût
+     * ne dépend pas de l'historique des créneaux passés)
      */
-    public List<CreneauDTO> getAllCreneaux() {
-        return creneauRepository.findAll()
-                .stream()
-                .map(creneauMapper::toDTO)
-                .collect(Collectors.toList());
+    public PageCurseurDTO<CreneauDTO> getCreneauxDisponiblesFuturs(String curseur, Integer taille, boolean avecTotal) {
+        Position position = CurseurPagination.decoder(curseur, CurseurPagination.DEBUT_CROISSANT);
+        int tailleEffective = CurseurPagination.taille(taille);
+        Instant maintenant = Instant.now();
+        List<CreneauDTO> lus = disponiblesApres(maintenant, position.heureDebut(), position.id(), tailleEffective + 1);
+        return CurseurPagination.page(lus, tailleEffective, CreneauDTO::getHeureDebut, CreneauDTO::getId, Function.identity(),
+                avecTotal, () -> creneauRepository.countCreneauxDisponiblesFuturs(maintenant)
+                        + creneauxVirtuels.compterDisponibles(maintenant));
+    }
+    
+    /**
+     * Recherche les premiers créneaux réservables commençant à partir d'un instant (maintenant par défaut)
+     * Filtres optionnels (UTC) : jours de la semaine, heure de début dans [heureMin, heureMax)
+     *
+     * Parcours dans l'ordre (heureDebut, id) par lots, arrêté dès que limite créneaux sont trouvés :
+     * sans filtre, une seule lecture de limite créneaux ; avec filtres, la recherche est bornée à un an.
+     * Lève IllegalArgumentException si la limite ou la plage horaire est invalide
+     */
+    public List<CreneauDTO> getProchainsDisponibles(Instant apres, Integer limite, Set<DayOfWeek> jours,
+                                                    LocalTime heureMin, LocalTime heureMax) {
+        int nombre = limite != null ? limite : 1;
+        if (nombre < 1 || nombre > LIMITE_MAX_PROCHAINS) {
+            throw new IllegalArgumentException("La limite doit être comprise entre 1 et " + LIMITE_MAX_PROCHAINS);
+        }
+        if (heureMin != null && heureMax != null && !heureMin.isBefore(heureMax)) {
+            throw new IllegalArgumentException("L'heure minimale doit être antérieure à l'heure maximale");
+        }
+        
+        Instant maintenant = Instant.now();
+        Instant depart = apres != null ? apres : maintenant;
+        Predicate<CreneauDTO> filtre = creneau -> {
+            LocalDateTime debut = LocalDateTime.ofInstant(creneau.getHeureDebut(), ZoneOffset.UTC);
+            return (jours == null || jours.isEmpty() || jours.contains(debut.getDayOfWeek()))
+                    && (heureMin == null || !debut.toLocalTime().isBefore(heureMin))
+                    && (heureMax == null || debut.toLocalTime().isBefore(heureMax));
+        };
+        boolean filtree = (jours != null && !jours.isEmpty()) || heureMin != null || heureMax != null;
+        
+        // Sans filtre, chaque créneau lu est retenu : un lot de la taille demandée suffit
+        int tailleLot = filtree ? CurseurPagination.TAILLE_MAX : nombre;
+        // Sans filtre, le premier créneau lu convient quelle que soit sa date : pas d'horizon
+        Instant horizon = filtree ? depart.plus(HORIZON_PROCHAINS) : Instant.MAX;
+        // Position (depart, Long.MIN_VALUE) : les créneaux commençant exactement à depart sont inclus,
+        // créneaux virtuels (identifiants négatifs) compris
+        Instant heureCurseur = depart;
+        long idCurseur = Long.MIN_VALUE;
+        
+        List<CreneauDTO> trouves = new ArrayList<>(nombre);
+        while (true) {
+            Instant h = heureCurseur;
+            long id = idCurseur;
+            List<CreneauDTO> lot = disponiblesApres(maintenant, h, id, tailleLot);
+            for (CreneauDTO creneau : lot) {
+                if (creneau.getHeureDebut().isAfter(horizon)) {
+                    return trouves;
+                }
+                if (filtre.test(creneau)) {
+                    trouves.add(creneau);
+                    if (trouves.size() == nombre) {
+                        return trouves;
+                    }
+                }
+            }
+            if (lot.size() < tailleLot) {
+                return trouves;
+            }
+            CreneauDTO dernier = lot.get(lot.size() - 1);
+            heureCurseur = dernier.getHeureDebut();
+            idCurseur = dernier.getId();
+        }
     }
     
     /**
      * Récupère un créneau par son ID
      */
     public Optional<CreneauDTO> getCreneauById(Long id) {
-        return creneauRepository.findById(id)
-                .map(creneauMapper::toDTO);
+        if (CreneauxVirtuels.estVirtuel(id)) {
+            // Créneau virtuel : le créneau matérialisé s'il l'a été, sinon le créneau prévu
+            return creneauxVirtuels.prevu(id).map(prevu -> creneauRepository.findIdByHeureDebut(prevu.getHeureDebut())
+                    .flatMap(creneauRepository::findCreneauById)
+                    .orElseGet(() -> CreneauxVirtuels.toDTO(prevu)));
+        }
+        return creneauRepository.findCreneauById(id);
     }
     
     /**
@@ -44,10 +161,10 @@ public class CreneauService {
     public List<CreneauDTO> getCreneauxByDate(Instant date) {
         Instant debutJour = DateTimeUtil.getStartOfDay(date);
         Instant finJour = DateTimeUtil.getStartOfNextDay(date);
-        return creneauRepository.findCreneauxByDate(debutJour, finJour)
-                .stream()
-                .map(creneauMapper::toDTO)
-                .collect(Collectors.toList());
+        return cacheDisponibilites.jour(debutJour, false, () -> creneauxVirtuels.completer(
+                indexOccupation.rechercher(debutJour, finJour, null, false)
+                        .orElseGet(() -> creneauRepository.findCreneauxByDate(debutJour, finJour)),
+                debutJour, finJour, null, false));
     }
     
     /**
@@ -57,23 +174,23 @@ public class CreneauService {
     public List<CreneauDTO> getCreneauxDisponiblesByDate(Instant date) {
         Instant debutJour = DateTimeUtil.getStartOfDay(date);
         Instant finJour = DateTimeUtil.getStartOfNextDay(date);
-        return creneauRepository.findCreneauxDisponiblesByDate(debutJour, finJour)
-                .stream()
-                .map(creneauMapper::toDTO)
-                .collect(Collectors.toList());
+        return cacheDisponibilites.jour(debutJour, true, () -> creneauxVirtuels.completer(
+                indexOccupation.rechercher(debutJour, finJour, null, true)
+                        .orElseGet(() -> creneauRepository.findCreneauxDisponiblesByDate(debutJour, finJour)),
+                debutJour, finJour, null, true));
     }
     
     /**
      * Récupère les créneaux d'une semaine donnée (du lundi au dimanche)
-     * (charge les réservations pour afficher la disponibilité correcte)
+     * (nombre de réservations lu sur le compteur du créneau, sans charger les réservations)
      */
     public List<CreneauDTO> getCreneauxByWeek(Instant date) {
         Instant debutSemaine = DateTimeUtil.getStartOfWeek(date);
         Instant finSemaine = DateTimeUtil.getStartOfNextWeek(date);
-        return creneauRepository.findCreneauxByWeek(debutSemaine, finSemaine)
-                .stream()
-                .map(creneauMapper::toDTO)
-                .collect(Collectors.toList());
+        return cacheDisponibilites.semaine(debutSemaine, false, () -> creneauxVirtuels.completer(
+                indexOccupation.rechercher(debutSemaine, finSemaine, null, false)
+                        .orElseGet(() -> creneauRepository.findCreneauxByWeek(debutSemaine, finSemaine)),
+                debutSemaine, finSemaine, null, false));
     }
     
     /**
@@ -83,20 +200,20 @@ public class CreneauService {
     public List<CreneauDTO> getCreneauxDisponiblesByWeek(Instant date) {
         Instant debutSemaine = DateTimeUtil.getStartOfWeek(date);
         Instant finSemaine = DateTimeUtil.getStartOfNextWeek(date);
-        return creneauRepository.findCreneauxDisponiblesByWeek(debutSemaine, finSemaine)
-                .stream()
-                .map(creneauMapper::toDTO)
-                .collect(Collectors.toList());
+        return cacheDisponibilites.semaine(debutSemaine, true, () -> creneauxVirtuels.completer(
+                indexOccupation.rechercher(debutSemaine, finSemaine, null, true)
+                        .orElseGet(() -> creneauRepository.findCreneauxDisponiblesByWeek(debutSemaine, finSemaine)),
+                debutSemaine, finSemaine, null, true));
     }
     
     /**
      * Récupère les créneaux entre deux dates
      */
     public List<CreneauDTO> getCreneauxBetweenDates(Instant dateDebut, Instant dateFin) {
-        return creneauRepository.findCreneauxBetweenDates(dateDebut, dateFin)
-                .stream()
-                .map(creneauMapper::toDTO)
-                .collect(Collectors.toList());
+        return cacheDisponibilites.periode(dateDebut, dateFin, false, () -> creneauxVirtuels.completer(
+                indexOccupation.rechercher(dateDebut, dateFin, dateFin, false)
+                        .orElseGet(() -> creneauRepository.findCreneauxBetweenDates(dateDebut, dateFin)),
+                dateDebut, dateFin, dateFin, false));
     }
     
     /**
@@ -104,28 +221,54 @@ public class CreneauService {
      * (prend en compte les réservations non-annulées par rapport à la capacité)
      */
     public List<CreneauDTO> getCreneauxDisponiblesBetweenDates(Instant dateDebut, Instant dateFin) {
-        return creneauRepository.findCreneauxDisponiblesBetweenDates(dateDebut, dateFin)
-                .stream()
-                .map(creneauMapper::toDTO)
-                .collect(Collectors.toList());
+        return cacheDisponibilites.periode(dateDebut, dateFin, true, () -> creneauxVirtuels.completer(
+                indexOccupation.rechercher(dateDebut, dateFin, dateFin, true)
+                        .orElseGet(() -> creneauRepository.findCreneauxDisponiblesBetweenDates(dateDebut, dateFin)),
+                dateDebut, dateFin, dateFin, true));
+    }
+    
+    /**
+     * Au plus limite créneaux réservables après maintenant et après la position (heureDebut, id), dans l'ordre
+     * (heureDebut, id) : créneaux matérialisés (index d'occupation ou requête indexée) et créneaux virtuels
+     */
+    private List<CreneauDTO> disponiblesApres(Instant maintenant, Instant heureCurseur, long idCurseur, int limite) {
+        List<CreneauDTO> materialises = indexOccupation.disponiblesApres(maintenant, heureCurseur, idCurseur, limite)
+                .orElseGet(() -> creneauRepository.findPageCreneauxDisponiblesFuturs(maintenant, heureCurseur, idCurseur,
+                        Limit.of(limite)));
+        if (!creneauxVirtuels.isActif()) {
+            return materialises;
+        }
+        List<CreneauDTO> creneaux = new ArrayList<>(materialises);
+        creneaux.addAll(creneauxVirtuels.disponiblesApres(maintenant, heureCurseur, idCurseur, limite));
+        creneaux.sort(Comparator.comparing(CreneauDTO::getHeureDebut).thenComparing(CreneauDTO::getId));
+        return creneaux.size() > limite ? creneaux.subList(0, limite) : creneaux;
     }
     
     /**
      * Crée un nouveau créneau
+     * Lève IllegalStateException si un créneau commence déjà à cette heure
      */
+    @Transactional
     public CreneauDTO createCreneau(Instant heureDebut, Instant heureFin, Integer capacite) {
+        if (creneauRepository.existsByHeureDebut(heureDebut)) {
+            throw new IllegalStateException("Un créneau commence déjà à " + heureDebut);
+        }
         Creneau creneau = Creneau.builder()
                 .heureDebut(heureDebut)
                 .heureFin(heureFin)
                 .capaciteTotale(capacite != null ? capacite : 1)
                 .build();
         creneau = creneauRepository.save(creneau);
+        registreCapacite.suivreApresCommit(creneau.getId(), creneau.getCapaciteTotale());
+        calendrierService.ajouterCreneaux(List.of(creneau));
+        eventPublisher.publishEvent(CreneauxModifiesEvent.creneau(creneau.getHeureDebut()));
         return creneauMapper.toDTO(creneau);
     }
     
     /**
      * Génère des créneaux entre deux instants donnés
      */
+    @Transactional
     public List<CreneauDTO> generateCreneauxBetweenInstants(Instant debut, Instant fin, long dureeMinutes) {
         List<CreneauDTO> creneaux = new java.util.ArrayList<>();
         
@@ -0,0 +1,185 @@
+package com.garage.reservation.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garage.reservation.dto.CreneauDTO;
+import com.garage.reservation.mapper.ReservationMapper;
+import com.garage.reservation.model.FormatExport;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.repository.ReservationRepository;
+import com.garage.reservation.service.generation.CreneauxVirtuels;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Exports en flux des grandes plages de créneaux et de l'historique des réservations
+ *
+ * Les lignes sont lues par curseur JDBC (fetch size), converties une à une et écrites au fil de
+ * l'eau dans la réponse (tableau JSON ou NDJSON) : la mémoire utilisée ne dépend pas de la taille
+ * de la plage. La lecture s'exécute dans une transaction en lecture seule ouverte par le fil
+ * d'écriture de la réponse ; le contexte de persistance est vidé tous les TAILLE_LOT éléments.
+ * Avec les créneaux virtuels, ceux de la période sont calculés jour par jour et fusionnés au flux
+ * des créneaux en base, dans l'ordre des heures de début.
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    /** Nombre d'éléments entre deux envois au client (et vidages du contexte de persistance) */
+    private static final int TAILLE_LOT = 500;
+
+    private static final Comparator<CreneauDTO> ORDRE_CRENEAUX =
+            Comparator.comparing(CreneauDTO::getHeureDebut).thenComparing(CreneauDTO::getId);
+
+    private final CreneauRepository creneauRepository;
+    private final ReservationRepository reservationRepository;
+    private final ReservationMapper reservationMapper;
+    private final CreneauxVirtuels creneauxVirtuels;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionLecture;
+
+    public ExportService(CreneauRepository creneauRepository,
+                         ReservationRepository reservationRepository,
+                         ReservationMapper reservationMapper,
+                         CreneauxVirtuels creneauxVirtuels,
+                         ObjectMapper objectMapper,
+                         EntityManager entityManager,
+                         PlatformTransactionManager transactionManager) {
+        this.creneauRepository = creneauRepository;
+        this.reservationRepository = reservationRepository;
+        this.reservationMapper = reservationMapper;
+        this.creneauxVirtuels = creneauxVirtuels;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionLecture = new TransactionTemplate(transactionManager);
+        this.transactionLecture.setReadOnly(true);
+    }
+
+    /**
+     * Exporte les créneaux entre deux dates
+     * Lève IllegalArgumentException si la date de fin n'est pas postérieure à la date de début
+     */
+    public StreamingResponseBody exporterCreneaux(Instant dateDebut, Instant dateFin, boolean disponiblesOnly,
+                                                  FormatExport format) {
+        if (!dateFin.isAfter(dateDebut)) {
+            throw new IllegalArgumentException("La date de fin doit être postérieure à la date de début");
+        }
+        return sortie -> ecrire(sortie, format,
+                () -> fusionner(creneauRepository.streamCreneauxBetweenDates(dateDebut, dateFin, disponiblesOnly),
+                        creneauxVirtuels.flux(dateDebut, dateFin, disponiblesOnly)),
+                Function.identity(), false);
+    }
+
+    /**
+     * Exporte l'historique des réservations passées, de la plus récente à la plus ancienne
+     */
+    public StreamingResponseBody exporterReservationsPassees(FormatExport format) {
+        Instant maintenant = Instant.now();
+        return sortie -> ecrire(sortie, format,
+                () -> reservationRepository.streamReservationsPassees(maintenant),
+                reservationMapper::toDTO, true);
+    }
+
+    /**
+     * Fusionne deux flux de créneaux triés en un flux trié (ORDRE_CRENEAUX) ; la fermeture ferme les deux flux
+     */
+    private static Stream<CreneauDTO> fusionner(Stream<CreneauDTO> premier, Stream<CreneauDTO> second) {
+        Iterator<CreneauDTO> a = premier.iterator();
+        Iterator<CreneauDTO> b = second.iterator();
+        Iterator<CreneauDTO> fusion = new Iterator<>() {
+            private CreneauDTO prochainA;
+            private CreneauDTO prochainB;
+
+            @Override
+            public boolean hasNext() {
+                return prochainA != null || prochainB != null || a.hasNext() || b.hasNext();
+            }
+
+            @Override
+            public CreneauDTO next() {
+                if (prochainA == null && a.hasNext()) {
+                    prochainA = a.next();
+                }
+                if (prochainB == null && b.hasNext()) {
+                    prochainB = b.next();
+                }
+                if (prochainA == null && prochainB == null) {
+                    throw new NoSuchElementException();
+                }
+                CreneauDTO suivant;
+                if (prochainB == null || (prochainA != null && ORDRE_CRENEAUX.compare(prochainA, prochainB) <= 0)) {
+                    suivant = prochainA;
+                    prochainA = null;
+                } else {
+                    suivant = prochainB;
+                    prochainB = null;
+                }
+                return suivant;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(fusion, Spliterator.ORDERED), false)
+                .onClose(premier::close)
+                .onClose(second::close);
+    }
+
+    private <E> void ecrire(OutputStream sortie, FormatExport format, Supplier<Stream<E>> lecture,
+                            Function<E, ?> conversion, boolean viderContexte) {
+        long debut = System.nanoTime();
+        Long nombre = transactionLecture.execute(status -> {
+            try (Stream<E> lignes = lecture.get();
+                 JsonGenerator generateur = objectMapper.getFactory().createGenerator(sortie)) {
+                generateur.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generateur.setRootValueSeparator(null);
+                if (format == FormatExport.JSON) {
+                    generateur.writeStartArray();
+                }
+
+                long ecrits = 0;
+                Iterator<E> iterateur = lignes.iterator();
+                while (iterateur.hasNext()) {
+                    generateur.writeObject(conversion.apply(iterateur.next()));
+                    if (format == FormatExport.NDJSON) {
+                        generateur.writeRaw('\n');
+                    }
+                    ecrits++;
+                    // Premier élément envoyé immédiatement, puis par lots
+                    if (ecrits == 1 || ecrits % TAILLE_LOT == 0) {
+                        generateur.flush();
+                        if (viderContexte) {
+                            entityManager.clear();
+                        }
+                    }
+                }
+
+                if (format == FormatExport.JSON) {
+                    generateur.writeEndArray();
+                }
+                generateur.flush();
+                return ecrits;
+            } catch (IOException e) {
+                // Client déconnecté en cours d'export : la transaction de lecture est abandonnée
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.debug("📤 Export {} : {} éléments en {} ms", format, nombre, (System.nanoTime() - debut) / 1_000_000);
+    }
+}
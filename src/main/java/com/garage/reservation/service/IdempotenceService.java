@@ -0,0 +1,218 @@
+package com.garage.reservation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garage.reservation.dto.CreationReservationDTO;
+import com.garage.reservation.dto.ReservationDTO;
+import com.garage.reservation.mapper.ReservationMapper;
+import com.garage.reservation.model.CleIdempotence;
+import com.garage.reservation.repository.CleIdempotenceRepository;
+import com.garage.reservation.repository.ReservationRepository;
+import com.garage.reservation.service.capacite.StrategiesCapacite;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotence des créations de réservation (en-tête Idempotency-Key)
+ *
+ * Une requête rejouée avec la même clé renvoie la réservation d'origine sans reprendre de place :
+ * - les clés récentes sont gardées en mémoire (cache borné, expiration après la durée de validité)
+ * - chaque clé est enregistrée en base dans la transaction qui crée la réservation, ce qui
+ *   garantit l'idempotence après un redémarrage et entre plusieurs instances
+ * - les requêtes simultanées portant la même clé attendent le résultat de la première
+ */
+@Service
+@Slf4j
+public class IdempotenceService {
+
+    public static final int LONGUEUR_MAX_CLE = 255;
+
+    private final CleIdempotenceRepository cleIdempotenceRepository;
+    private final ReservationRepository reservationRepository;
+    private final ReservationMapper reservationMapper;
+    private final ObjectMapper objectMapper;
+    private final StrategiesCapacite strategiesCapacite;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate transactionLecture;
+    private final Duration dureeValidite;
+    private final long attenteMaxMs;
+
+    private final Cache<String, ReponseMemorisee> clesRecentes;
+    private final ConcurrentHashMap<String, RequeteEnCours> requetesEnCours = new ConcurrentHashMap<>();
+
+    public IdempotenceService(CleIdempotenceRepository cleIdempotenceRepository,
+                              ReservationRepository reservationRepository,
+                              ReservationMapper reservationMapper,
+                              ObjectMapper objectMapper,
+                              StrategiesCapacite strategiesCapacite,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${garage.reservation.idempotence.duree-validite-heures:24}") long dureeValiditeHeures,
+                              @Value("${garage.reservation.idempotence.taille-max:10000}") long tailleMax,
+                              @Value("${garage.reservation.idempotence.attente-max-ms:10000}") long attenteMaxMs) {
+        this.cleIdempotenceRepository = cleIdempotenceRepository;
+        this.reservationRepository = reservationRepository;
+        this.reservationMapper = reservationMapper;
+        this.objectMapper = objectMapper;
+        this.strategiesCapacite = strategiesCapacite;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionLecture = new TransactionTemplate(transactionManager);
+        this.transactionLecture.setReadOnly(true);
+        this.dureeValidite = Duration.ofHours(dureeValiditeHeures);
+        this.attenteMaxMs = attenteMaxMs;
+        this.clesRecentes = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(dureeValidite)
+                .build();
+    }
+
+    /**
+     * Exécute la création une seule fois par clé d'idempotence
+     * et renvoie la réservation d'origine pour toute requête rejouée
+     */
+    public ReservationDTO executer(String cle, CreationReservationDTO creationDTO, Supplier<ReservationDTO> creation) {
+        if (cle.isBlank() || cle.length() > LONGUEUR_MAX_CLE) {
+            throw new IllegalArgumentException("La clé d'idempotence doit contenir entre 1 et " + LONGUEUR_MAX_CLE + " caractères");
+        }
+        String empreinte = empreinte(creationDTO);
+
+        // 1. Clé récente : réponse mémorisée, sans accès base
+        ReponseMemorisee memorisee = clesRecentes.getIfPresent(cle);
+        if (memorisee != null) {
+            return memorisee.verifier(empreinte);
+        }
+
+        // 2. Même clé en cours de traitement : attendre son résultat
+        RequeteEnCours requete = new RequeteEnCours(empreinte);
+        RequeteEnCours existante = requetesEnCours.putIfAbsent(cle, requete);
+        if (existante != null) {
+            return attendre(cle, existante, empreinte);
+        }
+
+        try {
+            ReponseMemorisee reponse = chargerCle(cle).orElseGet(() -> creer(cle, empreinte, creation));
+            clesRecentes.put(cle, reponse);
+            requete.resultat.complete(reponse);
+            return reponse.verifier(empreinte);
+        } catch (RuntimeException e) {
+            requete.resultat.completeExceptionally(e);
+            throw e;
+        } finally {
+            requetesEnCours.remove(cle, requete);
+        }
+    }
+
+    /**
+     * Crée la réservation et enregistre la clé dans la même transaction
+     */
+    private ReponseMemorisee creer(String cle, String empreinte, Supplier<ReservationDTO> creation) {
+        try {
+            // Rejouée entière (clé comprise) après un conflit de version sur le créneau
+            return strategiesCapacite.rejouerSurConflit(() -> transactionTemplate.execute(status -> {
+                cleIdempotenceRepository.deleteExpiree(cle, Instant.now().minus(dureeValidite));
+                ReservationDTO reservation = creation.get();
+                cleIdempotenceRepository.saveAndFlush(CleIdempotence.builder()
+                        .cle(cle)
+                        .empreinte(empreinte)
+                        .reservationId(reservation.getId())
+                        .dateCreation(Instant.now())
+                        .build());
+                return new ReponseMemorisee(empreinte, reservation);
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // Clé enregistrée entre-temps par une autre instance : sa réservation fait foi
+            log.debug("Clé d'idempotence {} déjà enregistrée par une requête concurrente", cle);
+            return chargerCle(cle).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Recherche une clé non expirée en base et la réservation associée
+     */
+    private Optional<ReponseMemorisee> chargerCle(String cle) {
+        return transactionLecture.execute(status -> cleIdempotenceRepository.findById(cle)
+                .filter(cleIdempotence -> cleIdempotence.getDateCreation().isAfter(Instant.now().minus(dureeValidite)))
+                .flatMap(cleIdempotence -> reservationRepository.findById(cleIdempotence.getReservationId())
+                        .map(reservation -> new ReponseMemorisee(cleIdempotence.getEmpreinte(), reservationMapper.toDTO(reservation)))));
+    }
+
+    private ReservationDTO attendre(String cle, RequeteEnCours requete, String empreinte) {
+        if (!requete.empreinte.equals(empreinte)) {
+            throw new IllegalArgumentException("La clé d'idempotence est déjà utilisée par une requête différente");
+        }
+        try {
+            return requete.resultat.get(attenteMaxMs, TimeUnit.MILLISECONDS).verifier(empreinte);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Échec de la requête d'origine pour la clé d'idempotence " + cle, e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Une requête avec la même clé d'idempotence est en cours de traitement");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Attente de la requête d'origine interrompue");
+        }
+    }
+
+    /**
+     * Purge les clés expirées
+     */
+    @Scheduled(fixedDelayString = "${garage.reservation.idempotence.purge-ms:3600000}",
+               initialDelayString = "${garage.reservation.idempotence.purge-ms:3600000}")
+    public void purgerClesExpirees() {
+        Integer supprimees = transactionTemplate.execute(status ->
+                cleIdempotenceRepository.deleteByDateCreationBefore(Instant.now().minus(dureeValidite)));
+        if (supprimees != null && supprimees > 0) {
+            log.info("🧹 {} clés d'idempotence expirées supprimées", supprimees);
+        }
+    }
+
+    private String empreinte(CreationReservationDTO creationDTO) {
+        try {
+            byte[] corps = objectMapper.writeValueAsString(creationDTO).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(corps));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Impossible de calculer l'empreinte de la requête", e);
+        }
+    }
+
+    private record ReponseMemorisee(String empreinte, ReservationDTO reservation) {
+
+        ReservationDTO verifier(String empreinteRequete) {
+            if (!empreinte.equals(empreinteRequete)) {
+                throw new IllegalArgumentException("La clé d'idempotence a déjà été utilisée pour une requête différente");
+            }
+            return reservation;
+        }
+    }
+
+    private static final class RequeteEnCours {
+        private final String empreinte;
+        private final CompletableFuture<ReponseMemorisee> resultat = new CompletableFuture<>();
+
+        private RequeteEnCours(String empreinte) {
+            this.empreinte = empreinte;
+        }
+    }
+}
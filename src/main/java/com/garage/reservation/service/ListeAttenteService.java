@@ -0,0 +1,245 @@
+package com.garage.reservation.service;
+
+import com.garage.reservation.config.routage.ContexteRoutage;
+import com.garage.reservation.dto.CreationReservationDTO;
+import com.garage.reservation.dto.InscriptionAttenteDTO;
+import com.garage.reservation.mapper.InscriptionAttenteMapper;
+import com.garage.reservation.model.InscriptionAttente;
+import com.garage.reservation.model.Reservation;
+import com.garage.reservation.model.StatutInscriptionAttente;
+import com.garage.reservation.model.StatutReservation;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.repository.InscriptionAttenteRepository;
+import com.garage.reservation.repository.PositionAttente;
+import com.garage.reservation.repository.ReservationRepository;
+import com.garage.reservation.service.generation.MaterialisationCreneaux;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Listes d'attente des créneaux complets
+ *
+ * Les inscriptions sont enregistrées en base et reflétées en mémoire par une file FIFO
+ * par créneau (identifiants seulement). Lorsqu'une réservation est annulée, la tête de file
+ * est promue dans la même transaction : sa réservation reprend directement la place libérée.
+ * Il en va de même pour la place d'une retenue abandonnée ou expirée. Inscription et libération
+ * prennent d'abord le verrou de la ligne du créneau : une inscription voit la place libérée par une
+ * libération validée, une libération voit la file complète.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+@Slf4j
+public class ListeAttenteService {
+
+    private final InscriptionAttenteRepository inscriptionAttenteRepository;
+    private final CreneauRepository creneauRepository;
+    private final ReservationRepository reservationRepository;
+    private final InscriptionAttenteMapper inscriptionAttenteMapper;
+    private final MaterialisationCreneaux materialisationCreneaux;
+
+    private final Map<Long, ArrayDeque<Long>> files = new ConcurrentHashMap<>();
+
+    /**
+     * Inscrit un véhicule en liste d'attente d'un créneau complet
+     * Lève IllegalArgumentException si le créneau n'existe pas,
+     * IllegalStateException s'il reste des places (la réservation directe est alors possible)
+     */
+    public InscriptionAttenteDTO inscrire(CreationReservationDTO creationDTO) {
+        if (creationDTO.getRetenueId() != null) {
+            throw new IllegalArgumentException("Une retenue ne peut pas être placée en liste d'attente");
+        }
+
+        // Un créneau virtuel pas encore matérialisé n'a aucune réservation : il a encore des places
+        Long creneauId = materialisationCreneaux.identifiantExistant(creationDTO.getCreneauId())
+                .orElseThrow(() -> new IllegalStateException("Le créneau a encore des places disponibles"));
+        // Verrou du créneau jusqu'à la validation : une annulation concurrente libère sa place avant
+        // la vérification ci-dessous, ou consulte la file après l'ajout de l'inscription
+        if (creneauRepository.verrouiller(creneauId) == 0) {
+            throw new IllegalArgumentException("Le créneau spécifié n'existe pas");
+        }
+        if (Boolean.TRUE.equals(creneauRepository.isCreneauReallyAvailable(creneauId))) {
+            throw new IllegalStateException("Le créneau a encore des places disponibles");
+        }
+
+        InscriptionAttente inscription = inscriptionAttenteMapper.toEntity(creationDTO);
+        inscription.setCreneau(creneauRepository.getReferenceById(creneauId));
+        inscription = inscriptionAttenteRepository.save(inscription);
+
+        // En file dès maintenant, sous le verrou (retirée si la transaction est annulée)
+        Long inscriptionId = inscription.getId();
+        ajouterEnQueue(creneauId, inscriptionId);
+        apresAnnulation(() -> retirerDeLaFile(creneauId, inscriptionId));
+
+        InscriptionAttenteDTO inscriptionDTO = inscriptionAttenteMapper.toDTO(inscription);
+        inscriptionDTO.setPosition(position(creneauId, inscriptionId));
+        return inscriptionDTO;
+    }
+
+    /**
+     * Récupère une inscription et son rang dans la file
+     */
+    @Transactional(readOnly = true)
+    public Optional<InscriptionAttenteDTO> getInscription(Long id) {
+        return inscriptionAttenteRepository.findById(id)
+                .map(inscription -> {
+                    InscriptionAttenteDTO inscriptionDTO = inscriptionAttenteMapper.toDTO(inscription);
+                    if (inscription.getStatut() == StatutInscriptionAttente.EN_ATTENTE) {
+                        inscriptionDTO.setPosition(position(inscriptionDTO.getCreneauId(), id));
+                    }
+                    return inscriptionDTO;
+                });
+    }
+
+    /**
+     * Retire une inscription de la liste d'attente
+     * Retourne false si elle n'existe pas, lève IllegalStateException si elle a déjà été promue
+     */
+    public boolean retirer(Long id) {
+        Optional<InscriptionAttente> inscriptionOpt = inscriptionAttenteRepository.findById(id);
+        if (inscriptionOpt.isEmpty()) {
+            return false;
+        }
+
+        Long creneauId = inscriptionOpt.get().getCreneau().getId();
+        if (inscriptionAttenteRepository.deleteByIdAndStatut(id, StatutInscriptionAttente.EN_ATTENTE) == 0) {
+            throw new IllegalStateException("L'inscription a déjà été promue en réservation");
+        }
+        apresCommit(() -> retirerDeLaFile(creneauId, id));
+        return true;
+    }
+
+    /**
+     * Promeut la tête de la file d'attente du créneau sur la place qui vient de se libérer
+     * (dans la transaction de l'annulation : le compteur du créneau reste inchangé)
+     * Retourne la réservation créée, ou vide si personne n'attend
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<Reservation> promouvoir(Long creneauId) {
+        Long inscriptionId;
+        while ((inscriptionId = retirerTete(creneauId)) != null) {
+            // Verrou sur l'inscription : un retrait concurrent attend la fin de la promotion
+            Optional<InscriptionAttente> inscriptionOpt = inscriptionAttenteRepository.findByIdForUpdate(inscriptionId);
+            if (inscriptionOpt.isEmpty() || inscriptionOpt.get().getStatut() != StatutInscriptionAttente.EN_ATTENTE) {
+                // Retirée entre-temps : passer à la suivante
+                continue;
+            }
+
+            Long promueId = inscriptionId;
+            apresAnnulation(() -> remettreEnTete(creneauId, promueId));
+
+            InscriptionAttente inscription = inscriptionOpt.get();
+            Reservation reservation = inscriptionAttenteMapper.toReservation(inscription);
+            reservation.setCreneau(inscription.getCreneau());
+            reservation.setStatut(StatutReservation.RESERVEE);
+            reservation = reservationRepository.save(reservation);
+
+            inscription.setStatut(StatutInscriptionAttente.PROMUE);
+            inscription.setReservationId(reservation.getId());
+
+            log.info("⏫ Inscription {} promue sur le créneau {} (réservation {})", promueId, creneauId, reservation.getId());
+            return Optional.of(reservation);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Reconstruit les files d'attente à partir de la base principale au démarrage
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reconstruire() {
+        files.clear();
+        List<PositionAttente> positions = ContexteRoutage.surPrincipale(
+                () -> inscriptionAttenteRepository.findPositions(StatutInscriptionAttente.EN_ATTENTE));
+        positions.forEach(p -> ajouterEnQueue(p.creneauId(), p.inscriptionId()));
+        if (!positions.isEmpty()) {
+            log.info("📋 Listes d'attente reconstruites : {} inscriptions sur {} créneaux", positions.size(), files.size());
+        }
+    }
+
+    private void ajouterEnQueue(Long creneauId, Long inscriptionId) {
+        files.compute(creneauId, (id, file) -> {
+            ArrayDeque<Long> resultat = file != null ? file : new ArrayDeque<>();
+            resultat.addLast(inscriptionId);
+            return resultat;
+        });
+    }
+
+    private void remettreEnTete(Long creneauId, Long inscriptionId) {
+        files.compute(creneauId, (id, file) -> {
+            ArrayDeque<Long> resultat = file != null ? file : new ArrayDeque<>();
+            resultat.addFirst(inscriptionId);
+            return resultat;
+        });
+    }
+
+    private Long retirerTete(Long creneauId) {
+        Long[] tete = new Long[1];
+        files.computeIfPresent(creneauId, (id, file) -> {
+            tete[0] = file.pollFirst();
+            return file.isEmpty() ? null : file;
+        });
+        return tete[0];
+    }
+
+    private void retirerDeLaFile(Long creneauId, Long inscriptionId) {
+        files.computeIfPresent(creneauId, (id, file) -> {
+            file.remove(inscriptionId);
+            return file.isEmpty() ? null : file;
+        });
+    }
+
+    private Integer position(Long creneauId, Long inscriptionId) {
+        Integer[] position = new Integer[1];
+        files.computeIfPresent(creneauId, (id, file) -> {
+            int rang = 1;
+            for (Long enAttente : file) {
+                if (enAttente.equals(inscriptionId)) {
+                    position[0] = rang;
+                    break;
+                }
+                rang++;
+            }
+            return file;
+        });
+        return position[0];
+    }
+
+    private static void apresCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void apresAnnulation(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,165 @@
+package com.garage.reservation.service;
+
+import com.garage.reservation.dto.JourFerieDTO;
+import com.garage.reservation.dto.ModeleHoraireDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.mapper.ModeleHoraireMapper;
+import com.garage.reservation.model.JourFerie;
+import com.garage.reservation.model.ModeleHoraire;
+import com.garage.reservation.repository.JourFerieRepository;
+import com.garage.reservation.repository.ModeleHoraireRepository;
+import com.garage.reservation.service.generation.ReglesHoraires;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Modèles d'horaires par jour de la semaine et jours fériés, lus par la génération des créneaux
+ * Une modification ne touche pas les créneaux existants : elle s'applique aux créneaux générés ensuite
+ * et aux créneaux virtuels (signalée aux caches comme une modification de tous les créneaux)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class ModeleHoraireService {
+
+    private final ModeleHoraireRepository modeleHoraireRepository;
+    private final JourFerieRepository jourFerieRepository;
+    private final ModeleHoraireMapper modeleHoraireMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Modèles des jours ouverts, du lundi au dimanche
+     */
+    public List<ModeleHoraireDTO> getModeles() {
+        return modeleHoraireRepository.findAll().stream()
+                .sorted(Comparator.comparing(ModeleHoraire::getJourSemaine))
+                .map(modeleHoraireMapper::toDTO)
+                .toList();
+    }
+
+    /**
+     * Instantané des règles horaires courantes (modèles et jours fériés)
+     */
+    public ReglesHoraires getRegles() {
+        return new ReglesHoraires(modeleHoraireRepository.findAll(), jourFerieRepository.findAll());
+    }
+
+    /**
+     * Crée ou remplace le modèle d'un jour de la semaine
+     * Lève IllegalArgumentException si les horaires sont incohérents
+     */
+    @Transactional
+    public ModeleHoraireDTO enregistrerModele(DayOfWeek jourSemaine, ModeleHoraireDTO modeleDTO) {
+        validerHoraires(modeleDTO);
+        ModeleHoraire modele = modeleHoraireRepository.findByJourSemaine(jourSemaine)
+                .orElseGet(() -> ModeleHoraire.builder().jourSemaine(jourSemaine).build());
+        modeleHoraireMapper.mettreAJour(modeleDTO, modele);
+        log.info("🕗 Modèle d'horaires enregistré pour {} : {}-{}", jourSemaine,
+                modele.getHeureOuverture(), modele.getHeureFermeture());
+        modele = modeleHoraireRepository.save(modele);
+        eventPublisher.publishEvent(CreneauxModifiesEvent.tous());
+        return modeleHoraireMapper.toDTO(modele);
+    }
+
+    /**
+     * Ferme un jour de la semaine (plus aucun créneau généré ce jour-là)
+     */
+    @Transactional
+    public boolean supprimerModele(DayOfWeek jourSemaine) {
+        return modeleHoraireRepository.findByJourSemaine(jourSemaine)
+                .map(modele -> {
+                    modeleHoraireRepository.delete(modele);
+                    eventPublisher.publishEvent(CreneauxModifiesEvent.tous());
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * Jours fériés d'une année avec leur date (fêtes mobiles calculées), dans l'ordre chronologique
+     */
+    public List<JourFerieDTO> getJoursFeries(int annee) {
+        return jourFerieRepository.findAll().stream()
+                .filter(jourFerie -> jourFerie.dateEn(annee) != null)
+                .map(jourFerie -> {
+                    JourFerieDTO jourFerieDTO = modeleHoraireMapper.toDTO(jourFerie);
+                    jourFerieDTO.setDate(jourFerie.dateEn(annee));
+                    return jourFerieDTO;
+                })
+                .sorted(Comparator.comparing(JourFerieDTO::getDate))
+                .toList();
+    }
+
+    /**
+     * Ajoute un jour férié : date fixe (mois et jour) ou fête mobile (décalage par rapport à Pâques)
+     * Lève IllegalArgumentException si la règle est incomplète ou ambiguë
+     */
+    @Transactional
+    public JourFerieDTO ajouterJourFerie(JourFerieDTO jourFerieDTO) {
+        boolean dateFixe = jourFerieDTO.getMois() != null || jourFerieDTO.getJour() != null;
+        boolean feteMobile = jourFerieDTO.getDecalagePaques() != null;
+        if (dateFixe == feteMobile) {
+            throw new IllegalArgumentException("Un jour férié a soit un mois et un jour, soit un décalage par rapport à Pâques");
+        }
+        if (dateFixe) {
+            if (jourFerieDTO.getMois() == null || jourFerieDTO.getJour() == null) {
+                throw new IllegalArgumentException("Un jour férié à date fixe a un mois et un jour");
+            }
+            try {
+                // 2024 est bissextile : le 29 février est accepté
+                LocalDate.of(2024, jourFerieDTO.getMois(), jourFerieDTO.getJour());
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException("Date invalide : " + jourFerieDTO.getJour() + "/" + jourFerieDTO.getMois());
+            }
+        }
+        JourFerie jourFerie = jourFerieRepository.save(modeleHoraireMapper.toEntity(jourFerieDTO));
+        eventPublisher.publishEvent(CreneauxModifiesEvent.tous());
+        log.info("📅 Jour férié ajouté : {}", jourFerie.getLibelle());
+        return modeleHoraireMapper.toDTO(jourFerie);
+    }
+
+    /**
+     * Supprime un jour férié ; false s'il n'existe pas
+     */
+    @Transactional
+    public boolean supprimerJourFerie(Long id) {
+        if (!jourFerieRepository.existsById(id)) {
+            return false;
+        }
+        jourFerieRepository.deleteById(id);
+        eventPublisher.publishEvent(CreneauxModifiesEvent.tous());
+        return true;
+    }
+
+    private static void validerHoraires(ModeleHoraireDTO modeleDTO) {
+        LocalTime ouverture = modeleDTO.getHeureOuverture();
+        LocalTime fermeture = modeleDTO.getHeureFermeture();
+        if (!ouverture.isBefore(fermeture)) {
+            throw new IllegalArgumentException("L'heure d'ouverture doit précéder l'heure de fermeture");
+        }
+        if ((modeleDTO.getPauseDebut() == null) != (modeleDTO.getPauseFin() == null)) {
+            throw new IllegalArgumentException("La pause doit avoir un début et une fin");
+        }
+        if (modeleDTO.getPauseDebut() != null
+                && (!modeleDTO.getPauseDebut().isBefore(modeleDTO.getPauseFin())
+                    || modeleDTO.getPauseDebut().isBefore(ouverture)
+                    || modeleDTO.getPauseFin().isAfter(fermeture))) {
+            throw new IllegalArgumentException("La pause doit être comprise entre l'ouverture et la fermeture");
+        }
+        if (modeleDTO.getDureeMinutes() > ouverture.until(fermeture, ChronoUnit.MINUTES)) {
+            throw new IllegalArgumentException("La durée des créneaux dépasse l'amplitude d'ouverture");
+        }
+    }
+}
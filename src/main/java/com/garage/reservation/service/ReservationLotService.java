@@ -0,0 +1,238 @@
+package com.garage.reservation.service;
+
+import com.garage.reservation.dto.CreationReservationDTO;
+import com.garage.reservation.dto.CreationReservationsLotDTO;
+import com.garage.reservation.dto.ResultatLotDTO;
+import com.garage.reservation.dto.ResultatReservationLotDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.mapper.ReservationMapper;
+import com.garage.reservation.model.ModeLot;
+import com.garage.reservation.model.Reservation;
+import com.garage.reservation.model.StatutReservation;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.repository.PlacesRestantes;
+import com.garage.reservation.repository.ReservationRepository;
+import com.garage.reservation.service.capacite.RegistreCapacite;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Réservations par lot (flottes de taxis, loueurs)
+ * 
+ * La capacité de tous les créneaux visés est lue en une seule requête, les places sont prises
+ * par une mise à jour conditionnelle par créneau, puis les réservations sont insérées par
+ * lots JDBC (identifiants issus de la séquence reservations_seq).
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+@Slf4j
+public class ReservationLotService {
+    
+    private static final String ERREUR_CRENEAU_INEXISTANT = "Le créneau spécifié n'existe pas";
+    private static final String ERREUR_CAPACITE = "Le créneau n'est plus disponible (capacité atteinte)";
+    private static final String ERREUR_LOT_ANNULE = "Réservation non créée : une autre réservation du lot a échoué (mode tout ou rien)";
+    
+    private final ReservationRepository reservationRepository;
+    private final CreneauRepository creneauRepository;
+    private final ReservationMapper reservationMapper;
+    private final RegistreCapacite registreCapacite;
+    private final CalendrierService calendrierService;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    /**
+     * Crée un lot de réservations
+     * - TOUT_OU_RIEN : aucune réservation n'est créée si l'une d'elles échoue
+     * - MEILLEUR_EFFORT : les réservations possibles sont créées, les autres sont signalées en échec
+     */
+    public ResultatLotDTO createReservations(CreationReservationsLotDTO lotDTO) {
+        List<CreationReservationDTO> demandes = lotDTO.getReservations();
+        ModeLot mode = lotDTO.getMode() != null ? lotDTO.getMode() : ModeLot.TOUT_OU_RIEN;
+        String[] erreurs = new String[demandes.size()];
+        
+        // Validation individuelle et regroupement par créneau (ordre croissant des IDs pour
+        // que deux lots concurrents verrouillent toujours les créneaux dans le même ordre)
+        Map<Long, List<Integer>> demandesParCreneau = new TreeMap<>();
+        for (int i = 0; i < demandes.size(); i++) {
+            erreurs[i] = valider(demandes.get(i));
+            if (erreurs[i] == null) {
+                demandesParCreneau.computeIfAbsent(demandes.get(i).getCreneauId(), id -> new ArrayList<>()).add(i);
+            }
+        }
+        
+        // Capacité de tous les créneaux visés en une seule requête
+        Map<Long, Integer> placesRestantes = demandesParCreneau.isEmpty() ? Map.of() :
+                creneauRepository.findPlacesRestantes(demandesParCreneau.keySet())
+                        .stream()
+                        .collect(Collectors.toMap(PlacesRestantes::creneauId, PlacesRestantes::places));
+        
+        // Mode tout ou rien : échouer avant toute écriture si la capacité lue ne suffit pas
+        if (mode == ModeLot.TOUT_OU_RIEN) {
+            demandesParCreneau.forEach((creneauId, index) -> {
+                Integer restantes = placesRestantes.get(creneauId);
+                if (restantes == null || restantes < index.size()) {
+                    index.forEach(i -> erreurs[i] = restantes == null ? ERREUR_CRENEAU_INEXISTANT : ERREUR_CAPACITE);
+                }
+            });
+            if (contientErreur(erreurs)) {
+                return resultatEchec(mode, erreurs);
+            }
+        }
+        
+        // Prise des places, une mise à jour conditionnelle par créneau
+        Map<Long, Integer> placesPrises = new TreeMap<>();
+        for (Map.Entry<Long, List<Integer>> entree : demandesParCreneau.entrySet()) {
+            Long creneauId = entree.getKey();
+            List<Integer> index = entree.getValue();
+            Integer restantes = placesRestantes.get(creneauId);
+            if (restantes == null) {
+                index.forEach(i -> erreurs[i] = ERREUR_CRENEAU_INEXISTANT);
+                continue;
+            }
+            
+            int obtenues = prendrePlaces(creneauId, Math.min(index.size(), Math.max(0, restantes)), mode);
+            if (obtenues > 0) {
+                placesPrises.put(creneauId, obtenues);
+            }
+            for (int k = obtenues; k < index.size(); k++) {
+                erreurs[index.get(k)] = ERREUR_CAPACITE;
+            }
+        }
+        
+        if (mode == ModeLot.TOUT_OU_RIEN && contientErreur(erreurs)) {
+            // La capacité a changé entre la lecture et la mise à jour : annuler les places déjà prises
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return resultatEchec(mode, erreurs);
+        }
+        calendrierService.ajouterReservations(placesPrises);
+        
+        // Insertion des réservations (regroupées en lots JDBC au flush)
+        List<Reservation> reservations = new ArrayList<>();
+        List<Integer> indexCrees = new ArrayList<>();
+        for (int i = 0; i < demandes.size(); i++) {
+            if (erreurs[i] == null) {
+                CreationReservationDTO demande = demandes.get(i);
+                Reservation reservation = reservationMapper.toEntity(demande);
+                reservation.setCreneau(creneauRepository.getReferenceById(demande.getCreneauId()));
+                reservation.setStatut(StatutReservation.RESERVEE);
+                reservations.add(reservation);
+                indexCrees.add(i);
+            }
+        }
+        reservationRepository.saveAll(reservations);
+        
+        List<ResultatReservationLotDTO> resultats = new ArrayList<>(demandes.size());
+        for (int i = 0; i < demandes.size(); i++) {
+            resultats.add(ResultatReservationLotDTO.builder().index(i).succes(false).erreur(erreurs[i]).build());
+        }
+        for (int k = 0; k < reservations.size(); k++) {
+            ResultatReservationLotDTO resultat = resultats.get(indexCrees.get(k));
+            resultat.setSucces(true);
+            resultat.setReservation(reservationMapper.toDTO(reservations.get(k)));
+        }
+        resultats.stream()
+                .filter(ResultatReservationLotDTO::getSucces)
+                .map(r -> r.getReservation().getCreneau().getHeureDebut())
+                .distinct()
+                .forEach(heureDebut -> eventPublisher.publishEvent(CreneauxModifiesEvent.creneau(heureDebut)));
+        
+        log.info("📦 Lot de réservations ({}) : {}/{} créées", mode, reservations.size(), demandes.size());
+        return ResultatLotDTO.builder()
+                .mode(mode)
+                .nombreDemandees(demandes.size())
+                .nombreCreees(reservations.size())
+                .nombreEchecs(demandes.size() - reservations.size())
+                .resultats(resultats)
+                .build();
+    }
+    
+    /**
+     * Prend jusqu'à nombre places sur le créneau et retourne le nombre de places obtenues
+     */
+    private int prendrePlaces(Long creneauId, int nombre, ModeLot mode) {
+        if (nombre <= 0) {
+            return 0;
+        }
+        
+        RegistreCapacite.Permis permis;
+        try {
+            permis = registreCapacite.acquerir(creneauId, mode == ModeLot.TOUT_OU_RIEN ? nombre : 0, nombre);
+        } catch (IllegalStateException e) {
+            return 0;
+        }
+        
+        int aPrendre = permis.getPlaces();
+        int obtenues = 0;
+        if (aPrendre > 0) {
+            if (creneauRepository.occuperPlaces(creneauId, aPrendre) == 1) {
+                obtenues = aPrendre;
+            } else if (mode == ModeLot.MEILLEUR_EFFORT) {
+                // Des places ont été prises depuis la lecture : les prendre une à une jusqu'à saturation
+                while (obtenues < aPrendre && creneauRepository.occuperPlace(creneauId) == 1) {
+                    obtenues++;
+                }
+            }
+        }
+        
+        registreCapacite.confirmer(permis, obtenues);
+        return obtenues;
+    }
+    
+    private String valider(CreationReservationDTO demande) {
+        if (demande == null) {
+            return "Réservation vide";
+        }
+        if (demande.getRetenueId() != null) {
+            return "Les retenues ne peuvent pas être converties dans un lot";
+        }
+        Set<ConstraintViolation<CreationReservationDTO>> violations = validator.validate(demande);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+    
+    private static boolean contientErreur(String[] erreurs) {
+        for (String erreur : erreurs) {
+            if (erreur != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static ResultatLotDTO resultatEchec(ModeLot mode, String[] erreurs) {
+        List<ResultatReservationLotDTO> resultats = new ArrayList<>(erreurs.length);
+        for (int i = 0; i < erreurs.length; i++) {
+            resultats.add(ResultatReservationLotDTO.builder()
+                    .index(i)
+                    .succes(false)
+                    .erreur(erreurs[i] != null ? erreurs[i] : ERREUR_LOT_ANNULE)
+                    .build());
+        }
+        return ResultatLotDTO.builder()
+                .mode(mode)
+                .nombreDemandees(erreurs.length)
+                .nombreCreees(0)
+                .nombreEchecs(erreurs.length)
+                .resultats(resultats)
+                .build();
+    }
+}
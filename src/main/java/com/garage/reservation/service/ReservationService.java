@@ -1,21 +1,34 @@
 package com.garage.reservation.service;
 
 import com.garage.reservation.dto.CreationReservationDTO;
+import com.garage.reservation.dto.PageCurseurDTO;
 import com.garage.reservation.dto.ReservationDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
 import com.garage.reservation.mapper.ReservationMapper;
-import com.garage.reservation.model.Creneau;
 import com.garage.reservation.model.Reservation;
 import com.garage.reservation.model.StatutReservation;
 import com.garage.reservation.repository.CreneauRepository;
 import com.garage.reservation.repository.ReservationRepository;
+import com.garage.reservation.service.capacite.RegistreCapacite;
+import com.garage.reservation.service.capacite.StrategieCapacite;
+import com.garage.reservation.service.capacite.StrategiesCapacite;
+import com.garage.reservation.service.capacite.TypeStrategieCapacite;
+import com.garage.reservation.util.CurseurPagination;
+import com.garage.reservation.util.CurseurPagination.Position;
 import com.garage.reservation.util.DateTimeUtil;
+import com.garage.reservation.util.NormalisationContact;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,51 +36,106 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ReservationService {
     
+    /** Longueur minimale d'un préfixe de recherche (un seul caractère parcourrait une grande partie de l'index) */
+    private static final int PREFIXE_MIN = 2;
+    
     private final ReservationRepository reservationRepository;
     private final ReservationMapper reservationMapper;
     private final CreneauRepository creneauRepository;
+    private final StrategiesCapacite strategiesCapacite;
+    private final RegistreCapacite registreCapacite;
+    private final RetenueService retenueService;
+    private final ListeAttenteService listeAttenteService;
+    private final CalendrierService calendrierService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
     
     /**
-     * Récupère toutes les réservations
+     * Récupère une page de réservations (pagination par curseur)
      */
-    public List<ReservationDTO> getAllReservations() {
-        return reservationRepository.findAll()
-                .stream()
-                .map(reservationMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public PageCurseurDTO<ReservationDTO> getAllReservations(String curseur, Integer taille, boolean avecTotal) {
+        Position position = CurseurPagination.decoder(curseur, CurseurPagination.DEBUT_CROISSANT);
+        int tailleEffective = CurseurPagination.taille(taille);
+        return page(reservationRepository.findPageReservations(position.heureDebut(), position.id(), Limit.of(tailleEffective + 1)),
+                tailleEffective, avecTotal, reservationRepository::count);
     }
     
     /**
      * Récupère une réservation par son ID
      */
+    @Transactional(readOnly = true)
     public Optional<ReservationDTO> getReservationById(Long id) {
         return reservationRepository.findById(id)
                 .map(reservationMapper::toDTO);
     }
     
     /**
-     * Récupère les réservations par immatriculation
+     * Récupère une page de réservations par immatriculation (quelle que soit sa saisie : casse, tirets, espaces)
      */
-    public List<ReservationDTO> getReservationsByImmatriculation(String immatriculation) {
-        return reservationRepository.findByImmatriculation(immatriculation)
-                .stream()
-                .map(reservationMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public PageCurseurDTO<ReservationDTO> getReservationsByImmatriculation(String immatriculation,
+                                                                          String curseur, Integer taille, boolean avecTotal) {
+        String cle = NormalisationContact.immatriculation(immatriculation);
+        Position position = CurseurPagination.decoder(curseur, CurseurPagination.DEBUT_CROISSANT);
+        int tailleEffective = CurseurPagination.taille(taille);
+        return page(reservationRepository.findPageByImmatriculation(cle, position.heureDebut(), position.id(),
+                        Limit.of(tailleEffective + 1)),
+                tailleEffective, avecTotal, () -> reservationRepository.countByImmatriculationNormalisee(cle));
     }
     
     /**
-     * Récupère les réservations par numéro de téléphone
+     * Récupère une page de réservations par numéro de téléphone (local, +689 ou international)
      */
-    public List<ReservationDTO> getReservationsByPhone(String numeroTelephone) {
-        return reservationRepository.findByNumeroTelephone(numeroTelephone)
-                .stream()
-                .map(reservationMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public PageCurseurDTO<ReservationDTO> getReservationsByPhone(String numeroTelephone,
+                                                                String curseur, Integer taille, boolean avecTotal) {
+        String cle = NormalisationContact.telephone(numeroTelephone);
+        Position position = CurseurPagination.decoder(curseur, CurseurPagination.DEBUT_CROISSANT);
+        int tailleEffective = CurseurPagination.taille(taille);
+        return page(reservationRepository.findPageByNumeroTelephone(cle, position.heureDebut(), position.id(),
+                        Limit.of(tailleEffective + 1)),
+                tailleEffective, avecTotal, () -> reservationRepository.countByTelephoneNormalise(cle));
+    }
+    
+    /**
+     * Recherche par début d'immatriculation ou de numéro de téléphone (saisie au guichet)
+     * Lève IllegalArgumentException si aucun ou les deux critères sont fournis, ou si le préfixe
+     * normalisé compte moins de PREFIXE_MIN caractères significatifs (chiffres après l'indicatif pour un téléphone)
+     */
+    @Transactional(readOnly = true)
+    public PageCurseurDTO<ReservationDTO> rechercherReservations(String immatriculation, String telephone,
+                                                                String curseur, Integer taille, boolean avecTotal) {
+        if ((immatriculation == null) == (telephone == null)) {
+            throw new IllegalArgumentException("Indiquer soit une immatriculation, soit un numéro de téléphone");
+        }
+        Position position = CurseurPagination.decoder(curseur, CurseurPagination.DEBUT_CROISSANT);
+        int tailleEffective = CurseurPagination.taille(taille);
+        
+        if (immatriculation != null) {
+            String prefixe = NormalisationContact.immatriculation(immatriculation);
+            if (prefixe.length() < PREFIXE_MIN) {
+                throw new IllegalArgumentException("Saisir au moins " + PREFIXE_MIN + " caractères de l'immatriculation");
+            }
+            return page(reservationRepository.findPageByImmatriculationPrefixe(prefixe + "%", position.heureDebut(),
+                            position.id(), Limit.of(tailleEffective + 1)),
+                    tailleEffective, avecTotal, () -> reservationRepository.countByImmatriculationNormaliseeStartingWith(prefixe));
+        }
+        
+        String prefixe = NormalisationContact.telephone(telephone);
+        // Chiffres de l'abonné seulement : "00" ou "0" donnent "+" ou "+33", qui couvrent tout un pays
+        if (NormalisationContact.chiffresApresIndicatif(prefixe) < PREFIXE_MIN) {
+            throw new IllegalArgumentException("Saisir au moins " + PREFIXE_MIN + " chiffres du numéro de téléphone après l'indicatif");
+        }
+        return page(reservationRepository.findPageByTelephonePrefixe(prefixe + "%", position.heureDebut(),
+                        position.id(), Limit.of(tailleEffective + 1)),
+                tailleEffective, avecTotal, () -> reservationRepository.countByTelephoneNormaliseStartingWith(prefixe));
     }
     
     /**
      * Récupère les réservations d'un jour donné
      */
+    @Transactional(readOnly = true)
     public List<ReservationDTO> getReservationsByDate(Instant date) {
         Instant debutJour = DateTimeUtil.getStartOfDay(date);
         Instant finJour = DateTimeUtil.getStartOfNextDay(date);
@@ -80,6 +148,7 @@ public class ReservationService {
     /**
      * Récupère les réservations d'une semaine donnée (du lundi au dimanche)
      */
+    @Transactional(readOnly = true)
     public List<ReservationDTO> getReservationsByWeek(Instant date) {
         Instant debutSemaine = DateTimeUtil.getStartOfWeek(date);
         Instant finSemaine = DateTimeUtil.getStartOfNextWeek(date);
@@ -90,63 +159,89 @@ public class ReservationService {
     }
     
     /**
-     * Récupère les réservations futures
+     * Récupère une page de réservations futures
      */
-    public List<ReservationDTO> getReservationsFutures() {
-        return reservationRepository.findReservationsFutures(Instant.now())
-                .stream()
-                .map(reservationMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public PageCurseurDTO<ReservationDTO> getReservationsFutures(String curseur, Integer taille, boolean avecTotal) {
+        Position position = CurseurPagination.decoder(curseur, CurseurPagination.DEBUT_CROISSANT);
+        int tailleEffective = CurseurPagination.taille(taille);
+        Instant maintenant = Instant.now();
+        return page(reservationRepository.findPageReservationsFutures(maintenant, position.heureDebut(), position.id(),
+                        Limit.of(tailleEffective + 1)),
+                tailleEffective, avecTotal, () -> reservationRepository.countReservationsFutures(maintenant));
     }
     
     /**
-     * Récupère les réservations passées
+     * Récupère une page de réservations passées, de la plus récente à la plus ancienne
      */
-    public List<ReservationDTO> getReservationsPassees() {
-        return reservationRepository.findReservationsPassees(Instant.now())
-                .stream()
-                .map(reservationMapper::toDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public PageCurseurDTO<ReservationDTO> getReservationsPassees(String curseur, Integer taille, boolean avecTotal) {
+        Position position = CurseurPagination.decoder(curseur, CurseurPagination.DEBUT_DECROISSANT);
+        int tailleEffective = CurseurPagination.taille(taille);
+        Instant maintenant = Instant.now();
+        return page(reservationRepository.findPageReservationsPassees(maintenant, position.heureDebut(), position.id(),
+                        Limit.of(tailleEffective + 1)),
+                tailleEffective, avecTotal, () -> reservationRepository.countReservationsPassees(maintenant));
     }
     
     /**
      * Crée une nouvelle réservation
+     * (une mise à jour conditionnelle du compteur du créneau puis une insertion ; la transaction est rejouée
+     * après un conflit de version, sauf si l'appelant a déjà ouvert la sienne)
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ReservationDTO createReservation(CreationReservationDTO creationDTO) {
-        // Vérifier que le créneau existe et est réellement disponible
-        // (vérification robuste qui prend en compte les réservations actives)
-        Boolean creneauDisponible = creneauRepository.isCreneauReallyAvailable(creationDTO.getCreneauId());
+        return createReservation(creationDTO, strategiesCapacite.parDefaut());
+    }
+    
+    /**
+     * Crée une nouvelle réservation avec une stratégie de concurrence donnée
+     * (utilisé par le banc d'essai de contention)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ReservationDTO createReservation(CreationReservationDTO creationDTO, TypeStrategieCapacite typeStrategie) {
+        return createReservation(creationDTO, strategiesCapacite.get(typeStrategie));
+    }
+    
+    private ReservationDTO createReservation(CreationReservationDTO creationDTO, StrategieCapacite strategie) {
+        return strategiesCapacite.rejouerSurConflit(() -> transactionTemplate.execute(status -> creer(creationDTO, strategie)));
+    }
+    
+    private ReservationDTO creer(CreationReservationDTO creationDTO, StrategieCapacite strategie) {
+        Long creneauId = creationDTO.getCreneauId();
         
-        if (creneauDisponible == null || !creneauDisponible) {
-            if (creneauDisponible == null) {
-                throw new IllegalArgumentException("Le créneau spécifié n'existe pas");
-            } else {
-                throw new IllegalStateException("Le créneau n'est plus disponible (capacité atteinte)");
-            }
+        if (creationDTO.getRetenueId() != null) {
+            // Place déjà retenue : simple transfert du compteur des retenues vers les réservations
+            retenueService.convertirRetenue(creneauId, creationDTO.getRetenueId());
+        } else {
+            // Prendre une place de façon atomique selon la stratégie configurée
+            // (aucune fenêtre entre la vérification de capacité et l'insertion)
+            occuperPlace(creneauId, strategie);
         }
         
-        // Récupérer le créneau (maintenant on sait qu'il existe et est disponible)
-        Optional<Creneau> creneauOpt = creneauRepository.findById(creationDTO.getCreneauId());
-        Creneau creneau = creneauOpt.get(); // Safe car on vient de vérifier
-        
-        // Créer la réservation
+        // Créer la réservation (référence vers le créneau, sans relecture)
         Reservation reservation = reservationMapper.toEntity(creationDTO);
-        reservation.setCreneau(creneau);
+        reservation.setCreneau(creneauRepository.getReferenceById(creneauId));
         reservation.setStatut(StatutReservation.RESERVEE);
         
         // Sauvegarder la réservation
         reservation = reservationRepository.save(reservation);
         
-        // Mettre à jour le flag disponible du créneau si nécessaire
-        updateCreneauDisponibilite(creneau);
-        
-        return reservationMapper.toDTO(reservation);
+        ReservationDTO reservationDTO = reservationMapper.toDTO(reservation);
+        eventPublisher.publishEvent(CreneauxModifiesEvent.creneau(reservationDTO.getCreneau().getHeureDebut()));
+        return reservationDTO;
     }
     
     /**
      * Met à jour le statut d'une réservation
+     * (rejouée après un conflit de version si une réservation annulée reprend une place)
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Optional<ReservationDTO> updateReservationStatut(Long id, StatutReservation nouveauStatut) {
+        return strategiesCapacite.rejouerSurConflit(() -> transactionTemplate.execute(status -> changerStatut(id, nouveauStatut)));
+    }
+    
+    private Optional<ReservationDTO> changerStatut(Long id, StatutReservation nouveauStatut) {
         Optional<Reservation> reservationOpt = reservationRepository.findById(id);
         if (reservationOpt.isEmpty()) {
             return Optional.empty();
@@ -154,14 +249,21 @@ public class ReservationService {
         
         Reservation reservation = reservationOpt.get();
         StatutReservation ancienStatut = reservation.getStatut();
-        reservation.setStatut(nouveauStatut);
-        reservation = reservationRepository.save(reservation);
         
-        // Mettre à jour la disponibilité du créneau si le statut change entre actif/inactif
+        // Mettre à jour le compteur du créneau si le statut change entre actif/inactif
         if (isStatutChangeAffectingAvailability(ancienStatut, nouveauStatut)) {
-            updateCreneauDisponibilite(reservation.getCreneau());
+            Long creneauId = reservation.getCreneau().getId();
+            if (nouveauStatut == StatutReservation.ANNULEE) {
+                libererPlace(creneauId);
+            } else {
+                occuperPlace(creneauId, strategiesCapacite.parDefaut());
+            }
+            eventPublisher.publishEvent(CreneauxModifiesEvent.creneau(reservation.getCreneau().getHeureDebut()));
         }
         
+        reservation.setStatut(nouveauStatut);
+        reservation = reservationRepository.save(reservation);
+        
         return Optional.of(reservationMapper.toDTO(reservation));
     }
     
@@ -169,45 +271,57 @@ public class ReservationService {
      * Supprime une réservation
      */
     public boolean deleteReservation(Long id) {
-        if (reservationRepository.existsById(id)) {
-            reservationRepository.deleteById(id);
-            return true;
+        Optional<Reservation> reservationOpt = reservationRepository.findById(id);
+        if (reservationOpt.isEmpty()) {
+            return false;
+        }
+        
+        Reservation reservation = reservationOpt.get();
+        
+        // Une réservation active occupe une place : la rendre au créneau
+        if (reservation.getStatut() != StatutReservation.ANNULEE) {
+            libererPlace(reservation.getCreneau().getId());
+            eventPublisher.publishEvent(CreneauxModifiesEvent.creneau(reservation.getCreneau().getHeureDebut()));
+        }
+        
+        reservationRepository.delete(reservation);
+        return true;
+    }
+    
+    /**
+     * Libère une place du créneau : elle revient en priorité à la tête de sa liste d'attente
+     * (la place change de titulaire, le compteur du créneau et le registre restent inchangés)
+     */
+    private void libererPlace(Long creneauId) {
+        // Verrou du créneau avant de consulter la file : une inscription en cours est validée avant
+        creneauRepository.verrouiller(creneauId);
+        if (listeAttenteService.promouvoir(creneauId).isPresent()) {
+            return;
         }
-        return false;
+        if (creneauRepository.libererPlace(creneauId) == 1) {
+            calendrierService.ajusterOccupation(creneauId, -1, 0);
+        }
+        registreCapacite.libererApresCommit(creneauId);
     }
     
     /**
-     * Met à jour automatiquement le flag disponible d'un créneau selon sa capacité
+     * Occupe une place du créneau ou lève une exception si c'est impossible
      */
-    private void updateCreneauDisponibilite(Creneau creneau) {
-        // Recharger le créneau avec ses réservations pour avoir les données à jour
-        Optional<Creneau> creneauWithReservations = creneauRepository.findByIdWithReservations(creneau.getId());
+    private void occuperPlace(Long creneauId, StrategieCapacite strategie) {
+        // Contrôle d'admission en mémoire : un créneau connu complet est refusé sans aucune requête SQL
+        // (le permis est rendu au registre si la transaction est annulée)
+        RegistreCapacite.Permis permis = registreCapacite.acquerir(creneauId);
         
-        if (creneauWithReservations.isPresent()) {
-            Creneau creneauActuel = creneauWithReservations.get();
-            
-            // Compter les réservations actives
-            int reservationsActives = creneauActuel.getNombreReservations();
-            
-            // Déterminer le nouveau statut disponible
-            boolean nouvelleDisponibilite = reservationsActives < creneauActuel.getCapaciteTotale();
-            
-            // Mettre à jour seulement si nécessaire
-            if (creneauActuel.getDisponible() != nouvelleDisponibilite) {
-                creneauActuel.setDisponible(nouvelleDisponibilite);
-                creneauRepository.save(creneauActuel);
-                
-                // Log pour traçabilité
-                System.out.println(String.format(
-                    "🔄 Créneau ID %d : disponible %s → %s (réservations actives: %d/%d)",
-                    creneauActuel.getId(),
-                    !nouvelleDisponibilite ? "true" : "false", 
-                    nouvelleDisponibilite ? "true" : "false",
-                    reservationsActives,
-                    creneauActuel.getCapaciteTotale()
-                ));
+        if (!strategie.occuperPlace(creneauId)) {
+            // Chemin d'échec uniquement : distinguer créneau inexistant et créneau complet
+            if (!creneauRepository.existsById(creneauId)) {
+                throw new IllegalArgumentException("Le créneau spécifié n'existe pas");
             }
+            // Le registre était en avance sur la base : le réaligner
+            registreCapacite.confirmer(permis, 0);
+            throw new IllegalStateException("Le créneau n'est plus disponible (capacité atteinte)");
         }
+        calendrierService.ajusterOccupation(creneauId, 1, 0);
     }
     
     /**
@@ -221,4 +335,9 @@ public class ReservationService {
         // Retourne true si le statut passe de actif à inactif ou vice versa
         return ancienActif != nouveauActif;
     }
-} 
\ No newline at end of file
+    
+    private PageCurseurDTO<ReservationDTO> page(List<Reservation> lues, int taille, boolean avecTotal, LongSupplier total) {
+        return CurseurPagination.page(lues, taille, r -> r.getCreneau().getHeureDebut(), Reservation::getId,
+                reservationMapper::toDTO, avecTotal, total);
+    }
+}
@@ -0,0 +1,278 @@
+package com.garage.reservation.service;
+
+import com.garage.reservation.dto.RetenueDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.model.Retenue;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.repository.EcheanceRetenue;
+import com.garage.reservation.repository.RetenueRepository;
+import com.garage.reservation.service.capacite.RegistreCapacite;
+import com.garage.reservation.util.RoueTemporelle;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Retenues temporaires de places sur les créneaux
+ *
+ * Une retenue compte dans la capacité du créneau (compteur places_retenues) jusqu'à sa
+ * conversion en réservation ou son expiration. Les expirations sont planifiées dans une roue
+ * temporelle en mémoire (aucune interrogation périodique de la table) et rechargées au démarrage.
+ * Une place rendue (abandon ou expiration) revient d'abord à la tête de la liste d'attente du créneau.
+ */
+@Service
+@Slf4j
+public class RetenueService {
+
+    /** Délai avant un nouvel essai de libération après l'échec de la transaction d'expiration */
+    private static final Duration DELAI_NOUVEL_ESSAI = Duration.ofSeconds(5);
+
+    private final RetenueRepository retenueRepository;
+    private final CreneauRepository creneauRepository;
+    private final RegistreCapacite registreCapacite;
+    private final CalendrierService calendrierService;
+    private final ListeAttenteService listeAttenteService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration dureeDefaut;
+    private final Duration dureeMax;
+    private final RoueTemporelle<Long> roue;
+    private final Map<Long, RoueTemporelle.Echeance<Long>> echeances = new ConcurrentHashMap<>();
+
+    public RetenueService(RetenueRepository retenueRepository,
+                          CreneauRepository creneauRepository,
+                          RegistreCapacite registreCapacite,
+                          CalendrierService calendrierService,
+                          ListeAttenteService listeAttenteService,
+                          ApplicationEventPublisher eventPublisher,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${garage.reservation.retenues.duree-defaut-secondes:180}") long dureeDefautSecondes,
+                          @Value("${garage.reservation.retenues.duree-max-secondes:600}") long dureeMaxSecondes,
+                          @Value("${garage.reservation.retenues.tick-ms:1000}") long tickMs) {
+        this.retenueRepository = retenueRepository;
+        this.creneauRepository = creneauRepository;
+        this.registreCapacite = registreCapacite;
+        this.calendrierService = calendrierService;
+        this.listeAttenteService = listeAttenteService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dureeDefaut = Duration.ofSeconds(dureeDefautSecondes);
+        this.dureeMax = Duration.ofSeconds(dureeMaxSecondes);
+        // Une case par tick sur la durée maximale d'une retenue : un seul tour de roue en général
+        int nombreCases = (int) Math.max(64, dureeMax.toMillis() / tickMs);
+        this.roue = new RoueTemporelle<>("expiration-retenues", Duration.ofMillis(tickMs), nombreCases, this::expirer);
+    }
+
+    /**
+     * Retient une place du créneau pour la durée demandée (durée par défaut si absente)
+     * Lève IllegalArgumentException si le créneau n'existe pas ou si la durée est invalide,
+     * IllegalStateException si le créneau est complet
+     */
+    @Transactional
+    public RetenueDTO creerRetenue(Long creneauId, Integer dureeSecondes) {
+        Duration duree = dureeSecondes != null ? Duration.ofSeconds(dureeSecondes) : dureeDefaut;
+        if (duree.isZero() || duree.isNegative() || duree.compareTo(dureeMax) > 0) {
+            throw new IllegalArgumentException("La durée de la retenue doit être comprise entre 1 et "
+                    + dureeMax.toSeconds() + " secondes");
+        }
+
+        RegistreCapacite.Permis permis = registreCapacite.acquerir(creneauId);
+        if (creneauRepository.retenirPlace(creneauId) == 0) {
+            if (!creneauRepository.existsById(creneauId)) {
+                throw new IllegalArgumentException("Le créneau spécifié n'existe pas");
+            }
+            registreCapacite.confirmer(permis, 0);
+            throw new IllegalStateException("Le créneau n'est plus disponible (capacité atteinte)");
+        }
+        calendrierService.ajusterOccupation(creneauId, 0, 1);
+
+        Instant maintenant = Instant.now();
+        Retenue retenue = retenueRepository.save(Retenue.builder()
+                .creneau(creneauRepository.getReferenceById(creneauId))
+                .dateCreation(maintenant)
+                .dateExpiration(maintenant.plus(duree))
+                .build());
+
+        Long retenueId = retenue.getId();
+        Instant dateExpiration = retenue.getDateExpiration();
+        apresCommit(() -> planifier(retenueId, dateExpiration));
+        eventPublisher.publishEvent(CreneauxModifiesEvent.creneau(retenue.getCreneau().getHeureDebut()));
+
+        log.debug("Place retenue sur le créneau {} jusqu'à {} (retenue {})", creneauId, dateExpiration, retenueId);
+        return RetenueDTO.builder()
+                .id(retenueId)
+                .creneauId(creneauId)
+                .dateCreation(retenue.getDateCreation())
+                .dateExpiration(dateExpiration)
+                .build();
+    }
+
+    /**
+     * Abandonne une retenue et rend sa place
+     * Retourne false si la retenue n'existe pas (déjà convertie, expirée ou abandonnée)
+     */
+    @Transactional
+    public boolean libererRetenue(Long creneauId, Long retenueId) {
+        if (retenueRepository.supprimer(retenueId, creneauId) == 0) {
+            return false;
+        }
+        Instant heureDebut = creneauRepository.getReferenceById(creneauId).getHeureDebut();
+        rendrePlaces(creneauId, heureDebut, 1);
+        apresCommit(() -> annulerEcheance(retenueId));
+        eventPublisher.publishEvent(CreneauxModifiesEvent.creneau(heureDebut));
+        return true;
+    }
+
+    /**
+     * Convertit une retenue en réservation dans la transaction de création de la réservation
+     * La place étant déjà comptée, aucune vérification de capacité n'est nécessaire
+     * Lève IllegalStateException si la retenue a expiré ou n'appartient pas au créneau
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void convertirRetenue(Long creneauId, Long retenueId) {
+        if (retenueRepository.supprimerActive(retenueId, creneauId, Instant.now()) == 0
+                || creneauRepository.convertirRetenue(creneauId) == 0) {
+            throw new IllegalStateException("La retenue a expiré ou n'existe pas pour ce créneau");
+        }
+        calendrierService.ajusterOccupation(creneauId, 1, -1);
+        apresCommit(() -> annulerEcheance(retenueId));
+    }
+
+    /**
+     * Nombre de retenues dont l'expiration est planifiée
+     */
+    public int getNombreRetenuesPlanifiees() {
+        return echeances.size();
+    }
+
+    /**
+     * Replanifie l'expiration des retenues en cours au démarrage
+     * (les retenues déjà expirées sont libérées au premier tick)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recharger() {
+        List<EcheanceRetenue> enCours = retenueRepository.findAllEcheances();
+        enCours.forEach(e -> planifier(e.retenueId(), e.dateExpiration()));
+        if (!enCours.isEmpty()) {
+            log.info("⏳ {} retenues en cours replanifiées", enCours.size());
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        roue.close();
+    }
+
+    /**
+     * Libère les retenues échues (appelé par la roue temporelle, une transaction par tick)
+     * Si la transaction échoue, les retenues sont replanifiées pour un nouvel essai : leurs places
+     * ne restent pas occupées jusqu'au prochain redémarrage
+     */
+    private void expirer(List<Long> retenueIds) {
+        retenueIds.forEach(echeances::remove);
+        Integer liberees;
+        try {
+            liberees = liberer(retenueIds);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Échec de la libération de {} retenues expirées, nouvel essai dans {} s : {}",
+                    retenueIds.size(), DELAI_NOUVEL_ESSAI.toSeconds(), e.getMessage());
+            Instant nouvelEssai = Instant.now().plus(DELAI_NOUVEL_ESSAI);
+            // Une retenue convertie ou abandonnée entre-temps n'est plus trouvée au nouvel essai
+            retenueIds.forEach(retenueId -> planifier(retenueId, nouvelEssai));
+            return;
+        }
+        if (liberees != null && liberees > 0) {
+            log.debug("⌛ {} retenues expirées libérées", liberees);
+        }
+    }
+
+    private Integer liberer(List<Long> retenueIds) {
+        return transactionTemplate.execute(status -> {
+            Instant maintenant = Instant.now();
+            Map<Long, Integer> parCreneau = new TreeMap<>();
+            Map<Long, Instant> heuresDebut = new TreeMap<>();
+            for (EcheanceRetenue echeance : retenueRepository.findEcheances(retenueIds)) {
+                if (echeance.dateExpiration().isAfter(maintenant)) {
+                    // Tick en avance sur l'horloge murale : attendre le prochain passage
+                    apresCommit(() -> planifier(echeance.retenueId(), echeance.dateExpiration()));
+                } else if (retenueRepository.supprimerExpiree(echeance.retenueId(), maintenant) == 1) {
+                    parCreneau.merge(echeance.creneauId(), 1, Integer::sum);
+                    heuresDebut.put(echeance.creneauId(), echeance.heureDebutCreneau());
+                }
+            }
+            parCreneau.forEach((creneauId, nombre) -> {
+                rendrePlaces(creneauId, heuresDebut.get(creneauId), nombre);
+                eventPublisher.publishEvent(CreneauxModifiesEvent.creneau(heuresDebut.get(creneauId)));
+            });
+            return parCreneau.values().stream().mapToInt(Integer::intValue).sum();
+        });
+    }
+
+    /**
+     * Rend au créneau des places retenues : les têtes de sa liste d'attente les reprennent en priorité
+     * (la place passe de retenue à réservée, le registre reste inchangé), le reste est libéré
+     * Verrou du créneau avant de consulter la file, comme l'annulation d'une réservation
+     */
+    private void rendrePlaces(Long creneauId, Instant heureDebut, int nombre) {
+        creneauRepository.verrouiller(creneauId);
+        int promues = 0;
+        while (promues < nombre && listeAttenteService.promouvoir(creneauId).isPresent()) {
+            creneauRepository.convertirRetenue(creneauId);
+            promues++;
+        }
+        calendrierService.ajusterOccupation(heureDebut, promues, -promues);
+
+        int liberees = nombre - promues;
+        if (liberees == 0) {
+            return;
+        }
+        if (creneauRepository.libererRetenues(creneauId, liberees) == 1) {
+            calendrierService.ajusterOccupation(heureDebut, 0, -liberees);
+        }
+        registreCapacite.libererApresCommit(creneauId, liberees);
+    }
+
+    private void planifier(Long retenueId, Instant dateExpiration) {
+        RoueTemporelle.Echeance<Long> precedente = echeances.put(retenueId, roue.planifier(retenueId, dateExpiration));
+        if (precedente != null) {
+            precedente.annuler();
+        }
+    }
+
+    private void annulerEcheance(Long retenueId) {
+        RoueTemporelle.Echeance<Long> echeance = echeances.remove(retenueId);
+        if (echeance != null) {
+            echeance.annuler();
+        }
+    }
+
+    private static void apresCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.garage.reservation.service.cache;
+
+import com.garage.reservation.config.routage.ContexteRoutage;
+import com.garage.reservation.dto.CreneauDTO;
+import com.garage.reservation.dto.StatistiquesCacheDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.util.DateTimeUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache en lecture des listes de créneaux par jour, semaine et période
+ *
+ * Les entrées sont indexées par fenêtre normalisée (début de jour ou de semaine UTC) et par
+ * le filtre disponiblesOnly. Après chaque commit modifiant des créneaux, seuls le jour et la
+ * semaine concernés (et les périodes qui les recouvrent) sont invalidés ; la durée de vie
+ * borne l'obsolescence en cas de modification externe à l'application.
+ */
+@Component
+@Slf4j
+public class CacheDisponibilites {
+
+    /** Au-delà, une modification de période invalide tout le cache plutôt que jour par jour */
+    private static final int MAX_JOURS_INVALIDES = 400;
+
+    private enum TypeFenetre { JOUR, SEMAINE, PERIODE }
+
+    private record Cle(TypeFenetre type, Instant debut, Instant fin, boolean disponiblesOnly) {
+    }
+
+    private final boolean actif;
+    private final long tailleMax;
+    private final Duration ttl;
+    private final Cache<Cle, List<CreneauDTO>> cache;
+    private final LongAdder invalidations = new LongAdder();
+
+    public CacheDisponibilites(@Value("${garage.reservation.cache-disponibilites.enabled:true}") boolean actif,
+                               @Value("${garage.reservation.cache-disponibilites.taille-max:2000}") long tailleMax,
+                               @Value("${garage.reservation.cache-disponibilites.ttl-secondes:60}") long ttlSecondes) {
+        this.actif = actif;
+        this.tailleMax = tailleMax;
+        this.ttl = Duration.ofSeconds(ttlSecondes);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Créneaux du jour commençant à debutJour
+     */
+    public List<CreneauDTO> jour(Instant debutJour, boolean disponiblesOnly, Supplier<List<CreneauDTO>> chargement) {
+        return obtenir(new Cle(TypeFenetre.JOUR, debutJour, null, disponiblesOnly), chargement);
+    }
+
+    /**
+     * Créneaux de la semaine commençant à debutSemaine
+     */
+    public List<CreneauDTO> semaine(Instant debutSemaine, boolean disponiblesOnly, Supplier<List<CreneauDTO>> chargement) {
+        return obtenir(new Cle(TypeFenetre.SEMAINE, debutSemaine, null, disponiblesOnly), chargement);
+    }
+
+    /**
+     * Créneaux d'une période quelconque
+     */
+    public List<CreneauDTO> periode(Instant debut, Instant fin, boolean disponiblesOnly, Supplier<List<CreneauDTO>> chargement) {
+        return obtenir(new Cle(TypeFenetre.PERIODE, debut, fin, disponiblesOnly), chargement);
+    }
+
+    /**
+     * Invalide les entrées touchées par une modification, après son commit
+     * (après l'actualisation de l'index d'occupation, dont les rechargements dépendent)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(10)
+    public void invalider(CreneauxModifiesEvent event) {
+        if (!actif) {
+            return;
+        }
+        invalidations.increment();
+
+        if (event.concerneTous() || Duration.between(event.debut(), event.fin()).toDays() > MAX_JOURS_INVALIDES) {
+            cache.invalidateAll();
+            return;
+        }
+
+        Set<Cle> cles = new HashSet<>();
+        for (Instant jour = DateTimeUtil.getStartOfDay(event.debut());
+             !jour.isAfter(event.fin());
+             jour = DateTimeUtil.getStartOfNextDay(jour)) {
+            Instant semaine = DateTimeUtil.getStartOfWeek(jour);
+            for (boolean disponiblesOnly : new boolean[]{false, true}) {
+                cles.add(new Cle(TypeFenetre.JOUR, jour, null, disponiblesOnly));
+                cles.add(new Cle(TypeFenetre.SEMAINE, semaine, null, disponiblesOnly));
+            }
+        }
+        cache.invalidateAll(cles);
+
+        // Périodes arbitraires : invalider celles qui recouvrent les créneaux modifiés
+        cache.asMap().keySet().removeIf(cle -> cle.type() == TypeFenetre.PERIODE
+                && !cle.debut().isAfter(event.fin())
+                && cle.fin().isAfter(event.debut()));
+    }
+
+    /**
+     * Vide entièrement le cache
+     */
+    public void vider() {
+        cache.invalidateAll();
+        invalidations.increment();
+    }
+
+    /**
+     * Statistiques du cache (succès, échecs, évictions, invalidations)
+     */
+    public StatistiquesCacheDTO getStatistiques() {
+        CacheStats stats = cache.stats();
+        return StatistiquesCacheDTO.builder()
+                .nom("disponibilites")
+                .actif(actif)
+                .nombreEntrees(cache.estimatedSize())
+                .tailleMax(tailleMax)
+                .ttlSecondes(ttl.toSeconds())
+                .succes(stats.hitCount())
+                .echecs(stats.missCount())
+                .tauxSucces(stats.hitRate())
+                .evictions(stats.evictionCount())
+                .invalidations(invalidations.sum())
+                .build();
+    }
+
+    private List<CreneauDTO> obtenir(Cle cle, Supplier<List<CreneauDTO>> chargement) {
+        if (!actif) {
+            return chargement.get();
+        }
+        // Remplissage sur la base principale : une entrée partagée ne doit pas figer un réplica en retard
+        return cache.get(cle, c -> List.copyOf(ContexteRoutage.surPrincipale(chargement)));
+    }
+}
@@ -0,0 +1,82 @@
+package com.garage.reservation.service.cache;
+
+import com.garage.reservation.dto.StatistiquesCacheDTO;
+import com.garage.reservation.model.Creneau;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import javax.cache.CacheManager;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Statistiques et éviction du cache de second niveau Hibernate
+ *
+ * Les écritures JPA (y compris les UPDATE en masse des compteurs) tiennent le cache à jour
+ * d'elles-mêmes ; seules les écritures SQL directes (JdbcTemplate) doivent l'évincer ici.
+ */
+@Component
+public class CacheSecondNiveau {
+
+    private final CacheManager cacheManager;
+    private final SessionFactory sessionFactory;
+
+    public CacheSecondNiveau(CacheManager cacheManagerHibernate, EntityManagerFactory entityManagerFactory) {
+        this.cacheManager = cacheManagerHibernate;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    /**
+     * Évince des créneaux modifiés hors JPA, et les résultats de requête qui peuvent les contenir
+     */
+    public void evincerCreneaux(Collection<Long> creneauIds) {
+        creneauIds.forEach(id -> sessionFactory.getCache().evictEntityData(Creneau.class, id));
+        evincerRequetes();
+    }
+
+    /**
+     * Évince les résultats de requête sur les créneaux (créneaux insérés hors JPA)
+     */
+    public void evincerRequetes() {
+        sessionFactory.getCache().evictQueryRegion(Creneau.REGION_CACHE_REQUETES);
+    }
+
+    /**
+     * Vide toutes les régions (entités et requêtes)
+     */
+    public void vider() {
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    /**
+     * Statistiques des régions des créneaux (succès, échecs, évictions)
+     */
+    public List<StatistiquesCacheDTO> getStatistiques() {
+        return List.of(statistiques(Creneau.REGION_CACHE), statistiques(Creneau.REGION_CACHE_REQUETES));
+    }
+
+    @SuppressWarnings("unchecked")
+    private StatistiquesCacheDTO statistiques(String region) {
+        javax.cache.Cache<Object, Object> cacheJCache = cacheManager.getCache(region);
+        if (cacheJCache == null) {
+            return StatistiquesCacheDTO.builder().nom(region).actif(false).build();
+        }
+        Cache<Object, Object> cache = cacheJCache.unwrap(Cache.class);
+        CacheStats stats = cache.stats();
+        return StatistiquesCacheDTO.builder()
+                .nom(region)
+                .actif(true)
+                .nombreEntrees(cache.estimatedSize())
+                .tailleMax(cache.policy().eviction().map(Policy.Eviction::getMaximum).orElse(null))
+                .ttlSecondes(cache.policy().expireAfterWrite().map(e -> e.getExpiresAfter().toSeconds()).orElse(null))
+                .succes(stats.hitCount())
+                .echecs(stats.missCount())
+                .tauxSucces(stats.hitRate())
+                .evictions(stats.evictionCount())
+                .build();
+    }
+}
@@ -0,0 +1,266 @@
+package com.garage.reservation.service.cache;
+
+import com.garage.reservation.dto.CreneauDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.repository.OccupationCreneau;
+import com.garage.reservation.util.DateTimeUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index d'occupation en mémoire des créneaux à venir
+ *
+ * Les créneaux sont rangés par jour (UTC) dans des tableaux primitifs triés par heure de début
+ * (secondes epoch, capacité, compteurs). Une recherche par jour, semaine ou période est une
+ * recherche dichotomique suivie d'un parcours contigu, sans entité JPA.
+ *
+ * L'index est chargé au démarrage à partir du jour courant. Après chaque commit modifiant des
+ * créneaux (CreneauxModifiesEvent publié par les services), les jours concernés sont relus en
+ * une requête et remplacés. Chaque jour est un instantané immuable : les lectures sont sans verrou.
+ */
+@Component
+@Slf4j
+public class IndexOccupation {
+
+    private static final Instant HORIZON = Instant.parse("9999-12-31T00:00:00Z");
+    private static final long SECONDES_PAR_JOUR = 86_400L;
+
+    private final CreneauRepository creneauRepository;
+    private final boolean actif;
+    private final Object verrouActualisation = new Object();
+
+    /** Jours indexés (epoch) ; remplacé d'un bloc lors d'un rechargement complet */
+    private volatile Map<Long, Jour> jours = new ConcurrentHashMap<>();
+
+    /** Premier jour (epoch) couvert par l'index ; Long.MAX_VALUE tant qu'il n'est pas chargé */
+    private volatile long premierJour = Long.MAX_VALUE;
+
+    public IndexOccupation(CreneauRepository creneauRepository,
+                           @Value("${garage.reservation.index-occupation.enabled:false}") boolean actif) {
+        this.creneauRepository = creneauRepository;
+        this.actif = actif;
+    }
+
+    /**
+     * Charge les créneaux à venir au démarrage
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        if (!actif) {
+            return;
+        }
+        Instant debut = DateTimeUtil.getStartOfDay(Instant.now());
+        synchronized (verrouActualisation) {
+            List<OccupationCreneau> occupations = creneauRepository.findOccupations(debut, HORIZON);
+            Map<Long, Jour> nouveauxJours = new ConcurrentHashMap<>();
+            remplacerJours(nouveauxJours, occupations, Long.MIN_VALUE, Long.MAX_VALUE);
+            jours = nouveauxJours;
+            premierJour = jourEpoch(debut.getEpochSecond());
+            log.info("🗂️ Index d'occupation chargé : {} créneaux sur {} jours", occupations.size(), nouveauxJours.size());
+        }
+    }
+
+    /**
+     * Relit les jours modifiés après le commit (avant l'invalidation du cache des disponibilités,
+     * qui se recharge à partir de l'index)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void actualiser(CreneauxModifiesEvent event) {
+        if (!actif || premierJour == Long.MAX_VALUE) {
+            return;
+        }
+        if (event.concerneTous()) {
+            charger();
+            return;
+        }
+
+        Instant debut = DateTimeUtil.getStartOfDay(event.debut());
+        Instant fin = DateTimeUtil.getStartOfNextDay(event.fin());
+        if (!fin.isAfter(Instant.ofEpochSecond(premierJour * SECONDES_PAR_JOUR))) {
+            return;
+        }
+        synchronized (verrouActualisation) {
+            List<OccupationCreneau> occupations = creneauRepository.findOccupations(debut, fin);
+            remplacerJours(jours, occupations, jourEpoch(debut.getEpochSecond()), jourEpoch(fin.getEpochSecond()));
+        }
+    }
+
+    /**
+     * Créneaux dont l'heure de début est dans [debut, finDebut) et, si finMax est fourni, dont
+     * l'heure de fin est au plus finMax ; vide si l'index ne couvre pas la fenêtre (lecture en base)
+     */
+    public Optional<List<CreneauDTO>> rechercher(Instant debut, Instant finDebut, Instant finMax, boolean disponiblesOnly) {
+        if (!actif || premierJour == Long.MAX_VALUE || jourEpoch(debut.getEpochSecond()) < premierJour) {
+            return Optional.empty();
+        }
+
+        long debutSecondes = plafond(debut);
+        long finDebutSecondes = plafond(finDebut);
+        long finMaxSecondes = finMax != null ? finMax.getEpochSecond() : Long.MAX_VALUE;
+
+        List<CreneauDTO> creneaux = new ArrayList<>();
+        for (long jour = jourEpoch(debutSecondes); jour <= jourEpoch(finDebutSecondes - 1); jour++) {
+            Jour creneauxDuJour = jours.get(jour);
+            if (creneauxDuJour == null) {
+                continue;
+            }
+            for (int i = creneauxDuJour.premierIndex(debutSecondes);
+                 i < creneauxDuJour.debuts.length && creneauxDuJour.debuts[i] < finDebutSecondes;
+                 i++) {
+                if (creneauxDuJour.fins[i] <= finMaxSecondes && (!disponiblesOnly || creneauxDuJour.estDisponible(i))) {
+                    creneaux.add(creneauxDuJour.toDTO(i));
+                }
+            }
+        }
+        return Optional.of(creneaux);
+    }
+
+    /**
+     * Au plus limite créneaux réservables commençant après maintenant et après la position
+     * (heureDebut, id) d'un curseur, dans l'ordre (heureDebut, id) ; vide si l'index est inactif
+     */
+    public Optional<List<CreneauDTO>> disponiblesApres(Instant maintenant, Instant heureCurseur, long idCurseur, int limite) {
+        if (!actif || premierJour == Long.MAX_VALUE || jourEpoch(maintenant.getEpochSecond()) < premierJour) {
+            return Optional.empty();
+        }
+
+        long maintenantSecondes = maintenant.getEpochSecond();
+        long curseurSecondes = heureCurseur.getEpochSecond();
+        long debutSecondes = Math.max(maintenantSecondes + 1, curseurSecondes);
+        Map<Long, Jour> joursIndexes = jours;
+        long dernierJour = joursIndexes.keySet().stream().mapToLong(Long::longValue).max().orElse(Long.MIN_VALUE);
+
+        List<CreneauDTO> creneaux = new ArrayList<>(limite);
+        for (long jour = jourEpoch(debutSecondes); jour <= dernierJour && creneaux.size() < limite; jour++) {
+            Jour creneauxDuJour = joursIndexes.get(jour);
+            if (creneauxDuJour == null) {
+                continue;
+            }
+            for (int i = creneauxDuJour.premierIndex(debutSecondes);
+                 i < creneauxDuJour.debuts.length && creneaux.size() < limite;
+                 i++) {
+                boolean apresCurseur = creneauxDuJour.debuts[i] > curseurSecondes || creneauxDuJour.ids[i] > idCurseur;
+                if (apresCurseur && creneauxDuJour.estDisponible(i)) {
+                    creneaux.add(creneauxDuJour.toDTO(i));
+                }
+            }
+        }
+        return Optional.of(creneaux);
+    }
+
+    /**
+     * Remplace les jours [premier, dernier) par les occupations lues (triées par heure de début)
+     * Chaque jour est remplacé d'un bloc : un lecteur voit l'ancien ou le nouvel instantané
+     */
+    private static void remplacerJours(Map<Long, Jour> jours, List<OccupationCreneau> occupations,
+                                       long premier, long dernier) {
+        Map<Long, Jour> lus = new HashMap<>();
+        int debutJour = 0;
+        for (int i = 1; i <= occupations.size(); i++) {
+            if (i == occupations.size() || jourDe(occupations.get(i)) != jourDe(occupations.get(debutJour))) {
+                lus.put(jourDe(occupations.get(debutJour)), new Jour(occupations.subList(debutJour, i)));
+                debutJour = i;
+            }
+        }
+        jours.putAll(lus);
+        jours.keySet().removeIf(jour -> jour >= premier && jour < dernier && !lus.containsKey(jour));
+    }
+
+    private static long jourDe(OccupationCreneau occupation) {
+        return jourEpoch(occupation.heureDebut().getEpochSecond());
+    }
+
+    private static long jourEpoch(long epochSecondes) {
+        return Math.floorDiv(epochSecondes, SECONDES_PAR_JOUR);
+    }
+
+    /**
+     * Plus petite seconde epoch supérieure ou égale à l'instant
+     */
+    private static long plafond(Instant instant) {
+        return instant.getNano() > 0 ? instant.getEpochSecond() + 1 : instant.getEpochSecond();
+    }
+
+    /**
+     * Créneaux d'un jour, triés par heure de début (instantané immuable)
+     */
+    private static final class Jour {
+
+        private final long[] ids;
+        private final long[] debuts;
+        private final long[] fins;
+        private final int[] capacites;
+        private final int[] reservees;
+        private final int[] retenues;
+        private final boolean[] disponibles;
+
+        private Jour(List<OccupationCreneau> occupations) {
+            int taille = occupations.size();
+            ids = new long[taille];
+            debuts = new long[taille];
+            fins = new long[taille];
+            capacites = new int[taille];
+            reservees = new int[taille];
+            retenues = new int[taille];
+            disponibles = new boolean[taille];
+            for (int i = 0; i < taille; i++) {
+                OccupationCreneau occupation = occupations.get(i);
+                ids[i] = occupation.id();
+                debuts[i] = occupation.heureDebut().getEpochSecond();
+                fins[i] = occupation.heureFin().getEpochSecond();
+                capacites[i] = occupation.capaciteTotale() != null ? occupation.capaciteTotale() : 0;
+                reservees[i] = occupation.placesReservees();
+                retenues[i] = occupation.placesRetenues();
+                disponibles[i] = Boolean.TRUE.equals(occupation.disponible());
+            }
+        }
+
+        /**
+         * Premier indice dont l'heure de début est au moins debutSecondes (recherche dichotomique)
+         */
+        private int premierIndex(long debutSecondes) {
+            int bas = 0;
+            int haut = debuts.length;
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (debuts[milieu] < debutSecondes) {
+                    bas = milieu + 1;
+                } else {
+                    haut = milieu;
+                }
+            }
+            return bas;
+        }
+
+        private boolean estDisponible(int i) {
+            return disponibles[i] && reservees[i] + retenues[i] < capacites[i];
+        }
+
+        private CreneauDTO toDTO(int i) {
+            return CreneauDTO.builder()
+                    .id(ids[i])
+                    .heureDebut(Instant.ofEpochSecond(debuts[i]))
+                    .heureFin(Instant.ofEpochSecond(fins[i]))
+                    .disponible(disponibles[i])
+                    .capaciteTotale(capacites[i])
+                    .nombreReservations(reservees[i])
+                    .nombreRetenues(retenues[i])
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.garage.reservation.service.cache;
+
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.util.DateTimeUtil;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions des jours du calendrier, pour les ETag des listes de créneaux par jour et par semaine
+ *
+ * Chaque modification de créneaux (CreneauxModifiesEvent, après commit) donne aux jours touchés
+ * une nouvelle valeur d'un compteur global : la version d'un jour ne fait que croître et celle
+ * d'une semaine est la plus grande version de ses jours. Un identifiant tiré au démarrage préfixe
+ * les ETag, pour qu'une version d'une exécution précédente ne soit jamais reconnue.
+ *
+ * Le calcul d'un ETag ne lit que la mémoire : une requête conditionnelle à jour est servie en 304
+ * sans aucune requête SQL.
+ */
+@Component
+public class VersionsJours {
+
+    /** Au-delà, une modification de période fait avancer tous les jours plutôt que jour par jour */
+    private static final int MAX_JOURS_MODIFIES = 400;
+    private static final long SECONDES_PAR_JOUR = 86_400L;
+
+    private final String demarrage = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    /** Version plancher de tous les jours (modifications globales) */
+    private volatile long versionMin;
+
+    /**
+     * ETag de la liste des créneaux du jour contenant l'instant donné
+     */
+    public String etagJour(Instant date, boolean disponiblesOnly) {
+        return etag("j", version(jourEpoch(DateTimeUtil.getStartOfDay(date))), disponiblesOnly);
+    }
+
+    /**
+     * ETag de la liste des créneaux de la semaine (du lundi au dimanche) contenant l'instant donné
+     */
+    public String etagSemaine(Instant date, boolean disponiblesOnly) {
+        long lundi = jourEpoch(DateTimeUtil.getStartOfWeek(date));
+        long version = 0;
+        for (long jour = lundi; jour < lundi + 7; jour++) {
+            version = Math.max(version, version(jour));
+        }
+        return etag("s", version, disponiblesOnly);
+    }
+
+    /**
+     * Fait avancer la version des jours modifiés, après l'invalidation du cache des disponibilités
+     * (un client qui lit la nouvelle version ne peut plus recevoir de liste en cache antérieure)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(20)
+    public void avancer(CreneauxModifiesEvent event) {
+        if (event.concerneTous() || Duration.between(event.debut(), event.fin()).toDays() > MAX_JOURS_MODIFIES) {
+            versionMin = sequence.incrementAndGet();
+            return;
+        }
+        long version = sequence.incrementAndGet();
+        for (long jour = jourEpoch(event.debut()); jour <= jourEpoch(event.fin()); jour++) {
+            versions.merge(jour, version, Math::max);
+        }
+    }
+
+    private long version(long jour) {
+        return Math.max(versionMin, versions.getOrDefault(jour, 0L));
+    }
+
+    private String etag(String fenetre, long version, boolean disponiblesOnly) {
+        return "\"" + demarrage + "-" + fenetre + version + (disponiblesOnly ? "-d" : "") + "\"";
+    }
+
+    private static long jourEpoch(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), SECONDES_PAR_JOUR);
+    }
+}
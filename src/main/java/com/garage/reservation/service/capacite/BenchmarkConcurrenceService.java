@@ -0,0 +1,212 @@
+package com.garage.reservation.service.capacite;
+
+import com.garage.reservation.dto.CreationReservationDTO;
+import com.garage.reservation.dto.ResultatBenchmarkDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.model.Creneau;
+import com.garage.reservation.model.TypeVehicule;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.service.CalendrierService;
+import com.garage.reservation.service.ReservationService;
+import com.garage.reservation.service.cache.CacheSecondNiveau;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Banc d'essai de contention des stratégies de concurrence (profil dev, base H2)
+ * Envoie N réservations concurrentes sur un créneau "chaud" ou réparties sur plusieurs créneaux "froids"
+ * puis mesure débit, latences, réessais et surréservations
+ */
+@Service
+@Profile("dev")
+@RequiredArgsConstructor
+@Slf4j
+public class BenchmarkConcurrenceService {
+    
+    public static final String SCENARIO_CHAUD = "chaud";
+    public static final String SCENARIO_FROID = "froid";
+    
+    private final ReservationService reservationService;
+    private final StrategiesCapacite strategiesCapacite;
+    private final CreneauRepository creneauRepository;
+    private final CalendrierService calendrierService;
+    private final CacheSecondNiveau cacheSecondNiveau;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    
+    /**
+     * Exécute le banc d'essai pour une stratégie et un scénario
+     */
+    public ResultatBenchmarkDTO executer(TypeStrategieCapacite type, String scenario, int nombreRequetes,
+                                         int parallelisme, int nombreCreneaux, int capacite) {
+        int creneauxCibles = SCENARIO_CHAUD.equals(scenario) ? 1 : nombreCreneaux;
+        List<Long> creneauIds = creerCreneaux(creneauxCibles, capacite);
+        
+        StrategieCapacite strategie = strategiesCapacite.get(type);
+        long reessaisAvant = strategie.getNombreReessais();
+        
+        AtomicInteger creees = new AtomicInteger();
+        AtomicInteger refusees = new AtomicInteger();
+        AtomicInteger abandons = new AtomicInteger();
+        AtomicInteger erreurs = new AtomicInteger();
+        long[] latences = new long[nombreRequetes];
+        
+        long debut = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelisme);
+        try {
+            List<Future<?>> taches = new ArrayList<>(nombreRequetes);
+            for (int i = 0; i < nombreRequetes; i++) {
+                int index = i;
+                Long creneauId = creneauIds.get(ThreadLocalRandom.current().nextInt(creneauIds.size()));
+                taches.add(executor.submit(() -> {
+                    long debutRequete = System.nanoTime();
+                    try {
+                        reservationService.createReservation(reservationDeTest(index, creneauId), type);
+                        creees.incrementAndGet();
+                    } catch (ConflitVersionException e) {
+                        // Avant IllegalStateException : un abandon sur conflit n'est pas un créneau complet
+                        abandons.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        refusees.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        erreurs.incrementAndGet();
+                        log.debug("Erreur pendant le banc d'essai : {}", e.getMessage());
+                    } finally {
+                        latences[index] = System.nanoTime() - debutRequete;
+                    }
+                }));
+            }
+            for (Future<?> tache : taches) {
+                tache.get();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Banc d'essai interrompu", e);
+        } finally {
+            executor.shutdown();
+        }
+        long dureeNanos = System.nanoTime() - debut;
+        
+        int surreservations = compterSurreservations(creneauIds);
+        supprimerDonneesDeTest(creneauIds);
+        
+        Arrays.sort(latences);
+        ResultatBenchmarkDTO resultat = ResultatBenchmarkDTO.builder()
+                .strategie(type)
+                .scenario(scenario)
+                .nombreCreneaux(creneauxCibles)
+                .nombreRequetes(nombreRequetes)
+                .parallelisme(parallelisme)
+                .reservationsCreees(creees.get())
+                .reservationsRefusees(refusees.get())
+                .abandons(abandons.get())
+                .erreurs(erreurs.get())
+                .dureeMs(dureeNanos / 1_000_000)
+                .debitParSeconde(nombreRequetes / (dureeNanos / 1e9))
+                .latenceP50Ms(centile(latences, 0.50))
+                .latenceP99Ms(centile(latences, 0.99))
+                .reessais(strategie.getNombreReessais() - reessaisAvant)
+                .surreservations(surreservations)
+                .build();
+        
+        log.info("📊 Banc d'essai {} / {} : {}", type, scenario, resultat);
+        return resultat;
+    }
+    
+    /**
+     * Crée les créneaux du banc d'essai loin dans le futur pour ne pas croiser les données réelles
+     */
+    private List<Long> creerCreneaux(int nombre, int capacite) {
+        Instant base = Instant.parse("2099-01-01T00:00:00Z")
+                .plus(ThreadLocalRandom.current().nextInt(100_000), ChronoUnit.HOURS);
+        List<Creneau> creneaux = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            Instant heureDebut = base.plus(i, ChronoUnit.HOURS);
+            creneaux.add(Creneau.builder()
+                    .heureDebut(heureDebut)
+                    .heureFin(heureDebut.plus(1, ChronoUnit.HOURS))
+                    .capaciteTotale(capacite)
+                    .build());
+        }
+        return transactionTemplate.execute(status -> {
+            List<Creneau> enregistres = creneauRepository.saveAll(creneaux);
+            calendrierService.ajouterCreneaux(enregistres);
+            // Index d'occupation et cache des disponibilités rafraîchis après commit
+            eventPublisher.publishEvent(CreneauxModifiesEvent.periode(enregistres.get(0).getHeureDebut(),
+                    enregistres.get(enregistres.size() - 1).getHeureDebut()));
+            return enregistres.stream().map(Creneau::getId).toList();
+        });
+    }
+    
+    private CreationReservationDTO reservationDeTest(int index, Long creneauId) {
+        return CreationReservationDTO.builder()
+                .immatriculation("BENCH-" + index)
+                .kilometrage(10000)
+                .typeVehicule(TypeVehicule.AUTO)
+                .numeroTelephone("87000000")
+                .creneauId(creneauId)
+                .build();
+    }
+    
+    /**
+     * Compte les créneaux dont les réservations actives dépassent la capacité ou ne correspondent pas au compteur
+     */
+    private int compterSurreservations(List<Long> creneauIds) {
+        Integer violations = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM creneaux c WHERE c.id IN (:ids) AND (" +
+                "  (SELECT COUNT(*) FROM reservations r WHERE r.creneau_id = c.id AND r.statut <> 'ANNULEE') > c.capacite_totale" +
+                "  OR (SELECT COUNT(*) FROM reservations r WHERE r.creneau_id = c.id AND r.statut <> 'ANNULEE') <> c.places_reservees)",
+                Map.of("ids", creneauIds), Integer.class);
+        return violations != null ? violations : 0;
+    }
+    
+    private void supprimerDonneesDeTest(List<Long> creneauIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Compteurs relus en base : les entités du contexte de persistance (ouvert pendant la requête)
+            // sont celles créées par saveAll, sans les places prises depuis
+            List<Creneau> creneaux = jdbcTemplate.query(
+                    "SELECT id, heure_debut, capacite_totale, places_reservees, places_retenues FROM creneaux WHERE id IN (:ids)",
+                    Map.of("ids", creneauIds), (rs, i) -> Creneau.builder()
+                            .id(rs.getLong("id"))
+                            .heureDebut(rs.getTimestamp("heure_debut").toInstant())
+                            .capaciteTotale(rs.getInt("capacite_totale"))
+                            .placesReservees(rs.getInt("places_reservees"))
+                            .placesRetenues(rs.getInt("places_retenues"))
+                            .build());
+            calendrierService.retirerCreneaux(creneaux);
+            jdbcTemplate.update("DELETE FROM reservations WHERE creneau_id IN (:ids)", Map.of("ids", creneauIds));
+            jdbcTemplate.update("DELETE FROM creneaux WHERE id IN (:ids)", Map.of("ids", creneauIds));
+            // Sans cet événement, l'index d'occupation et le cache des disponibilités serviraient encore les créneaux
+            creneaux.stream().map(Creneau::getHeureDebut).min(Instant::compareTo).ifPresent(premier ->
+                    eventPublisher.publishEvent(CreneauxModifiesEvent.periode(premier,
+                            creneaux.stream().map(Creneau::getHeureDebut).max(Instant::compareTo).orElseThrow())));
+        });
+        // Suppression SQL directe : Hibernate ne la voit pas
+        cacheSecondNiveau.evincerCreneaux(creneauIds);
+    }
+    
+    private static double centile(long[] latencesTriees, double centile) {
+        if (latencesTriees.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(centile * latencesTriees.length) - 1;
+        return latencesTriees[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,24 @@
+package com.garage.reservation.service.capacite;
+
+/**
+ * Conflit de version sur un créneau : la transaction de réservation doit être annulée puis rejouée
+ * (voir StrategiesCapacite.rejouerSurConflit) ; traité comme un conflit (409) s'il n'est pas rejoué
+ */
+public class ConflitVersionException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient StrategieCapacite strategie;
+
+    public ConflitVersionException(StrategieCapacite strategie) {
+        super("Le créneau est trop sollicité, veuillez réessayer");
+        this.strategie = strategie;
+    }
+
+    /**
+     * Stratégie qui a détecté le conflit et qui décide d'un nouvel essai
+     */
+    public StrategieCapacite getStrategie() {
+        return strategie;
+    }
+}
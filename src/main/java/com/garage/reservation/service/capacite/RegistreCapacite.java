@@ -0,0 +1,266 @@
+package com.garage.reservation.service.capacite;
+
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.repository.PlacesRestantes;
+import com.garage.reservation.util.LongIntHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Registre en mémoire des places restantes par créneau (contrôle d'admission)
+ * 
+ * Refuse les demandes sur un créneau connu complet avant tout accès à la base, et délivre
+ * des permis provisoires liés à la transaction JPA : un permis est rendu si la transaction
+ * est annulée. La base reste l'autorité : le registre ne fait que filtrer en amont.
+ * Il n'est crédité que par les libérations de cette instance : il est relu en base périodiquement
+ * (garage.reservation.registre-capacite.resynchronisation-ms), ce qui borne la durée pendant laquelle
+ * une place libérée ailleurs (autre instance, SQL direct) reste refusée ici.
+ * 
+ * Les créneaux sont répartis sur des segments verrouillés indépendamment (table long → int
+ * sans boxing par segment), ce qui limite la contention aux créneaux d'un même segment.
+ */
+@Component
+@Slf4j
+public class RegistreCapacite {
+    
+    private static final int NOMBRE_SEGMENTS = 64;
+    private static final int NON_SUIVI = Integer.MIN_VALUE;
+    
+    private final CreneauRepository creneauRepository;
+    private final boolean actif;
+    private final LongIntHashMap[] segments = new LongIntHashMap[NOMBRE_SEGMENTS];
+    
+    public RegistreCapacite(CreneauRepository creneauRepository,
+                            @Value("${garage.reservation.registre-capacite.enabled:true}") boolean actif) {
+        this.creneauRepository = creneauRepository;
+        this.actif = actif;
+        for (int i = 0; i < NOMBRE_SEGMENTS; i++) {
+            segments[i] = new LongIntHashMap(64);
+        }
+    }
+    
+    /**
+     * Reconstruit le registre à partir de la base au démarrage
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruire() {
+        if (!actif) {
+            return;
+        }
+        
+        int nombre = charger();
+        log.info("📒 Registre de capacité reconstruit : {} créneaux suivis", nombre);
+    }
+    
+    /**
+     * Réaligne périodiquement le registre sur la base (places libérées par une autre instance ou hors de
+     * l'application, créneaux passés oubliés) ; un permis en cours peut le décaler d'une place jusqu'au passage suivant
+     */
+    @Scheduled(fixedDelayString = "${garage.reservation.registre-capacite.resynchronisation-ms:30000}",
+               initialDelayString = "${garage.reservation.registre-capacite.resynchronisation-ms:30000}")
+    public void resynchroniser() {
+        if (!actif) {
+            return;
+        }
+        
+        int nombre = charger();
+        log.debug("📒 Registre de capacité resynchronisé : {} créneaux suivis", nombre);
+    }
+    
+    /**
+     * Remplace le contenu de chaque segment par les places restantes lues en base, segment par segment
+     * sous son verrou (aucune demande ne voit un segment vidé en cours de chargement)
+     */
+    private int charger() {
+        List<PlacesRestantes> placesRestantes = creneauRepository.findPlacesRestantesFutures(Instant.now());
+        LongIntHashMap[] lus = new LongIntHashMap[NOMBRE_SEGMENTS];
+        for (int i = 0; i < NOMBRE_SEGMENTS; i++) {
+            lus[i] = new LongIntHashMap(64);
+        }
+        placesRestantes.forEach(p -> lus[indexSegment(p.creneauId())].put(p.creneauId(), Math.max(0, p.places())));
+        for (int i = 0; i < NOMBRE_SEGMENTS; i++) {
+            synchronized (segments[i]) {
+                segments[i].remplacerPar(lus[i]);
+            }
+        }
+        return placesRestantes.size();
+    }
+    
+    /**
+     * Prend un permis provisoire sur une place du créneau
+     * Lève IllegalStateException si le créneau est connu complet (aucun accès base n'a eu lieu)
+     * Le permis est rendu automatiquement si la transaction courante est annulée
+     */
+    public Permis acquerir(long creneauId) {
+        return acquerir(creneauId, 1, 1);
+    }
+    
+    /**
+     * Prend un permis provisoire sur au moins minimum et au plus maximum places du créneau
+     * Lève IllegalStateException si moins de minimum places sont connues libres
+     */
+    public Permis acquerir(long creneauId, int minimum, int maximum) {
+        if (!actif) {
+            return new Permis(this, creneauId, maximum, false);
+        }
+        
+        int accordees;
+        LongIntHashMap segment = segment(creneauId);
+        synchronized (segment) {
+            int places = segment.get(creneauId, NON_SUIVI);
+            if (places == NON_SUIVI) {
+                // Créneau inconnu du registre : la base décide
+                return new Permis(this, creneauId, maximum, false);
+            }
+            if (minimum > 0 && places < minimum) {
+                throw new IllegalStateException("Le créneau n'est plus disponible (capacité atteinte)");
+            }
+            accordees = Math.min(maximum, Math.max(0, places));
+            segment.put(creneauId, places - accordees);
+        }
+        
+        Permis permis = new Permis(this, creneauId, accordees, true);
+        if (accordees > 0 && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(permis);
+        }
+        return permis;
+    }
+    
+    /**
+     * Réaligne le registre sur le nombre de places réellement obtenues en base
+     * Si la base en a accordé moins que le permis, le créneau est complet : le registre passe à zéro
+     * et seules les places obtenues seront rendues si la transaction est annulée
+     */
+    public void confirmer(Permis permis, int placesObtenues) {
+        if (!permis.suivi || placesObtenues >= permis.places) {
+            return;
+        }
+        permis.places = placesObtenues;
+        LongIntHashMap segment = segment(permis.creneauId);
+        synchronized (segment) {
+            if (segment.containsKey(permis.creneauId)) {
+                segment.put(permis.creneauId, 0);
+            }
+        }
+    }
+    
+    /**
+     * Rend une place au créneau après le commit de la transaction courante (annulation, suppression)
+     */
+    public void libererApresCommit(long creneauId) {
+        libererApresCommit(creneauId, 1);
+    }
+    
+    /**
+     * Rend plusieurs places au créneau après le commit de la transaction courante (retenues expirées)
+     */
+    public void libererApresCommit(long creneauId, int places) {
+        if (!actif) {
+            return;
+        }
+        executerApresCommit(() -> ajuster(creneauId, places));
+    }
+    
+    /**
+     * Commence à suivre un créneau après le commit de sa création
+     */
+    public void suivreApresCommit(long creneauId, int placesRestantes) {
+        if (!actif) {
+            return;
+        }
+        executerApresCommit(() -> definir(creneauId, placesRestantes));
+    }
+    
+    /**
+     * Nombre de créneaux suivis
+     */
+    public int getNombreCreneauxSuivis() {
+        int total = 0;
+        for (LongIntHashMap segment : segments) {
+            synchronized (segment) {
+                total += segment.size();
+            }
+        }
+        return total;
+    }
+    
+    private void definir(long creneauId, int places) {
+        LongIntHashMap segment = segment(creneauId);
+        synchronized (segment) {
+            segment.put(creneauId, places);
+        }
+    }
+    
+    private void ajuster(long creneauId, int delta) {
+        LongIntHashMap segment = segment(creneauId);
+        synchronized (segment) {
+            int places = segment.get(creneauId, NON_SUIVI);
+            if (places != NON_SUIVI) {
+                segment.put(creneauId, places + delta);
+            }
+        }
+    }
+    
+    private LongIntHashMap segment(long creneauId) {
+        return segments[indexSegment(creneauId)];
+    }
+    
+    private static int indexSegment(long creneauId) {
+        long h = creneauId * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 58);
+    }
+    
+    private static void executerApresCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    /**
+     * Permis provisoire sur des places : rendu au registre si la transaction est annulée
+     */
+    public static final class Permis implements TransactionSynchronization {
+        
+        private final RegistreCapacite registre;
+        private final long creneauId;
+        private final boolean suivi;
+        private volatile int places;
+        
+        private Permis(RegistreCapacite registre, long creneauId, int places, boolean suivi) {
+            this.registre = registre;
+            this.creneauId = creneauId;
+            this.places = places;
+            this.suivi = suivi;
+        }
+        
+        /**
+         * Nombre de places couvertes par le permis
+         */
+        public int getPlaces() {
+            return places;
+        }
+        
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED && suivi && places > 0) {
+                registre.ajuster(creneauId, places);
+            }
+        }
+    }
+}
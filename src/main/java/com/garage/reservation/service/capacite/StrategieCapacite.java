@@ -0,0 +1,36 @@
+package com.garage.reservation.service.capacite;
+
+/**
+ * Stratégie de prise de place sur un créneau
+ * (appelée dans la transaction de la réservation, avant l'insertion)
+ * Une stratégie qui rejoue ses conflits lève ConflitVersionException : la transaction est annulée puis
+ * rejouée hors transaction, après l'attente fixée par preparerNouvelEssai
+ */
+public interface StrategieCapacite {
+    
+    /**
+     * Type de la stratégie (valeur de la propriété garage.reservation.concurrence.strategie)
+     */
+    TypeStrategieCapacite getType();
+    
+    /**
+     * Occupe une place du créneau
+     * Retourne false si le créneau est complet ou n'existe pas
+     */
+    boolean occuperPlace(Long creneauId);
+    
+    /**
+     * Attend avant de rejouer une transaction annulée par un conflit (appelée hors transaction)
+     * Retourne false si la stratégie ne rejoue pas ou si ses tentatives sont épuisées
+     */
+    default boolean preparerNouvelEssai(int tentative) {
+        return false;
+    }
+    
+    /**
+     * Nombre cumulé de réessais dus aux conflits (0 pour les stratégies sans réessai)
+     */
+    default long getNombreReessais() {
+        return 0;
+    }
+}
@@ -0,0 +1,26 @@
+package com.garage.reservation.service.capacite;
+
+import com.garage.reservation.repository.CreneauRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mise à jour conditionnelle : UPDATE ... WHERE places_reservees < capacite_totale
+ * La base évalue la condition et pose le verrou de ligne en une seule instruction
+ */
+@Component
+@RequiredArgsConstructor
+public class StrategieCapaciteConditionnelle implements StrategieCapacite {
+    
+    private final CreneauRepository creneauRepository;
+    
+    @Override
+    public TypeStrategieCapacite getType() {
+        return TypeStrategieCapacite.CONDITIONNELLE;
+    }
+    
+    @Override
+    public boolean occuperPlace(Long creneauId) {
+        return creneauRepository.occuperPlace(creneauId) == 1;
+    }
+}
@@ -0,0 +1,88 @@
+package com.garage.reservation.service.capacite;
+
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.repository.EtatCapacite;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verrou optimiste : lecture de la version du créneau puis mise à jour conditionnée par cette version
+ * En cas de conflit, la transaction est annulée puis rejouée avec attente exponentielle bornée ; l'attente
+ * a lieu hors transaction et ne retient ni verrou ni transaction ouverte
+ */
+@Component
+@Slf4j
+public class StrategieCapaciteOptimiste implements StrategieCapacite {
+    
+    private final CreneauRepository creneauRepository;
+    private final int maxTentatives;
+    private final long delaiInitialMs;
+    private final long delaiMaxMs;
+    private final LongAdder reessais = new LongAdder();
+    
+    public StrategieCapaciteOptimiste(
+            CreneauRepository creneauRepository,
+            @Value("${garage.reservation.concurrence.optimiste.max-tentatives:5}") int maxTentatives,
+            @Value("${garage.reservation.concurrence.optimiste.delai-initial-ms:5}") long delaiInitialMs,
+            @Value("${garage.reservation.concurrence.optimiste.delai-max-ms:100}") long delaiMaxMs) {
+        this.creneauRepository = creneauRepository;
+        this.maxTentatives = maxTentatives;
+        this.delaiInitialMs = delaiInitialMs;
+        this.delaiMaxMs = delaiMaxMs;
+    }
+    
+    @Override
+    public TypeStrategieCapacite getType() {
+        return TypeStrategieCapacite.OPTIMISTE;
+    }
+    
+    @Override
+    public boolean occuperPlace(Long creneauId) {
+        Optional<EtatCapacite> etatOpt = creneauRepository.findEtatCapacite(creneauId);
+        if (etatOpt.isEmpty() || !etatOpt.get().aUnePlaceLibre()) {
+            return false;
+        }
+        
+        if (creneauRepository.occuperPlaceVersionnee(creneauId, etatOpt.get().version()) == 1) {
+            return true;
+        }
+        
+        // Conflit : une autre transaction a modifié le créneau entre la lecture et la mise à jour
+        throw new ConflitVersionException(this);
+    }
+    
+    @Override
+    public boolean preparerNouvelEssai(int tentative) {
+        if (tentative >= maxTentatives) {
+            log.warn("⚠️  Abandon d'une réservation après {} conflits de version", maxTentatives);
+            return false;
+        }
+        reessais.increment();
+        attendre(tentative);
+        return true;
+    }
+    
+    @Override
+    public long getNombreReessais() {
+        return reessais.sum();
+    }
+    
+    /**
+     * Attente exponentielle avec gigue (évite que les transactions en conflit se retrouvent en même temps)
+     */
+    private void attendre(int tentative) {
+        long plafond = Math.min(delaiMaxMs, delaiInitialMs << (tentative - 1));
+        long delai = ThreadLocalRandom.current().nextLong(plafond / 2, plafond + 1);
+        try {
+            Thread.sleep(delai);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Réservation interrompue", e);
+        }
+    }
+}
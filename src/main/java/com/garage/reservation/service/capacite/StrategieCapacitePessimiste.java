@@ -0,0 +1,39 @@
+package com.garage.reservation.service.capacite;
+
+import com.garage.reservation.model.Creneau;
+import com.garage.reservation.repository.CreneauRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Verrou pessimiste : SELECT ... FOR UPDATE sur le créneau, vérification puis incrément
+ * Les transactions concurrentes sur le même créneau attendent la fin de la précédente
+ */
+@Component
+@RequiredArgsConstructor
+public class StrategieCapacitePessimiste implements StrategieCapacite {
+    
+    private final CreneauRepository creneauRepository;
+    
+    @Override
+    public TypeStrategieCapacite getType() {
+        return TypeStrategieCapacite.PESSIMISTE;
+    }
+    
+    @Override
+    public boolean occuperPlace(Long creneauId) {
+        Optional<Creneau> creneauOpt = creneauRepository.findByIdForUpdate(creneauId);
+        if (creneauOpt.isEmpty() || !creneauOpt.get().estDisponible()) {
+            return false;
+        }
+        
+        // Le verrou est tenu jusqu'au commit : l'incrément est écrit au flush
+        Creneau creneau = creneauOpt.get();
+        int placesReservees = creneau.getPlacesReservees() + 1;
+        creneau.setPlacesReservees(placesReservees);
+        creneau.setDisponible(placesReservees + creneau.getNombreRetenues() < creneau.getCapaciteTotale());
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package com.garage.reservation.service.capacite;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Registre des stratégies de capacité
+ * La stratégie utilisée par défaut est choisie par la propriété garage.reservation.concurrence.strategie
+ */
+@Component
+@Slf4j
+public class StrategiesCapacite {
+    
+    private final Map<TypeStrategieCapacite, StrategieCapacite> strategies = new EnumMap<>(TypeStrategieCapacite.class);
+    private final StrategieCapacite strategieParDefaut;
+    
+    public StrategiesCapacite(
+            List<StrategieCapacite> strategies,
+            @Value("${garage.reservation.concurrence.strategie:CONDITIONNELLE}") TypeStrategieCapacite typeParDefaut) {
+        strategies.forEach(strategie -> this.strategies.put(strategie.getType(), strategie));
+        this.strategieParDefaut = trouver(this.strategies, typeParDefaut);
+        log.info("🔒 Stratégie de concurrence des réservations : {}", typeParDefaut.getLibelle());
+    }
+    
+    /**
+     * Stratégie configurée pour l'application
+     */
+    public StrategieCapacite parDefaut() {
+        return strategieParDefaut;
+    }
+    
+    /**
+     * Stratégie d'un type donné
+     */
+    public StrategieCapacite get(TypeStrategieCapacite type) {
+        return trouver(strategies, type);
+    }
+    
+    /**
+     * Exécute une transaction de réservation et la rejoue tant que la stratégie en conflit le permet
+     * Sans effet dans une transaction déjà ouverte : le conflit remonte jusqu'à celui qui l'a ouverte
+     */
+    public <T> T rejouerSurConflit(Supplier<T> transaction) {
+        for (int tentative = 1; ; tentative++) {
+            try {
+                return transaction.get();
+            } catch (ConflitVersionException e) {
+                if (TransactionSynchronizationManager.isActualTransactionActive()
+                        || !e.getStrategie().preparerNouvelEssai(tentative)) {
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Stratégie d'un type parmi celles enregistrées (statique : appelée par le constructeur sans exposer l'instance)
+     */
+    private static StrategieCapacite trouver(Map<TypeStrategieCapacite, StrategieCapacite> strategies,
+                                             TypeStrategieCapacite type) {
+        StrategieCapacite strategie = strategies.get(type);
+        if (strategie == null) {
+            throw new IllegalArgumentException("Stratégie de concurrence inconnue : " + type);
+        }
+        return strategie;
+    }
+}
@@ -0,0 +1,20 @@
+package com.garage.reservation.service.capacite;
+
+/**
+ * Modèles de contrôle de concurrence pour la prise de place sur un créneau
+ */
+public enum TypeStrategieCapacite {
+    CONDITIONNELLE("Mise à jour conditionnelle"),
+    PESSIMISTE("Verrou pessimiste (SELECT ... FOR UPDATE)"),
+    OPTIMISTE("Verrou optimiste (@Version) avec réessais");
+
+    private final String libelle;
+
+    TypeStrategieCapacite(String libelle) {
+        this.libelle = libelle;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+}
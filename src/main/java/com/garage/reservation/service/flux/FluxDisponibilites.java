@@ -0,0 +1,359 @@
+package com.garage.reservation.service.flux;
+
+import com.garage.reservation.dto.CreneauDTO;
+import com.garage.reservation.dto.DeltaCreneauDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.service.cache.IndexOccupation;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Flux SSE des changements de disponibilité des créneaux d'une fenêtre
+ *
+ * Chaque abonné surveille une fenêtre d'heures de début ; il est inscrit dans un registre par
+ * jour (UTC) pour qu'une modification ne consulte que les abonnés des jours touchés. Après chaque
+ * commit (CreneauxModifiesEvent), les créneaux modifiés sont relus une seule fois puis déposés
+ * dans le tampon de chaque abonné concerné, sans attente : le tampon ne garde que la dernière
+ * valeur de chaque créneau et, s'il déborde, est remplacé par un unique événement "recharger".
+ * Un créneau déjà envoyé à un abonné qui ne figure plus dans la relecture (supprimé) lui est
+ * envoyé avec 0 place, pour qu'il ne reste pas affiché comme réservable.
+ *
+ * L'envoi au client est fait par un fil virtuel par abonné, endormi entre deux changements :
+ * une connexion inactive ne coûte qu'un fil virtuel suspendu. Un commentaire est envoyé à
+ * intervalle régulier pour détecter les connexions fermées.
+ */
+@Component
+@Slf4j
+public class FluxDisponibilites {
+
+    /** Nom de l'événement portant une liste de DeltaCreneauDTO */
+    public static final String EVENEMENT_CRENEAUX = "creneaux";
+
+    /** Nom de l'événement demandant au client de relire la fenêtre (tampon débordé, modification globale) */
+    public static final String EVENEMENT_RECHARGER = "recharger";
+
+    private static final long SECONDES_PAR_JOUR = 86_400L;
+
+    private final CreneauRepository creneauRepository;
+    private final IndexOccupation indexOccupation;
+    private final Duration dureeMax;
+    private final int abonnesMax;
+    private final int tamponMax;
+    private final int joursMax;
+    private final Duration battement;
+
+    private final Set<Abonne> abonnes = ConcurrentHashMap.newKeySet();
+    /** Abonnés par jour (epoch UTC) couvert par leur fenêtre */
+    private final Map<Long, Set<Abonne>> abonnesParJour = new ConcurrentHashMap<>();
+    private final AtomicLong numero = new AtomicLong();
+
+    public FluxDisponibilites(CreneauRepository creneauRepository,
+                              IndexOccupation indexOccupation,
+                              @Value("${garage.reservation.flux.duree-max-minutes:30}") long dureeMaxMinutes,
+                              @Value("${garage.reservation.flux.abonnes-max:10000}") int abonnesMax,
+                              @Value("${garage.reservation.flux.tampon-max:500}") int tamponMax,
+                              @Value("${garage.reservation.flux.jours-max:31}") int joursMax,
+                              @Value("${garage.reservation.flux.battement-secondes:25}") long battementSecondes) {
+        this.creneauRepository = creneauRepository;
+        this.indexOccupation = indexOccupation;
+        this.dureeMax = Duration.ofMinutes(dureeMaxMinutes);
+        this.abonnesMax = abonnesMax;
+        this.tamponMax = tamponMax;
+        this.joursMax = joursMax;
+        this.battement = Duration.ofSeconds(battementSecondes);
+    }
+
+    /**
+     * Ouvre un flux sur les créneaux commençant dans [debut, fin) : l'état courant de la fenêtre
+     * est envoyé d'abord, puis uniquement les créneaux dont la disponibilité change
+     * Lève IllegalArgumentException si la fenêtre est invalide ou trop longue,
+     * IllegalStateException si le nombre maximal d'abonnés est atteint
+     */
+    public SseEmitter abonner(Instant debut, Instant fin) {
+        if (!fin.isAfter(debut)) {
+            throw new IllegalArgumentException("La date de fin doit être postérieure à la date de début");
+        }
+        if (Duration.between(debut, fin).compareTo(Duration.ofDays(joursMax)) > 0) {
+            throw new IllegalArgumentException("La fenêtre surveillée ne peut pas dépasser " + joursMax + " jours");
+        }
+        if (abonnes.size() >= abonnesMax) {
+            throw new IllegalStateException("Nombre maximal d'abonnés au flux des disponibilités atteint");
+        }
+
+        SseEmitter emitter = new SseEmitter(dureeMax.toMillis());
+        Abonne abonne = new Abonne(emitter, debut, fin);
+        emitter.onCompletion(() -> retirer(abonne));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> retirer(abonne));
+
+        // Inscription avant la lecture de l'état initial : aucun changement ne peut être manqué.
+        // L'état initial ne remplace pas un changement déjà reçu (plus récent), et l'envoi ne
+        // commence qu'ensuite : le client ne reçoit jamais une valeur plus ancienne qu'une autre.
+        abonnes.add(abonne);
+        for (long jour = jourEpoch(debut); jour <= jourEpoch(fin.minusNanos(1)); jour++) {
+            abonnesParJour.computeIfAbsent(jour, j -> ConcurrentHashMap.newKeySet()).add(abonne);
+        }
+        abonne.publier(deltas(lire(debut, fin), abonne), false);
+        Thread.ofVirtual().name("flux-disponibilites-" + numero.incrementAndGet()).start(abonne);
+
+        log.debug("📡 Abonnement au flux des disponibilités [{} ; {}) ({} abonnés)", debut, fin, abonnes.size());
+        return emitter;
+    }
+
+    /**
+     * Nombre de flux ouverts
+     */
+    public int getNombreAbonnes() {
+        return abonnes.size();
+    }
+
+    /**
+     * Dépose les nouvelles disponibilités des créneaux modifiés chez les abonnés concernés,
+     * après l'actualisation de l'index d'occupation dont elles sont lues
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(30)
+    public void diffuser(CreneauxModifiesEvent event) {
+        if (abonnes.isEmpty()) {
+            return;
+        }
+        if (event.concerneTous() || Duration.between(event.debut(), event.fin()).toDays() > joursMax) {
+            abonnes.forEach(Abonne::demanderRechargement);
+            return;
+        }
+
+        Set<Abonne> concernes = new HashSet<>();
+        for (long jour = jourEpoch(event.debut()); jour <= jourEpoch(event.fin()); jour++) {
+            Set<Abonne> duJour = abonnesParJour.get(jour);
+            if (duJour != null) {
+                concernes.addAll(duJour);
+            }
+        }
+        if (concernes.isEmpty()) {
+            return;
+        }
+
+        // Bornes de l'événement incluses : fin exclusive une microseconde plus loin (précision des colonnes)
+        List<CreneauDTO> creneaux = lire(event.debut(), event.fin().plus(1, ChronoUnit.MICROS));
+        for (Abonne abonne : concernes) {
+            Map<Long, Integer> deltas = deltas(creneaux, abonne);
+            abonne.retirerDisparus(event.debut(), event.fin(), deltas);
+            if (!deltas.isEmpty()) {
+                abonne.publier(deltas, true);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        abonnes.forEach(abonne -> {
+            abonne.fermer();
+            abonne.emitter.complete();
+        });
+    }
+
+    private void retirer(Abonne abonne) {
+        abonne.fermer();
+        if (!abonnes.remove(abonne)) {
+            return;
+        }
+        for (long jour = jourEpoch(abonne.debut); jour <= jourEpoch(abonne.fin.minusNanos(1)); jour++) {
+            abonnesParJour.computeIfPresent(jour, (j, duJour) -> {
+                duJour.remove(abonne);
+                return duJour.isEmpty() ? null : duJour;
+            });
+        }
+        log.debug("📴 Fin d'un flux des disponibilités ({} abonnés)", abonnes.size());
+    }
+
+    private List<CreneauDTO> lire(Instant debut, Instant fin) {
+        return indexOccupation.rechercher(debut, fin, null, false)
+                .orElseGet(() -> creneauRepository.findCreneauxByDate(debut, fin));
+    }
+
+    private static Map<Long, Integer> deltas(List<CreneauDTO> creneaux, Abonne abonne) {
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (CreneauDTO creneau : creneaux) {
+            if (abonne.couvre(creneau.getHeureDebut())) {
+                deltas.put(creneau.getId(), placesLibres(creneau));
+                abonne.connus.put(creneau.getId(), creneau.getHeureDebut());
+            }
+        }
+        return deltas;
+    }
+
+    private static int placesLibres(CreneauDTO creneau) {
+        if (!Boolean.TRUE.equals(creneau.getDisponible())) {
+            return 0;
+        }
+        return Math.max(0, creneau.getCapaciteTotale() - creneau.getNombreReservations() - creneau.getNombreRetenues());
+    }
+
+    private static long jourEpoch(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), SECONDES_PAR_JOUR);
+    }
+
+    /**
+     * Abonné au flux : tampon des derniers changements par créneau et fil virtuel d'envoi
+     * (ReentrantLock plutôt que synchronized : un fil virtuel en attente libère son porteur)
+     */
+    private final class Abonne implements Runnable {
+
+        private final SseEmitter emitter;
+        private final Instant debut;
+        private final Instant fin;
+        private final ReentrantLock verrou = new ReentrantLock();
+        private final Condition changement = verrou.newCondition();
+        /** Heure de début des créneaux déjà déposés, pour signaler ceux qui disparaissent */
+        private final Map<Long, Instant> connus = new ConcurrentHashMap<>();
+
+        private Map<Long, Integer> enAttente = new LinkedHashMap<>();
+        private boolean recharger;
+        private boolean ferme;
+
+        private Abonne(SseEmitter emitter, Instant debut, Instant fin) {
+            this.emitter = emitter;
+            this.debut = debut;
+            this.fin = fin;
+        }
+
+        private boolean couvre(Instant heureDebut) {
+            return !heureDebut.isBefore(debut) && heureDebut.isBefore(fin);
+        }
+
+        /**
+         * Ajoute avec 0 place les créneaux connus commençant dans [debutModifie, finModifiee]
+         * qui n'ont pas été relus : ils ont été supprimés (ou déplacés hors de la fenêtre)
+         */
+        private void retirerDisparus(Instant debutModifie, Instant finModifiee, Map<Long, Integer> deltas) {
+            connus.entrySet().removeIf(connu -> {
+                Instant heureDebut = connu.getValue();
+                if (heureDebut.isBefore(debutModifie) || heureDebut.isAfter(finModifiee)
+                        || deltas.containsKey(connu.getKey())) {
+                    return false;
+                }
+                deltas.put(connu.getKey(), 0);
+                return true;
+            });
+        }
+
+        /**
+         * Dépose des places libres par créneau ; remplacer = false conserve les valeurs déjà en attente
+         */
+        private void publier(Map<Long, Integer> deltas, boolean remplacer) {
+            verrou.lock();
+            try {
+                if (ferme || recharger) {
+                    return;
+                }
+                if (remplacer) {
+                    enAttente.putAll(deltas);
+                } else {
+                    deltas.forEach(enAttente::putIfAbsent);
+                }
+                if (enAttente.size() > tamponMax) {
+                    // Client trop lent ou changement massif : une relecture remplace les changements accumulés
+                    enAttente.clear();
+                    recharger = true;
+                }
+                changement.signal();
+            } finally {
+                verrou.unlock();
+            }
+        }
+
+        private void demanderRechargement() {
+            verrou.lock();
+            try {
+                if (!ferme) {
+                    enAttente.clear();
+                    recharger = true;
+                    changement.signal();
+                }
+            } finally {
+                verrou.unlock();
+            }
+        }
+
+        private void fermer() {
+            verrou.lock();
+            try {
+                ferme = true;
+                changement.signal();
+            } finally {
+                verrou.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Map<Long, Integer> lot;
+                    boolean relire;
+                    verrou.lock();
+                    try {
+                        long attenteNanos = battement.toNanos();
+                        while (!ferme && !recharger && enAttente.isEmpty() && attenteNanos > 0) {
+                            attenteNanos = changement.awaitNanos(attenteNanos);
+                        }
+                        if (ferme) {
+                            return;
+                        }
+                        lot = enAttente;
+                        relire = recharger;
+                        enAttente = new LinkedHashMap<>();
+                        recharger = false;
+                    } finally {
+                        verrou.unlock();
+                    }
+                    envoyer(lot, relire);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                // Client déconnecté ou flux déjà terminé
+                log.trace("Flux des disponibilités interrompu : {}", e.getMessage());
+            } finally {
+                retirer(this);
+            }
+        }
+
+        private void envoyer(Map<Long, Integer> lot, boolean relire) throws IOException {
+            if (relire) {
+                emitter.send(SseEmitter.event()
+                        .name(EVENEMENT_RECHARGER)
+                        .data(Map.of("debut", debut.toString(), "fin", fin.toString()), MediaType.APPLICATION_JSON));
+            } else if (!lot.isEmpty()) {
+                List<DeltaCreneauDTO> deltas = new ArrayList<>(lot.size());
+                lot.forEach((id, places) -> deltas.add(new DeltaCreneauDTO(id, places)));
+                emitter.send(SseEmitter.event().name(EVENEMENT_CRENEAUX).data(deltas, MediaType.APPLICATION_JSON));
+            } else {
+                // Battement : détecte les connexions fermées et traverse les proxys à délai d'inactivité
+                emitter.send(SseEmitter.event().comment(""));
+            }
+        }
+    }
+}
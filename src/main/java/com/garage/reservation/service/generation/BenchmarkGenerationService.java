@@ -0,0 +1,124 @@
+package com.garage.reservation.service.generation;
+
+import com.garage.reservation.dto.ResultatGenerationDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.model.Creneau;
+import com.garage.reservation.model.MethodeInsertion;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.service.CalendrierService;
+import com.garage.reservation.service.cache.CacheSecondNiveau;
+import com.garage.reservation.service.tache.SuiviTache;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Banc d'essai de la génération de créneaux (profil dev, base H2)
+ * Insère la même grille de créneaux par JPA saveAll (chemin historique) puis par l'insertion en masse,
+ * mesure le débit de chacune et supprime les créneaux de test
+ */
+@Service
+@Profile("dev")
+@RequiredArgsConstructor
+@Slf4j
+public class BenchmarkGenerationService {
+    
+    private final InsertionCreneauxMasse insertionCreneauxMasse;
+    private final CreneauRepository creneauRepository;
+    private final CalendrierService calendrierService;
+    private final CacheSecondNiveau cacheSecondNiveau;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    
+    /**
+     * Compare saveAll et l'insertion en masse sur jours journées de créneaux de dureeMinutes (0h-24h)
+     */
+    public List<ResultatGenerationDTO> comparer(int jours, int dureeMinutes, int capacite) {
+        List<ResultatGenerationDTO> resultats = new ArrayList<>();
+        for (MethodeInsertion methode : List.of(MethodeInsertion.SAVE_ALL, MethodeInsertion.LOTS_JDBC)) {
+            // Loin dans le futur, à l'écart des données réelles et du banc d'essai de concurrence
+            LocalDate premierJour = LocalDate.of(2200, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(100_000));
+            List<Creneau> creneaux = grille(premierJour, jours, dureeMinutes, capacite);
+            try {
+                ResultatGenerationDTO resultat = methode == MethodeInsertion.SAVE_ALL
+                        ? parSaveAll(creneaux)
+                        : insertionCreneauxMasse.inserer(creneaux, SuiviTache.AUCUN);
+                log.info("📊 Banc d'essai génération {} : {}", methode, resultat);
+                resultats.add(resultat);
+            } finally {
+                supprimerDonneesDeTest(premierJour, premierJour.plusDays(jours));
+            }
+        }
+        return resultats;
+    }
+    
+    /**
+     * Chemin historique : saveAll dans une seule transaction (un INSERT par créneau avec IDENTITY)
+     */
+    private ResultatGenerationDTO parSaveAll(List<Creneau> creneaux) {
+        long debut = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Creneau> enregistres = creneauRepository.saveAll(creneaux);
+            calendrierService.ajouterCreneaux(enregistres);
+            eventPublisher.publishEvent(CreneauxModifiesEvent.periode(
+                    enregistres.get(0).getHeureDebut(), enregistres.get(enregistres.size() - 1).getHeureDebut()));
+        });
+        long dureeNanos = System.nanoTime() - debut;
+        // Le contexte de persistance de la requête (open-in-view) garde les entités enregistrées :
+        // sans ce vidage, chaque transaction suivante de la requête les contrôlerait toutes
+        entityManager.clear();
+        return ResultatGenerationDTO.builder()
+                .methode(MethodeInsertion.SAVE_ALL)
+                .nombreCreneaux(creneaux.size())
+                .nombreLots(1)
+                .dureeMs(dureeNanos / 1_000_000)
+                .lignesParSeconde(creneaux.size() / (dureeNanos / 1e9))
+                .build();
+    }
+    
+    private static List<Creneau> grille(LocalDate premierJour, int jours, int dureeMinutes, int capacite) {
+        Instant debut = premierJour.atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant fin = debut.plus(jours, ChronoUnit.DAYS);
+        Duration duree = Duration.ofMinutes(dureeMinutes);
+        List<Creneau> creneaux = new ArrayList<>();
+        for (Instant heureDebut = debut; heureDebut.isBefore(fin); heureDebut = heureDebut.plus(duree)) {
+            creneaux.add(Creneau.builder()
+                    .heureDebut(heureDebut)
+                    .heureFin(heureDebut.plus(duree))
+                    .capaciteTotale(capacite)
+                    .build());
+        }
+        return creneaux;
+    }
+    
+    private void supprimerDonneesDeTest(LocalDate premierJour, LocalDate finExclue) {
+        Instant debut = premierJour.atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant fin = finExclue.atStartOfDay().toInstant(ZoneOffset.UTC);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM creneaux WHERE heure_debut >= :debut AND heure_debut < :fin",
+                    Map.of("debut", debut.atOffset(ZoneOffset.UTC), "fin", fin.atOffset(ZoneOffset.UTC)));
+            jdbcTemplate.update("DELETE FROM disponibilite_jour WHERE jour >= :debut AND jour < :fin",
+                    Map.of("debut", premierJour, "fin", finExclue));
+            eventPublisher.publishEvent(CreneauxModifiesEvent.periode(debut, fin.minusSeconds(1)));
+        });
+        // Suppression SQL directe : Hibernate ne la voit pas
+        cacheSecondNiveau.vider();
+    }
+}
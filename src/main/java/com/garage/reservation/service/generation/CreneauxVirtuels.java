@@ -0,0 +1,313 @@
+package com.garage.reservation.service.generation;
+
+import com.garage.reservation.dto.CreneauDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.model.Creneau;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.repository.PlageCreneau;
+import com.garage.reservation.service.ModeleHoraireService;
+import com.garage.reservation.service.cache.IndexOccupation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Créneaux virtuels : créneaux prévus par les règles horaires, calculés à la lecture sans ligne en base
+ *
+ * Un créneau virtuel a pour identifiant l'opposé de son heure de début en minutes depuis l'epoch ; il n'est
+ * matérialisé (MaterialisationCreneaux) qu'à sa première réservation. Les lectures complètent les créneaux
+ * matérialisés par les créneaux virtuels qu'aucun d'eux ne chevauche, de début du jour courant à la fin
+ * de l'horizon de génération. Les règles horaires sont gardées en mémoire et relues après toute
+ * modification signalée à tous les créneaux (modèles d'horaires, jours fériés).
+ */
+@Component
+public class CreneauxVirtuels {
+
+    private final ModeleHoraireService modeleHoraireService;
+    private final CreneauRepository creneauRepository;
+    private final IndexOccupation indexOccupation;
+    private final boolean actif;
+    private final int horizonSemaines;
+
+    private final Object verrouRegles = new Object();
+    private volatile ReglesHoraires regles;
+    /** Incrémenté à chaque invalidation : une lecture commencée avant n'est pas conservée */
+    private long versionRegles;
+
+    public CreneauxVirtuels(ModeleHoraireService modeleHoraireService,
+                            CreneauRepository creneauRepository,
+                            IndexOccupation indexOccupation,
+                            @Value("${garage.reservation.creneaux-virtuels.enabled:false}") boolean actif,
+                            @Value("${garage.reservation.generation.horizon-semaines:8}") int horizonSemaines) {
+        this.modeleHoraireService = modeleHoraireService;
+        this.creneauRepository = creneauRepository;
+        this.indexOccupation = indexOccupation;
+        this.actif = actif;
+        this.horizonSemaines = horizonSemaines;
+    }
+
+    public boolean isActif() {
+        return actif;
+    }
+
+    public static boolean estVirtuel(Long id) {
+        return id != null && id < 0;
+    }
+
+    /**
+     * Identifiant virtuel du créneau commençant à cette heure
+     */
+    public static long identifiant(Instant heureDebut) {
+        return -(heureDebut.getEpochSecond() / 60);
+    }
+
+    /**
+     * Créneau prévu désigné par un identifiant virtuel ; vide si l'identifiant ne désigne aucun créneau
+     * prévu dans la fenêtre des créneaux virtuels
+     */
+    public Optional<Creneau> prevu(long id) {
+        if (!actif || id >= 0) {
+            return Optional.empty();
+        }
+        LocalDate premierJour = premierJour();
+        // Fenêtre [premierJour, dernierJour] : identifiants dans (-fin en minutes, -début en minutes]
+        if (id > identifiant(debutJour(premierJour)) || id <= identifiant(debutJour(dernierJour(premierJour).plusDays(1)))) {
+            return Optional.empty();
+        }
+        return regles().creneauPrevu(Instant.ofEpochSecond(-id * 60));
+    }
+
+    /**
+     * Complète les créneaux matérialisés dont l'heure de début est dans [debut, finDebut) (et l'heure de fin
+     * au plus finMax si fourni) par les créneaux virtuels de la même fenêtre, dans l'ordre des heures de début
+     * Sans créneau virtuel dans la fenêtre, la liste est rendue telle quelle, sans lecture supplémentaire
+     */
+    public List<CreneauDTO> completer(List<CreneauDTO> materialises, Instant debut, Instant finDebut, Instant finMax,
+                                      boolean disponiblesOnly) {
+        List<Creneau> candidats = candidats(debut, finDebut).stream()
+                .filter(creneau -> finMax == null || !creneau.getHeureFin().isAfter(finMax))
+                .toList();
+        if (candidats.isEmpty()) {
+            return materialises;
+        }
+        // Sans filtre, la liste contient déjà tous les créneaux matérialisés de la fenêtre
+        PlagesOccupees occupees = new PlagesOccupees(!disponiblesOnly && finMax == null
+                ? materialises.stream().map(c -> new PlageCreneau(c.getHeureDebut(), c.getHeureFin())).toList()
+                : lirePlages(debut, finDebut));
+
+        List<CreneauDTO> creneaux = new ArrayList<>(materialises);
+        candidats.stream()
+                .filter(creneau -> !occupees.chevauche(creneau.getHeureDebut(), creneau.getHeureFin()))
+                .map(CreneauxVirtuels::toDTO)
+                .forEach(creneaux::add);
+        creneaux.sort(Comparator.comparing(CreneauDTO::getHeureDebut).thenComparing(CreneauDTO::getId));
+        return creneaux;
+    }
+
+    /**
+     * Au plus limite créneaux virtuels commençant après maintenant et après la position (heureDebut, id)
+     * d'un curseur, dans l'ordre (heureDebut, id) ; parcours par semaines, une lecture des plages par semaine
+     */
+    public List<CreneauDTO> disponiblesApres(Instant maintenant, Instant heureCurseur, long idCurseur, int limite) {
+        List<CreneauDTO> creneaux = new ArrayList<>();
+        if (!actif) {
+            return creneaux;
+        }
+        LocalDate premierJour = premierJour();
+        LocalDate dernierJour = dernierJour(premierJour);
+        LocalDate depart = LocalDate.ofInstant(heureCurseur.isAfter(maintenant) ? heureCurseur : maintenant, ZoneOffset.UTC);
+
+        for (LocalDate jour = depart.isAfter(premierJour) ? depart : premierJour;
+             !jour.isAfter(dernierJour) && creneaux.size() < limite;
+             jour = jour.plusWeeks(1)) {
+            LocalDate fin = jour.plusDays(6).isAfter(dernierJour) ? dernierJour : jour.plusDays(6);
+            List<Creneau> candidats = regles().creneauxPrevus(jour, fin).stream()
+                    .filter(creneau -> creneau.getHeureDebut().isAfter(maintenant))
+                    .filter(creneau -> creneau.getHeureDebut().isAfter(heureCurseur)
+                            || (creneau.getHeureDebut().equals(heureCurseur) && identifiant(creneau.getHeureDebut()) > idCurseur))
+                    .toList();
+            if (candidats.isEmpty()) {
+                continue;
+            }
+            PlagesOccupees occupees = new PlagesOccupees(lirePlages(debutJour(jour), debutJour(fin.plusDays(1))));
+            for (Creneau creneau : candidats) {
+                if (!occupees.chevauche(creneau.getHeureDebut(), creneau.getHeureFin())) {
+                    creneaux.add(toDTO(creneau));
+                    if (creneaux.size() == limite) {
+                        break;
+                    }
+                }
+            }
+        }
+        return creneaux;
+    }
+
+    /**
+     * Nombre de créneaux virtuels commençant après maintenant
+     */
+    public long compterDisponibles(Instant maintenant) {
+        if (!actif) {
+            return 0;
+        }
+        LocalDate premierJour = premierJour();
+        Instant fin = debutJour(dernierJour(premierJour).plusDays(1));
+        List<Creneau> candidats = candidats(maintenant, fin).stream()
+                .filter(creneau -> creneau.getHeureDebut().isAfter(maintenant))
+                .toList();
+        if (candidats.isEmpty()) {
+            return 0;
+        }
+        PlagesOccupees occupees = new PlagesOccupees(lirePlages(maintenant, fin));
+        return candidats.stream()
+                .filter(creneau -> !occupees.chevauche(creneau.getHeureDebut(), creneau.getHeureFin()))
+                .count();
+    }
+
+    /**
+     * Créneaux virtuels de chaque jour entre deux dates incluses (jours sans créneau virtuel absents)
+     */
+    public Map<LocalDate, List<Creneau>> parJour(LocalDate debut, LocalDate fin) {
+        Map<LocalDate, List<Creneau>> parJour = new LinkedHashMap<>();
+        Instant finDebut = debutJour(fin.plusDays(1));
+        List<Creneau> candidats = candidats(debutJour(debut), finDebut);
+        if (candidats.isEmpty()) {
+            return parJour;
+        }
+        PlagesOccupees occupees = new PlagesOccupees(lirePlages(debutJour(debut), finDebut));
+        candidats.stream()
+                .filter(creneau -> !occupees.chevauche(creneau.getHeureDebut(), creneau.getHeureFin()))
+                .forEach(creneau -> parJour
+                        .computeIfAbsent(LocalDate.ofInstant(creneau.getHeureDebut(), ZoneOffset.UTC), jour -> new ArrayList<>())
+                        .add(creneau));
+        return parJour;
+    }
+
+    /**
+     * Créneaux virtuels dont l'heure de début est au plus tôt debut et l'heure de fin au plus tard fin, dans l'ordre
+     * des heures de début (exports) ; calculés jour par jour à la consommation du flux, un jour en mémoire à la fois
+     */
+    public Stream<CreneauDTO> flux(Instant debut, Instant fin, boolean disponiblesOnly) {
+        if (!actif || !debut.isBefore(fin)) {
+            return Stream.empty();
+        }
+        LocalDate premierJour = premierJour();
+        LocalDate dernierJour = dernierJour(premierJour);
+        LocalDate jourDebut = LocalDate.ofInstant(debut, ZoneOffset.UTC);
+        LocalDate jourFin = LocalDate.ofInstant(fin.minusNanos(1), ZoneOffset.UTC);
+        LocalDate de = jourDebut.isAfter(premierJour) ? jourDebut : premierJour;
+        LocalDate a = jourFin.isBefore(dernierJour) ? jourFin : dernierJour;
+        if (de.isAfter(a)) {
+            return Stream.empty();
+        }
+        return de.datesUntil(a.plusDays(1))
+                .flatMap(jour -> {
+                    Instant debutJour = debutJour(jour);
+                    Instant finJour = debutJour(jour.plusDays(1));
+                    return completer(List.of(), debutJour.isAfter(debut) ? debutJour : debut,
+                            finJour.isBefore(fin) ? finJour : fin, fin, true).stream();
+                })
+                .filter(creneau -> !disponiblesOnly || creneau.getDisponible());
+    }
+
+    /**
+     * Les règles horaires ont pu changer : relues à la prochaine lecture
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(5)
+    public void invalider(CreneauxModifiesEvent event) {
+        if (event.concerneTous()) {
+            synchronized (verrouRegles) {
+                versionRegles++;
+                regles = null;
+            }
+        }
+    }
+
+    /**
+     * Créneaux prévus dont l'heure de début est dans [debut, finDebut), limités à la fenêtre des créneaux virtuels
+     */
+    private List<Creneau> candidats(Instant debut, Instant finDebut) {
+        if (!actif || !debut.isBefore(finDebut)) {
+            return List.of();
+        }
+        LocalDate premierJour = premierJour();
+        LocalDate dernierJour = dernierJour(premierJour);
+        LocalDate jourDebut = LocalDate.ofInstant(debut, ZoneOffset.UTC);
+        LocalDate jourFin = LocalDate.ofInstant(finDebut.minusNanos(1), ZoneOffset.UTC);
+        LocalDate de = jourDebut.isAfter(premierJour) ? jourDebut : premierJour;
+        LocalDate a = jourFin.isBefore(dernierJour) ? jourFin : dernierJour;
+        if (de.isAfter(a)) {
+            return List.of();
+        }
+        return regles().creneauxPrevus(de, a).stream()
+                .filter(creneau -> !creneau.getHeureDebut().isBefore(debut) && creneau.getHeureDebut().isBefore(finDebut))
+                .toList();
+    }
+
+    /**
+     * Plages des créneaux matérialisés commençant dans [debut, finDebut), lues dans l'index d'occupation
+     * s'il est actif (sans entrée-sortie), sinon par une requête indexée
+     */
+    private List<PlageCreneau> lirePlages(Instant debut, Instant finDebut) {
+        return indexOccupation.rechercher(debut, finDebut, null, false)
+                .map(creneaux -> creneaux.stream().map(c -> new PlageCreneau(c.getHeureDebut(), c.getHeureFin())).toList())
+                .orElseGet(() -> creneauRepository.findPlages(debut, finDebut));
+    }
+
+    private ReglesHoraires regles() {
+        ReglesHoraires courantes = regles;
+        if (courantes != null) {
+            return courantes;
+        }
+        long version;
+        synchronized (verrouRegles) {
+            version = versionRegles;
+        }
+        courantes = modeleHoraireService.getRegles();
+        synchronized (verrouRegles) {
+            if (version == versionRegles) {
+                regles = courantes;
+            }
+        }
+        return courantes;
+    }
+
+    private LocalDate premierJour() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+
+    private LocalDate dernierJour(LocalDate premierJour) {
+        return premierJour.plusWeeks(horizonSemaines).minusDays(1);
+    }
+
+    private static Instant debutJour(LocalDate jour) {
+        return jour.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    /**
+     * Vue d'un créneau prévu non matérialisé (aucune réservation ni retenue)
+     */
+    public static CreneauDTO toDTO(Creneau creneau) {
+        return CreneauDTO.builder()
+                .id(identifiant(creneau.getHeureDebut()))
+                .heureDebut(creneau.getHeureDebut())
+                .heureFin(creneau.getHeureFin())
+                .disponible(creneau.getCapaciteTotale() > 0)
+                .capaciteTotale(creneau.getCapaciteTotale())
+                .nombreReservations(0)
+                .nombreRetenues(0)
+                .build();
+    }
+}
@@ -0,0 +1,191 @@
+package com.garage.reservation.service.generation;
+
+import com.garage.reservation.dto.ResultatGenerationDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.model.Creneau;
+import com.garage.reservation.model.MethodeInsertion;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.service.CalendrierService;
+import com.garage.reservation.service.cache.CacheSecondNiveau;
+import com.garage.reservation.service.capacite.RegistreCapacite;
+import com.garage.reservation.service.tache.SuiviTache;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Insertion en masse de créneaux, sans contexte de persistance
+ *
+ * Avec GenerationType.IDENTITY, Hibernate ne regroupe pas les insertions : saveAll coûte un aller-retour
+ * par créneau et garde toutes les entités en mémoire. Ici les créneaux sont écrits par lots JDBC (réécrits
+ * en INSERT multi-lignes par le pilote PostgreSQL) ou par COPY sur PostgreSQL, et chaque lot est validé
+ * dans sa propre transaction avec la synthèse quotidienne. Un échec n'annule que le lot en cours.
+ */
+@Component
+@Slf4j
+public class InsertionCreneauxMasse {
+
+    private static final String SQL_INSERT = "INSERT INTO creneaux (heure_debut, heure_fin, disponible, capacite_totale, " +
+            "places_reservees, places_retenues, version) VALUES (?, ?, ?, ?, 0, 0, 0)";
+
+    private static final String SQL_COPY = "COPY creneaux (heure_debut, heure_fin, disponible, capacite_totale, " +
+            "places_reservees, places_retenues, version) FROM STDIN WITH (FORMAT csv)";
+
+    /** Taille des sous-lots JDBC envoyés en un aller-retour */
+    private static final int TAILLE_BATCH_JDBC = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CreneauRepository creneauRepository;
+    private final CalendrierService calendrierService;
+    private final RegistreCapacite registreCapacite;
+    private final CacheSecondNiveau cacheSecondNiveau;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionLot;
+    private final int tailleLot;
+    private final boolean copyActive;
+
+    public InsertionCreneauxMasse(JdbcTemplate jdbcTemplate,
+                                  CreneauRepository creneauRepository,
+                                  CalendrierService calendrierService,
+                                  RegistreCapacite registreCapacite,
+                                  CacheSecondNiveau cacheSecondNiveau,
+                                  ApplicationEventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${garage.reservation.generation.taille-lot:5000}") int tailleLot,
+                                  @Value("${garage.reservation.generation.copy:true}") boolean copyActive) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.creneauRepository = creneauRepository;
+        this.calendrierService = calendrierService;
+        this.registreCapacite = registreCapacite;
+        this.cacheSecondNiveau = cacheSecondNiveau;
+        this.eventPublisher = eventPublisher;
+        this.transactionLot = new TransactionTemplate(transactionManager);
+        this.transactionLot.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tailleLot = tailleLot;
+        this.copyActive = copyActive;
+    }
+
+    /**
+     * N'insère que les créneaux prévus qui ne chevauchent aucun créneau existant : une génération relancée
+     * sur une période déjà couverte n'écrit rien. Les créneaux existants sont lus en une requête indexée ;
+     * la contrainte d'unicité de heure_debut rejette le lot d'une génération concurrente.
+     */
+    public ResultatGenerationDTO insererManquants(List<Creneau> prevus, SuiviTache suivi) {
+        List<Creneau> tries = prevus.stream().sorted(Comparator.comparing(Creneau::getHeureDebut)).toList();
+        List<Creneau> manquants = tries;
+        if (!tries.isEmpty()) {
+            Instant debut = tries.get(0).getHeureDebut();
+            Instant fin = tries.stream().map(Creneau::getHeureFin).max(Instant::compareTo).orElseThrow();
+            PlagesOccupees existantes = new PlagesOccupees(creneauRepository.findPlages(debut.minus(1, ChronoUnit.DAYS), fin));
+            manquants = tries.stream()
+                    .filter(creneau -> !existantes.chevauche(creneau.getHeureDebut(), creneau.getHeureFin()))
+                    .toList();
+        }
+
+        suivi.prevoir(manquants.size());
+        ResultatGenerationDTO resultat = inserer(manquants, suivi);
+        resultat.setNombreExistants(prevus.size() - manquants.size());
+        return resultat;
+    }
+
+    /**
+     * Insère les créneaux par lots validés séparément ; une annulation arrête l'insertion entre deux lots
+     */
+    public ResultatGenerationDTO inserer(List<Creneau> creneaux, SuiviTache suivi) {
+        long debut = System.nanoTime();
+        MethodeInsertion methode = MethodeInsertion.LOTS_JDBC;
+        int nombreLots = 0;
+        int nombreInseres = 0;
+        for (int i = 0; i < creneaux.size() && !suivi.estAnnulee(); i += tailleLot) {
+            List<Creneau> lot = creneaux.subList(i, Math.min(creneaux.size(), i + tailleLot));
+            methode = transactionLot.execute(status -> insererLot(lot));
+            cacheSecondNiveau.evincerRequetes();
+            nombreLots++;
+            nombreInseres += lot.size();
+            suivi.lotTraite(lot.size());
+        }
+        long dureeNanos = System.nanoTime() - debut;
+
+        ResultatGenerationDTO resultat = ResultatGenerationDTO.builder()
+                .methode(methode)
+                .nombreCreneaux(nombreInseres)
+                .nombreLots(nombreLots)
+                .dureeMs(dureeNanos / 1_000_000)
+                .lignesParSeconde(nombreInseres == 0 ? 0 : nombreInseres / (dureeNanos / 1e9))
+                .build();
+        log.info("⚡ {} créneaux insérés ({}, {} lots) : {} lignes/s", resultat.getNombreCreneaux(),
+                methode.getLibelle(), nombreLots, Math.round(resultat.getLignesParSeconde()));
+        return resultat;
+    }
+
+    /**
+     * Écrit un lot, le reporte dans la synthèse quotidienne et le registre de capacité,
+     * puis signale sa période aux caches (après commit)
+     */
+    private MethodeInsertion insererLot(List<Creneau> lot) {
+        MethodeInsertion methode = jdbcTemplate.execute((ConnectionCallback<MethodeInsertion>) connexion -> {
+            if (copyActive && connexion.isWrapperFor(PGConnection.class)) {
+                try {
+                    connexion.unwrap(PGConnection.class).getCopyAPI().copyIn(SQL_COPY, new StringReader(csv(lot)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return MethodeInsertion.COPY;
+            }
+            return null;
+        });
+        if (methode == null) {
+            jdbcTemplate.batchUpdate(SQL_INSERT, lot, TAILLE_BATCH_JDBC, (ps, creneau) -> {
+                // Même liaison qu'Hibernate pour un Instant (horodatage UTC)
+                ps.setObject(1, creneau.getHeureDebut().atOffset(ZoneOffset.UTC));
+                ps.setObject(2, creneau.getHeureFin().atOffset(ZoneOffset.UTC));
+                ps.setBoolean(3, !Boolean.FALSE.equals(creneau.getDisponible()));
+                ps.setInt(4, creneau.getCapaciteTotale());
+            });
+            methode = MethodeInsertion.LOTS_JDBC;
+        }
+
+        calendrierService.ajouterCreneaux(lot);
+        Instant premier = lot.stream().map(Creneau::getHeureDebut).min(Instant::compareTo).orElseThrow();
+        Instant dernier = lot.stream().map(Creneau::getHeureDebut).max(Instant::compareTo).orElseThrow();
+        // Identifiants attribués par la base : relus pour le registre (une requête indexée par lot)
+        creneauRepository.findPlacesRestantesEntre(premier, dernier)
+                .forEach(p -> registreCapacite.suivreApresCommit(p.creneauId(), Math.max(0, p.places())));
+        eventPublisher.publishEvent(CreneauxModifiesEvent.periode(premier, dernier));
+        return methode;
+    }
+
+    /**
+     * Lignes CSV du COPY ; une colonne timestamp sans fuseau reçoit l'heure locale de la session,
+     * qui est celle de la JVM (comme pour les instants liés par Hibernate)
+     */
+    private static String csv(List<Creneau> lot) {
+        ZoneId zone = ZoneId.systemDefault();
+        StringBuilder lignes = new StringBuilder(lot.size() * 64);
+        for (Creneau creneau : lot) {
+            lignes.append(LocalDateTime.ofInstant(creneau.getHeureDebut(), zone)).append(',')
+                    .append(LocalDateTime.ofInstant(creneau.getHeureFin(), zone)).append(',')
+                    .append(!Boolean.FALSE.equals(creneau.getDisponible())).append(',')
+                    .append(creneau.getCapaciteTotale()).append(",0,0,0\n");
+        }
+        return lignes.toString();
+    }
+}
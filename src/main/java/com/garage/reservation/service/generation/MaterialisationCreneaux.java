@@ -0,0 +1,144 @@
+package com.garage.reservation.service.generation;
+
+import com.garage.reservation.dto.CreationReservationDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.model.Creneau;
+import com.garage.reservation.repository.CreneauRepository;
+import com.garage.reservation.service.CalendrierService;
+import com.garage.reservation.service.capacite.RegistreCapacite;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Matérialisation d'un créneau virtuel à sa première réservation (ou retenue)
+ *
+ * La ligne est insérée dans sa propre transaction, validée avant que la réservation ne prenne sa place :
+ * deux premières réservations concurrentes du même créneau se départagent sur la contrainte d'unicité
+ * de heure_debut, la perdante relit l'identifiant inséré par la gagnante. Un créneau matérialisé
+ * ne redevient jamais virtuel (sauf suppression) ; si la réservation échoue ensuite, il reste sans
+ * réservation, comme le créneau virtuel qu'il remplace. La résolution a lieu avant l'ouverture de la transaction
+ * de réservation (contrôleurs) : une première réservation n'occupe ainsi jamais deux connexions du pool à la fois.
+ */
+@Component
+@Slf4j
+public class MaterialisationCreneaux {
+
+    private final CreneauxVirtuels creneauxVirtuels;
+    private final CreneauRepository creneauRepository;
+    private final CalendrierService calendrierService;
+    private final RegistreCapacite registreCapacite;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate nouvelleTransaction;
+    private final Lock[] verrous = new Lock[64];
+
+    public MaterialisationCreneaux(CreneauxVirtuels creneauxVirtuels,
+                                   CreneauRepository creneauRepository,
+                                   CalendrierService calendrierService,
+                                   RegistreCapacite registreCapacite,
+                                   ApplicationEventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager) {
+        this.creneauxVirtuels = creneauxVirtuels;
+        this.creneauRepository = creneauRepository;
+        this.calendrierService = calendrierService;
+        this.registreCapacite = registreCapacite;
+        this.eventPublisher = eventPublisher;
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Arrays.setAll(verrous, i -> new ReentrantLock());
+    }
+
+    /**
+     * Identifiant en base du créneau désigné : inchangé pour un créneau matérialisé, sinon le créneau virtuel
+     * est matérialisé (ou relu s'il l'a déjà été)
+     * Lève IllegalArgumentException si l'identifiant virtuel ne désigne aucun créneau prévu
+     */
+    public Long resoudre(Long creneauId) {
+        if (!CreneauxVirtuels.estVirtuel(creneauId)) {
+            return creneauId;
+        }
+        Creneau prevu = creneauxVirtuels.prevu(creneauId)
+                .orElseThrow(() -> new IllegalArgumentException("Le créneau spécifié n'existe pas"));
+        Optional<Long> existant = creneauRepository.findIdByHeureDebut(prevu.getHeureDebut());
+        if (existant.isPresent()) {
+            return existant.get();
+        }
+
+        // Les premières réservations concurrentes d'un créneau sur cette instance attendent la première
+        // matérialisation et relisent son identifiant, plutôt que de se heurter à la contrainte d'unicité
+        Lock verrou = verrous[Math.floorMod(creneauId, verrous.length)];
+        verrou.lock();
+        try {
+            existant = creneauRepository.findIdByHeureDebut(prevu.getHeureDebut());
+            if (existant.isPresent()) {
+                return existant.get();
+            }
+            calendrierService.preparerJours(List.of(prevu));
+            return nouvelleTransaction.execute(status -> inserer(prevu));
+        } catch (DataIntegrityViolationException e) {
+            // Matérialisé entre-temps par une réservation concurrente (autre instance)
+            return creneauRepository.findIdByHeureDebut(prevu.getHeureDebut())
+                    .orElseThrow(() -> e);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Remplace l'identifiant virtuel de chaque demande par celui du créneau matérialisé ; une demande désignant
+     * un créneau virtuel inconnu est laissée telle quelle (elle échoue ensuite comme un créneau inexistant)
+     */
+    public void resoudreDemandes(List<CreationReservationDTO> demandes) {
+        for (CreationReservationDTO demande : demandes) {
+            if (demande == null || !CreneauxVirtuels.estVirtuel(demande.getCreneauId())) {
+                continue;
+            }
+            try {
+                demande.setCreneauId(resoudre(demande.getCreneauId()));
+            } catch (IllegalArgumentException e) {
+                // Créneau inexistant : signalé par le lot
+            }
+        }
+    }
+
+    /**
+     * Identifiant en base du créneau désigné, sans matérialisation ; vide pour un créneau virtuel
+     * pas encore matérialisé
+     * Lève IllegalArgumentException si l'identifiant virtuel ne désigne aucun créneau prévu
+     */
+    public Optional<Long> identifiantExistant(Long creneauId) {
+        if (!CreneauxVirtuels.estVirtuel(creneauId)) {
+            return Optional.of(creneauId);
+        }
+        Creneau prevu = creneauxVirtuels.prevu(creneauId)
+                .orElseThrow(() -> new IllegalArgumentException("Le créneau spécifié n'existe pas"));
+        return creneauRepository.findIdByHeureDebut(prevu.getHeureDebut());
+    }
+
+    private Long inserer(Creneau prevu) {
+        // Un créneau créé manuellement peut occuper la plage sans commencer à la même heure
+        PlagesOccupees occupees = new PlagesOccupees(creneauRepository.findPlages(
+                prevu.getHeureDebut().minus(1, ChronoUnit.DAYS), prevu.getHeureFin()));
+        if (occupees.chevauche(prevu.getHeureDebut(), prevu.getHeureFin())) {
+            throw new IllegalArgumentException("Le créneau spécifié n'existe pas");
+        }
+
+        Creneau creneau = creneauRepository.saveAndFlush(prevu);
+        registreCapacite.suivreApresCommit(creneau.getId(), creneau.getCapaciteTotale());
+        calendrierService.ajouterCreneaux(List.of(creneau));
+        eventPublisher.publishEvent(CreneauxModifiesEvent.creneau(creneau.getHeureDebut()));
+        log.info("🧩 Créneau virtuel du {} matérialisé (id {})", creneau.getHeureDebut(), creneau.getId());
+        return creneau.getId();
+    }
+}
@@ -0,0 +1,34 @@
+package com.garage.reservation.service.generation;
+
+import com.garage.reservation.repository.PlageCreneau;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Plages des créneaux existants, pour écarter les créneaux prévus qui en chevauchent un
+ */
+final class PlagesOccupees {
+
+    /** Pour chaque heure de début existante, fin la plus tardive des créneaux commençant avant elle */
+    private final NavigableMap<Instant, Instant> finsExistantes = new TreeMap<>();
+
+    /**
+     * Plages lues dans l'ordre des heures de début
+     */
+    PlagesOccupees(List<PlageCreneau> plages) {
+        Instant finMax = Instant.MIN;
+        for (PlageCreneau plage : plages) {
+            finMax = plage.heureFin().isAfter(finMax) ? plage.heureFin() : finMax;
+            finsExistantes.put(plage.heureDebut(), finMax);
+        }
+    }
+
+    boolean chevauche(Instant heureDebut, Instant heureFin) {
+        Map.Entry<Instant, Instant> precedent = finsExistantes.lowerEntry(heureFin);
+        return precedent != null && precedent.getValue().isAfter(heureDebut);
+    }
+}
@@ -0,0 +1,113 @@
+package com.garage.reservation.service.generation;
+
+import com.garage.reservation.model.Creneau;
+import com.garage.reservation.model.JourFerie;
+import com.garage.reservation.model.ModeleHoraire;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instantané des règles horaires (modèles par jour de la semaine et jours fériés) et créneaux qu'elles prévoient
+ * Partagé par la génération et les créneaux virtuels ; les dates fériées sont calculées une fois par année
+ */
+public final class ReglesHoraires {
+
+    private final Map<DayOfWeek, ModeleHoraire> modeles;
+    private final List<JourFerie> joursFeries;
+    private final Map<Integer, Set<LocalDate>> datesFerieesParAnnee = new ConcurrentHashMap<>();
+
+    public ReglesHoraires(List<ModeleHoraire> modeles, List<JourFerie> joursFeries) {
+        this.modeles = new EnumMap<>(DayOfWeek.class);
+        modeles.forEach(modele -> this.modeles.put(modele.getJourSemaine(), modele));
+        this.joursFeries = List.copyOf(joursFeries);
+    }
+
+    /**
+     * Créneaux prévus entre deux dates incluses (jours fermés et fériés exclus), dans l'ordre chronologique
+     */
+    public List<Creneau> creneauxPrevus(LocalDate debut, LocalDate fin) {
+        List<Creneau> creneaux = new ArrayList<>();
+        for (LocalDate date = debut; !date.isAfter(fin); date = date.plusDays(1)) {
+            creneaux.addAll(creneauxDuJour(date));
+        }
+        return creneaux;
+    }
+
+    /**
+     * Créneaux prévus un jour donné ; vide si le jour est fermé ou férié
+     */
+    public List<Creneau> creneauxDuJour(LocalDate date) {
+        ModeleHoraire modele = modeles.get(date.getDayOfWeek());
+        if (modele == null || datesFeriees(date.getYear()).contains(date)) {
+            return List.of();
+        }
+        return creneauxDuJour(date, modele);
+    }
+
+    /**
+     * Créneau prévu commençant exactement à cette heure
+     */
+    public Optional<Creneau> creneauPrevu(Instant heureDebut) {
+        return creneauxDuJour(LocalDate.ofInstant(heureDebut, ZoneOffset.UTC)).stream()
+                .filter(creneau -> creneau.getHeureDebut().equals(heureDebut))
+                .findFirst();
+    }
+
+    private Set<LocalDate> datesFeriees(int annee) {
+        return datesFerieesParAnnee.computeIfAbsent(annee, a -> {
+            Set<LocalDate> dates = new HashSet<>();
+            for (JourFerie jourFerie : joursFeries) {
+                LocalDate date = jourFerie.dateEn(a);
+                if (date != null) {
+                    dates.add(date);
+                }
+            }
+            return dates;
+        });
+    }
+
+    /**
+     * Créneaux d'une journée selon son modèle : de l'ouverture à la fermeture, aucun ne chevauchant la pause
+     */
+    private static List<Creneau> creneauxDuJour(LocalDate date, ModeleHoraire modele) {
+        List<Creneau> creneaux = new ArrayList<>();
+        int duree = modele.getDureeMinutes();
+        int fermeture = minuteDuJour(modele.getHeureFermeture());
+        int pauseDebut = modele.getPauseDebut() != null ? minuteDuJour(modele.getPauseDebut()) : fermeture;
+        int pauseFin = modele.getPauseFin() != null ? minuteDuJour(modele.getPauseFin()) : fermeture;
+        Instant minuit = date.atStartOfDay(ZoneOffset.UTC).toInstant();
+
+        int debut = minuteDuJour(modele.getHeureOuverture());
+        while (debut + duree <= fermeture) {
+            if (debut < pauseFin && debut + duree > pauseDebut) {
+                // Pause déjeuner : reprise à la fin de la pause
+                debut = pauseFin;
+                continue;
+            }
+            creneaux.add(Creneau.builder()
+                    .heureDebut(minuit.plusSeconds(debut * 60L))
+                    .heureFin(minuit.plusSeconds((debut + duree) * 60L))
+                    .disponible(true)
+                    .capaciteTotale(modele.getCapacite())
+                    .build());
+            debut += duree;
+        }
+        return creneaux;
+    }
+
+    private static int minuteDuJour(LocalTime heure) {
+        return heure.toSecondOfDay() / 60;
+    }
+}
@@ -0,0 +1,122 @@
+package com.garage.reservation.service.generation;
+
+import com.garage.reservation.dto.ResultatNettoyageDTO;
+import com.garage.reservation.event.CreneauxModifiesEvent;
+import com.garage.reservation.model.Creneau;
+import com.garage.reservation.service.CalendrierService;
+import com.garage.reservation.service.cache.CacheSecondNiveau;
+import com.garage.reservation.service.tache.SuiviTache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Suppression en masse des créneaux futurs sans réservation, par lots ensemblistes validés séparément
+ *
+ * Chaque lot verrouille (SELECT ... FOR UPDATE) au plus tailleLot créneaux supprimables, dans l'ordre des heures
+ * de début à partir du dernier lot, puis les supprime en une requête avec leur synthèse quotidienne. Un créneau est
+ * supprimable s'il n'a aucune place réservée ou retenue et n'est référencé par aucune réservation (même annulée),
+ * retenue ni inscription en liste d'attente. Une réservation concurrente prend d'abord le verrou de la ligne du
+ * créneau (mise à jour conditionnelle du compteur) : soit elle attend le lot et ne trouve plus le créneau, soit le
+ * lot attend sa validation et relit un compteur non nul. Le coût dépend des créneaux futurs, pas de l'historique.
+ */
+@Component
+@Slf4j
+public class SuppressionCreneauxMasse {
+
+    private static final String SQL_SUPPRIMABLES = "SELECT c.id, c.heure_debut, c.capacite_totale FROM creneaux c " +
+            "WHERE c.heure_debut > ? AND c.places_reservees = 0 AND c.places_retenues = 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM reservations r WHERE r.creneau_id = c.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM retenues t WHERE t.creneau_id = c.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM inscriptions_attente a WHERE a.creneau_id = c.id) " +
+            "ORDER BY c.heure_debut LIMIT ? FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CalendrierService calendrierService;
+    private final CacheSecondNiveau cacheSecondNiveau;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionLot;
+    private final int tailleLot;
+
+    public SuppressionCreneauxMasse(JdbcTemplate jdbcTemplate,
+                                    CalendrierService calendrierService,
+                                    CacheSecondNiveau cacheSecondNiveau,
+                                    ApplicationEventPublisher eventPublisher,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${garage.reservation.generation.taille-lot-suppression:1000}") int tailleLot) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.calendrierService = calendrierService;
+        this.cacheSecondNiveau = cacheSecondNiveau;
+        this.eventPublisher = eventPublisher;
+        this.transactionLot = new TransactionTemplate(transactionManager);
+        this.transactionLot.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tailleLot = tailleLot;
+    }
+
+    /**
+     * Supprime les créneaux supprimables commençant après un instant ; un échec n'annule que le lot en cours,
+     * une annulation arrête la suppression entre deux lots
+     * (seul un lot vide marque la fin : une ligne relue après le verrou d'une réservation concurrente est écartée
+     * du lot, qui peut revenir incomplet alors que des créneaux suivants restent à supprimer)
+     */
+    public ResultatNettoyageDTO supprimerApres(Instant apres, SuiviTache suivi) {
+        long debut = System.nanoTime();
+        Instant curseur = apres;
+        int nombreSupprimes = 0;
+        int nombreLots = 0;
+        while (!suivi.estAnnulee()) {
+            Instant depuis = curseur;
+            List<Creneau> lot = transactionLot.execute(status -> supprimerLot(depuis));
+            if (lot.isEmpty()) {
+                break;
+            }
+            cacheSecondNiveau.evincerCreneaux(lot.stream().map(Creneau::getId).toList());
+            nombreSupprimes += lot.size();
+            nombreLots++;
+            suivi.lotTraite(lot.size());
+            curseur = lot.get(lot.size() - 1).getHeureDebut();
+            log.info("🧹 Lot {} : {} créneaux supprimés jusqu'au {} ({} au total)", nombreLots, lot.size(), curseur, nombreSupprimes);
+        }
+
+        return ResultatNettoyageDTO.builder()
+                .nombreSupprimes(nombreSupprimes)
+                .nombreLots(nombreLots)
+                .dureeMs((System.nanoTime() - debut) / 1_000_000)
+                .build();
+    }
+
+    /**
+     * Verrouille et supprime un lot, le retire de la synthèse quotidienne, puis signale sa période aux caches
+     * (après commit) ; renvoie les créneaux supprimés dans l'ordre des heures de début
+     */
+    private List<Creneau> supprimerLot(Instant depuis) {
+        List<Creneau> lot = jdbcTemplate.query(SQL_SUPPRIMABLES, (rs, i) -> Creneau.builder()
+                        .id(rs.getLong("id"))
+                        .heureDebut(rs.getTimestamp("heure_debut").toInstant())
+                        .capaciteTotale(rs.getInt("capacite_totale"))
+                        .build(),
+                // Même liaison qu'Hibernate pour un Instant (horodatage UTC)
+                depuis.atOffset(ZoneOffset.UTC), tailleLot);
+        if (lot.isEmpty()) {
+            return lot;
+        }
+
+        String parametres = String.join(", ", Collections.nCopies(lot.size(), "?"));
+        jdbcTemplate.update("DELETE FROM creneaux WHERE id IN (" + parametres + ")",
+                lot.stream().map(Creneau::getId).toArray());
+        calendrierService.retirerCreneaux(lot);
+        eventPublisher.publishEvent(CreneauxModifiesEvent.periode(lot.get(0).getHeureDebut(),
+                lot.get(lot.size() - 1).getHeureDebut()));
+        return lot;
+    }
+}
@@ -0,0 +1,36 @@
+package com.garage.reservation.service.tache;
+
+/**
+ * Avancement d'un traitement par lots exécuté en tâche de fond : lignes prévues, lots validés, annulation
+ * L'annulation est coopérative : le traitement la consulte entre deux lots et s'arrête après le lot en cours
+ */
+public interface SuiviTache {
+
+    /** Traitement lancé hors tâche (tâche planifiée, banc d'essai) : rien n'est suivi */
+    SuiviTache AUCUN = new SuiviTache() {
+        @Override
+        public void prevoir(int lignes) {
+        }
+
+        @Override
+        public void lotTraite(int lignes) {
+        }
+
+        @Override
+        public boolean estAnnulee() {
+            return false;
+        }
+    };
+
+    /**
+     * Nombre de lignes à traiter, dès qu'il est connu
+     */
+    void prevoir(int lignes);
+
+    /**
+     * Un lot de lignes a été validé
+     */
+    void lotTraite(int lignes);
+
+    boolean estAnnulee();
+}
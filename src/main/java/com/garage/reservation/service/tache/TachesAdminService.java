@@ -0,0 +1,264 @@
+package com.garage.reservation.service.tache;
+
+import com.garage.reservation.dto.TacheAdminDTO;
+import com.garage.reservation.mapper.TacheAdminMapper;
+import com.garage.reservation.model.StatutTacheAdmin;
+import com.garage.reservation.model.TacheAdmin;
+import com.garage.reservation.model.TypeTacheAdmin;
+import com.garage.reservation.repository.TacheAdminRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Tâches d'administration longues (génération et nettoyage de créneaux) exécutées en fond
+ *
+ * Une tâche soumise est enregistrée dans taches_admin puis exécutée sur un thread virtuel dédié ; au plus
+ * garage.reservation.taches.parallelisme tâches s'exécutent à la fois et au plus garage.reservation.taches.file-max
+ * sont actives (en attente ou en cours). Deux tâches dont les périodes de créneaux se chevauchent s'exécutent dans
+ * l'ordre de soumission, l'une après l'autre. L'avancement (lignes et lots validés) est enregistré à chaque lot ;
+ * l'annulation est prise en compte entre deux lots, les lots déjà validés sont conservés.
+ */
+@Service
+@Slf4j
+public class TachesAdminService {
+
+    /** Nombre maximal de tâches renvoyées par l'historique */
+    public static final int LIMITE_HISTORIQUE = 50;
+
+    private final TacheAdminRepository tacheAdminRepository;
+    private final TacheAdminMapper tacheAdminMapper;
+    private final int fileMax;
+    private final Semaphore executionsSimultanees;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("tache-admin-", 0).factory());
+
+    /** Tâches en attente ou en cours, par identifiant (ordre de soumission) */
+    private final Map<Long, Execution> actives = new ConcurrentHashMap<>();
+    private final Object verrouPeriodes = new Object();
+
+    public TachesAdminService(TacheAdminRepository tacheAdminRepository,
+                              TacheAdminMapper tacheAdminMapper,
+                              @Value("${garage.reservation.taches.parallelisme:2}") int parallelisme,
+                              @Value("${garage.reservation.taches.file-max:20}") int fileMax) {
+        this.tacheAdminRepository = tacheAdminRepository;
+        this.tacheAdminMapper = tacheAdminMapper;
+        this.executionsSimultanees = new Semaphore(parallelisme, true);
+        this.fileMax = fileMax;
+    }
+
+    /**
+     * Traitement d'une tâche ; renvoie le résumé enregistré comme message de la tâche
+     */
+    @FunctionalInterface
+    public interface Travail {
+        String executer(SuiviTache suivi);
+    }
+
+    /**
+     * Enregistre une tâche portant sur les créneaux des jours [debut, fin] (fin nulle : sans limite) et la lance
+     * Lève IllegalStateException si trop de tâches sont déjà actives
+     * (hors transaction : la ligne est validée avant que le thread de la tâche ne la mette à jour ;
+     * contrôle de la file, enregistrement et inscription sous verrouPeriodes : les identifiants sont
+     * inscrits dans leur ordre d'attribution, dont dépend l'ordre des tâches qui se chevauchent)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TacheAdminDTO soumettre(TypeTacheAdmin type, LocalDate debut, LocalDate fin, Travail travail) {
+        TacheAdmin tache;
+        TacheAdminDTO soumise;
+        Execution execution;
+        synchronized (verrouPeriodes) {
+            if (actives.size() >= fileMax) {
+                throw new IllegalStateException("Trop de tâches d'administration en cours (" + fileMax + " au maximum)");
+            }
+            tache = tacheAdminRepository.save(TacheAdmin.builder()
+                    .type(type)
+                    .debutPeriode(debut)
+                    .finPeriode(fin)
+                    .build());
+            // État à la soumission, lu avant que le thread de la tâche ne le modifie
+            soumise = tacheAdminMapper.toDTO(tache);
+            execution = new Execution(tache, travail);
+            actives.put(tache.getId(), execution);
+        }
+        executor.execute(execution);
+        log.info("📋 Tâche {} soumise : {} ({} → {})", tache.getId(), type.getLibelle(), debut, fin != null ? fin : "…");
+        return soumise;
+    }
+
+    /**
+     * Dernières tâches, de la plus récente à la plus ancienne
+     */
+    @Transactional(readOnly = true)
+    public List<TacheAdminDTO> getTaches() {
+        return tacheAdminRepository.findByOrderByIdDesc(Limit.of(LIMITE_HISTORIQUE)).stream()
+                .map(tacheAdminMapper::toDTO)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<TacheAdminDTO> getTache(Long id) {
+        return tacheAdminRepository.findById(id).map(tacheAdminMapper::toDTO);
+    }
+
+    /**
+     * Demande l'annulation d'une tâche : immédiate si elle attend encore, après le lot en cours sinon
+     * Lève IllegalStateException si la tâche est déjà terminée
+     */
+    public Optional<TacheAdminDTO> annuler(Long id) {
+        Execution execution = actives.get(id);
+        if (execution == null) {
+            return getTache(id).map(tache -> {
+                throw new IllegalStateException("La tâche " + id + " est déjà terminée (" + tache.getStatut().getLibelle() + ")");
+            });
+        }
+        execution.annulee = true;
+        synchronized (verrouPeriodes) {
+            verrouPeriodes.notifyAll();
+        }
+        log.info("🛑 Annulation demandée pour la tâche {}", id);
+        return Optional.of(tacheAdminMapper.toDTO(execution.tache));
+    }
+
+    /**
+     * Les tâches actives lors d'un arrêt ne reprennent pas : elles sont terminées en échec au démarrage
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void terminerInterrompues() {
+        int nombre = tacheAdminRepository.terminerEnEchec(List.of(StatutTacheAdmin.EN_ATTENTE, StatutTacheAdmin.EN_COURS),
+                "Interrompue par l'arrêt de l'application", Instant.now());
+        if (nombre > 0) {
+            log.warn("⚠️ {} tâches d'administration interrompues par le dernier arrêt", nombre);
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Une tâche précédente (identifiant inférieur) encore active porte sur des jours communs
+     */
+    private boolean attendPrecedente(Execution execution) {
+        return actives.values().stream()
+                .anyMatch(autre -> autre.id < execution.id && autre.chevauche(execution));
+    }
+
+    /**
+     * Exécution d'une tâche ; seul son thread écrit la ligne de la tâche après sa création
+     */
+    private final class Execution implements Runnable, SuiviTache {
+
+        private final long id;
+        private final LocalDate debut;
+        private final LocalDate fin;
+        private final Travail travail;
+        private volatile TacheAdmin tache;
+        private volatile boolean annulee;
+
+        private Execution(TacheAdmin tache, Travail travail) {
+            this.id = tache.getId();
+            this.debut = tache.getDebutPeriode();
+            this.fin = tache.getFinPeriode();
+            this.tache = tache;
+            this.travail = travail;
+        }
+
+        private boolean chevauche(Execution autre) {
+            return (fin == null || !autre.debut.isAfter(fin)) && (autre.fin == null || !debut.isAfter(autre.fin));
+        }
+
+        @Override
+        public void run() {
+            boolean permis = false;
+            try {
+                synchronized (verrouPeriodes) {
+                    while (!annulee && attendPrecedente(this)) {
+                        verrouPeriodes.wait();
+                    }
+                }
+                if (!annulee) {
+                    executionsSimultanees.acquire();
+                    permis = true;
+                }
+                if (annulee) {
+                    terminer(StatutTacheAdmin.ANNULEE, "Annulée avant son démarrage");
+                    return;
+                }
+
+                tache.setStatut(StatutTacheAdmin.EN_COURS);
+                tache.setDateDebut(Instant.now());
+                enregistrer();
+                String resume = travail.executer(this);
+                terminer(annulee ? StatutTacheAdmin.ANNULEE : StatutTacheAdmin.TERMINEE,
+                        annulee ? "Annulée après " + tache.getLignesTraitees() + " lignes : " + resume : resume);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                terminer(StatutTacheAdmin.ECHOUEE, "Interrompue par l'arrêt de l'application");
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Échec de la tâche {} après {} lignes : {}", id, tache.getLignesTraitees(), e.getMessage());
+                terminer(StatutTacheAdmin.ECHOUEE, "Échec après " + tache.getLignesTraitees() + " lignes : " + e.getMessage());
+            } finally {
+                if (permis) {
+                    executionsSimultanees.release();
+                }
+                actives.remove(id);
+                synchronized (verrouPeriodes) {
+                    verrouPeriodes.notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public void prevoir(int lignes) {
+            tache.setLignesPrevues(tache.getLignesTraitees() + lignes);
+            enregistrer();
+        }
+
+        @Override
+        public void lotTraite(int lignes) {
+            tache.setLignesTraitees(tache.getLignesTraitees() + lignes);
+            tache.setLotsTraites(tache.getLotsTraites() + 1);
+            enregistrer();
+        }
+
+        @Override
+        public boolean estAnnulee() {
+            return annulee;
+        }
+
+        private void terminer(StatutTacheAdmin statut, String message) {
+            tache.setStatut(statut);
+            tache.setMessage(message != null && message.length() > 500 ? message.substring(0, 500) : message);
+            tache.setDateFin(Instant.now());
+            try {
+                enregistrer();
+            } catch (RuntimeException e) {
+                log.warn("⚠️ État final de la tâche {} non enregistré : {}", id, e.getMessage());
+            }
+            log.info("📋 Tâche {} {} : {}", id, statut.getLibelle().toLowerCase(), tache.getMessage());
+        }
+
+        private void enregistrer() {
+            tache = tacheAdminRepository.save(tache);
+        }
+    }
+}
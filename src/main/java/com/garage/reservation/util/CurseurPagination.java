@@ -0,0 +1,122 @@
+package com.garage.reservation.util;
+
+import com.garage.reservation.dto.PageCurseurDTO;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Pagination par curseur (keyset) sur le couple (heure de début du créneau, identifiant)
+ *
+ * Le curseur est la position de la dernière ligne renvoyée, encodée en base64 : la page
+ * suivante reprend strictement après elle, sans OFFSET, et reste stable si des lignes sont
+ * insérées entre deux appels. Le client le traite comme une valeur opaque.
+ */
+public final class CurseurPagination {
+
+    /** En-têtes de réponse : curseur de la page suivante et total (sur demande) */
+    public static final String ENTETE_CURSEUR_SUIVANT = "X-Next-Cursor";
+    public static final String ENTETE_TOTAL = "X-Total-Count";
+
+    public static final int TAILLE_DEFAUT = 50;
+    public static final int TAILLE_MAX = 500;
+
+    /** Positions de départ d'une première page (avant toute ligne, dans l'ordre du tri) */
+    public static final Position DEBUT_CROISSANT = new Position(Instant.parse("0001-01-01T00:00:00Z"), 0L);
+    public static final Position DEBUT_DECROISSANT = new Position(Instant.parse("9999-12-31T00:00:00Z"), Long.MAX_VALUE);
+
+    private static final String VERSION = "v1";
+
+    /**
+     * Position d'une ligne dans l'ordre (heureDebut, id)
+     */
+    public record Position(Instant heureDebut, Long id) {
+    }
+
+    private CurseurPagination() {
+    }
+
+    /**
+     * Décode un curseur reçu du client ; retourne la position de départ s'il est absent
+     * Lève IllegalArgumentException si le curseur est invalide
+     */
+    public static Position decoder(String curseur, Position depart) {
+        if (curseur == null || curseur.isBlank()) {
+            return depart;
+        }
+        try {
+            String[] parties = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8).split(":");
+            if (parties.length != 4 || !VERSION.equals(parties[0])) {
+                throw new IllegalArgumentException("Curseur de pagination invalide");
+            }
+            return new Position(Instant.ofEpochSecond(Long.parseLong(parties[1]), Long.parseLong(parties[2])),
+                    Long.parseLong(parties[3]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide", e);
+        }
+    }
+
+    /**
+     * Encode la position d'une ligne en curseur opaque
+     */
+    public static String encoder(Instant heureDebut, Long id) {
+        String position = VERSION + ":" + heureDebut.getEpochSecond() + ":" + heureDebut.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Taille de page effective : valeur par défaut si absente, plafonnée à TAILLE_MAX
+     * Lève IllegalArgumentException si elle n'est pas strictement positive
+     */
+    public static int taille(Integer demandee) {
+        if (demandee == null) {
+            return TAILLE_DEFAUT;
+        }
+        if (demandee < 1) {
+            throw new IllegalArgumentException("La taille de page doit être strictement positive");
+        }
+        return Math.min(demandee, TAILLE_MAX);
+    }
+
+    /**
+     * Construit une page à partir des lignes lues (taille + 1 au plus : la ligne en trop signale
+     * l'existence d'une page suivante) ; le total n'est calculé que si avecTotal est vrai
+     */
+    public static <E, D> PageCurseurDTO<D> page(List<E> lues, int taille,
+                                               Function<E, Instant> heureDebut, Function<E, Long> id,
+                                               Function<E, D> conversion,
+                                               boolean avecTotal, LongSupplier total) {
+        boolean suite = lues.size() > taille;
+        List<E> elements = suite ? lues.subList(0, taille) : lues;
+        String curseurSuivant = null;
+        if (suite) {
+            E derniere = elements.get(elements.size() - 1);
+            curseurSuivant = encoder(heureDebut.apply(derniere), id.apply(derniere));
+        }
+        return PageCurseurDTO.<D>builder()
+                .elements(elements.stream().map(conversion).toList())
+                .curseurSuivant(curseurSuivant)
+                .total(avecTotal ? total.getAsLong() : null)
+                .build();
+    }
+
+    /**
+     * Réponse HTTP d'une page : les éléments dans le corps, le curseur suivant et le total en en-têtes
+     */
+    public static <T> ResponseEntity<List<T>> reponse(PageCurseurDTO<T> page) {
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok();
+        if (page.getCurseurSuivant() != null) {
+            reponse.header(ENTETE_CURSEUR_SUIVANT, page.getCurseurSuivant());
+        }
+        if (page.getTotal() != null) {
+            reponse.header(ENTETE_TOTAL, String.valueOf(page.getTotal()));
+        }
+        return reponse.body(page.getElements());
+    }
+}
@@ -0,0 +1,140 @@
+package com.garage.reservation.util;
+
+import java.util.Arrays;
+
+/**
+ * Table de hachage long → int à adressage ouvert (sondage linéaire), sans boxing
+ * Non thread-safe : l'appelant doit synchroniser les accès
+ */
+public class LongIntHashMap {
+    
+    private static final long CLE_VIDE = Long.MIN_VALUE;
+    private static final float TAUX_REMPLISSAGE_MAX = 0.5f;
+    
+    private long[] cles;
+    private int[] valeurs;
+    private int taille;
+    
+    public LongIntHashMap(int capaciteInitiale) {
+        int capacite = Integer.highestOneBit(Math.max(8, capaciteInitiale) * 2 - 1);
+        allouer(capacite);
+    }
+    
+    /**
+     * Retourne la valeur associée à la clé, ou valeurAbsente si la clé n'existe pas
+     */
+    public int get(long cle, int valeurAbsente) {
+        int index = chercher(cle);
+        return index >= 0 ? valeurs[index] : valeurAbsente;
+    }
+    
+    public boolean containsKey(long cle) {
+        return chercher(cle) >= 0;
+    }
+    
+    /**
+     * Associe une valeur à une clé (remplace la valeur existante)
+     */
+    public void put(long cle, int valeur) {
+        verifierCle(cle);
+        int masque = cles.length - 1;
+        int index = indexDe(cle, masque);
+        while (cles[index] != CLE_VIDE) {
+            if (cles[index] == cle) {
+                valeurs[index] = valeur;
+                return;
+            }
+            index = (index + 1) & masque;
+        }
+        cles[index] = cle;
+        valeurs[index] = valeur;
+        if (++taille > cles.length * TAUX_REMPLISSAGE_MAX) {
+            redimensionner();
+        }
+    }
+    
+    /**
+     * Supprime une clé (décalage arrière pour conserver les séquences de sondage)
+     */
+    public boolean remove(long cle) {
+        int index = chercher(cle);
+        if (index < 0) {
+            return false;
+        }
+        int masque = cles.length - 1;
+        int libre = index;
+        int suivant = (index + 1) & masque;
+        while (cles[suivant] != CLE_VIDE) {
+            int ideal = indexDe(cles[suivant], masque);
+            // Déplace l'entrée si sa position idéale n'est pas entre le trou et sa position actuelle
+            if (((suivant - ideal) & masque) >= ((suivant - libre) & masque)) {
+                cles[libre] = cles[suivant];
+                valeurs[libre] = valeurs[suivant];
+                libre = suivant;
+            }
+            suivant = (suivant + 1) & masque;
+        }
+        cles[libre] = CLE_VIDE;
+        taille--;
+        return true;
+    }
+    
+    public int size() {
+        return taille;
+    }
+    
+    public void clear() {
+        Arrays.fill(cles, CLE_VIDE);
+        taille = 0;
+    }
+    
+    /**
+     * Reprend le contenu d'une autre table, sans copie (l'autre table ne doit plus être utilisée)
+     */
+    public void remplacerPar(LongIntHashMap autre) {
+        cles = autre.cles;
+        valeurs = autre.valeurs;
+        taille = autre.taille;
+    }
+    
+    private int chercher(long cle) {
+        int masque = cles.length - 1;
+        int index = indexDe(cle, masque);
+        while (cles[index] != CLE_VIDE) {
+            if (cles[index] == cle) {
+                return index;
+            }
+            index = (index + 1) & masque;
+        }
+        return -1;
+    }
+    
+    private void redimensionner() {
+        long[] anciennesCles = cles;
+        int[] anciennesValeurs = valeurs;
+        allouer(anciennesCles.length * 2);
+        for (int i = 0; i < anciennesCles.length; i++) {
+            if (anciennesCles[i] != CLE_VIDE) {
+                put(anciennesCles[i], anciennesValeurs[i]);
+            }
+        }
+    }
+    
+    private void allouer(int capacite) {
+        cles = new long[capacite];
+        valeurs = new int[capacite];
+        Arrays.fill(cles, CLE_VIDE);
+        taille = 0;
+    }
+    
+    private static int indexDe(long cle, int masque) {
+        long h = cle * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & masque;
+    }
+    
+    private static void verifierCle(long cle) {
+        if (cle == CLE_VIDE) {
+            throw new IllegalArgumentException("Clé réservée : " + cle);
+        }
+    }
+}
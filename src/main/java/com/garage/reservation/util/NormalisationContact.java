@@ -0,0 +1,73 @@
+package com.garage.reservation.util;
+
+import java.util.Locale;
+
+/**
+ * Formes canoniques des immatriculations et numéros de téléphone, pour la recherche
+ *
+ * Les mêmes règles servent à calculer les colonnes de recherche des réservations et à
+ * normaliser les saisies des recherches (valeur complète ou début de valeur) : "AB-123-CD",
+ * "ab 123cd" et "AB123CD" ont la même clé. La migration 015 les reproduit en SQL.
+ */
+public final class NormalisationContact {
+
+    private static final String INDICATIF_POLYNESIE = "+689";
+    private static final String INDICATIF_FRANCE = "+33";
+    /** Longueur maximale d'un indicatif international (E.164) */
+    private static final int LONGUEUR_MAX_INDICATIF = 3;
+
+    private NormalisationContact() {
+    }
+
+    /**
+     * Immatriculation en majuscules, réduite à ses lettres et chiffres
+     */
+    public static String immatriculation(String immatriculation) {
+        if (immatriculation == null) {
+            return null;
+        }
+        return immatriculation.toUpperCase(Locale.ROOT).replaceAll("[^A-Z0-9]", "");
+    }
+
+    /**
+     * Numéro de téléphone au format E.164 : "+" ou "00" conservent leur indicatif, un numéro
+     * commençant par 0 est métropolitain (+33), tout autre numéro est local (+689)
+     * Le début d'un numéro donne le début de sa forme canonique (recherche par préfixe)
+     */
+    public static String telephone(String numeroTelephone) {
+        if (numeroTelephone == null) {
+            return null;
+        }
+        String chiffres = numeroTelephone.replaceAll("[^0-9]", "");
+        if (chiffres.isEmpty()) {
+            return "";
+        }
+        if (numeroTelephone.stripLeading().startsWith("+")) {
+            return "+" + chiffres;
+        }
+        if (chiffres.startsWith("00")) {
+            return "+" + chiffres.substring(2);
+        }
+        if (chiffres.startsWith("0")) {
+            return INDICATIF_FRANCE + chiffres.substring(1);
+        }
+        return INDICATIF_POLYNESIE + chiffres;
+    }
+
+    /**
+     * Nombre de chiffres d'un numéro canonique après son indicatif : +689 et +33 sont reconnus,
+     * tout autre indicatif compte pour sa longueur maximale (un préfixe "+" ou "+33" ne désigne aucun abonné)
+     */
+    public static int chiffresApresIndicatif(String telephoneNormalise) {
+        if (telephoneNormalise == null || telephoneNormalise.isEmpty()) {
+            return 0;
+        }
+        if (telephoneNormalise.startsWith(INDICATIF_POLYNESIE)) {
+            return telephoneNormalise.length() - INDICATIF_POLYNESIE.length();
+        }
+        if (telephoneNormalise.startsWith(INDICATIF_FRANCE)) {
+            return telephoneNormalise.length() - INDICATIF_FRANCE.length();
+        }
+        return Math.max(0, telephoneNormalise.length() - 1 - LONGUEUR_MAX_INDICATIF);
+    }
+}
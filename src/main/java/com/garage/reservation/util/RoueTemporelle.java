@@ -0,0 +1,167 @@
+package com.garage.reservation.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Roue temporelle hachée : planification d'un grand nombre d'échéances à faible coût
+ *
+ * Le temps est découpé en ticks ; chaque échéance est rangée dans la case de son tick modulo
+ * le nombre de cases, avec le nombre de tours restant avant son déclenchement. Planifier et
+ * annuler coûtent O(1) ; à chaque tick, seule la case courante est parcourue. La précision est
+ * celle du tick : une échéance se déclenche au plus un tick après sa date.
+ *
+ * Un unique fil démon avance la roue et transmet les éléments échus, par lot, à l'action fournie.
+ */
+@Slf4j
+public final class RoueTemporelle<T> implements AutoCloseable {
+
+    private final long dureeTickNanos;
+    private final int masque;
+    private final List<Echeance<T>>[] cases;
+    private final Queue<Echeance<T>> aPlacer = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> action;
+    private final Thread fil;
+    private final long origineNanos;
+    private long tick;
+
+    /**
+     * @param nom            nom du fil d'exécution
+     * @param dureeTick      granularité de la roue
+     * @param nombreCases    nombre de cases (arrondi à la puissance de 2 supérieure)
+     * @param action         traitement des éléments échus, appelé sur le fil de la roue
+     */
+    public RoueTemporelle(String nom, Duration dureeTick, int nombreCases, Consumer<List<T>> action) {
+        if (dureeTick.isZero() || dureeTick.isNegative() || nombreCases <= 0) {
+            throw new IllegalArgumentException("Durée de tick et nombre de cases doivent être positifs");
+        }
+        int taille = Integer.highestOneBit(Math.max(1, nombreCases - 1)) << 1;
+        this.dureeTickNanos = dureeTick.toNanos();
+        this.masque = taille - 1;
+        this.cases = nouvellesCases(taille);
+        this.action = action;
+        this.origineNanos = System.nanoTime();
+        this.fil = new Thread(this::tourner, nom);
+        this.fil.setDaemon(true);
+        this.fil.start();
+    }
+
+    /**
+     * Planifie le déclenchement de l'élément à la date donnée (immédiat si elle est passée)
+     */
+    public Echeance<T> planifier(T element, Instant date) {
+        long delaiNanos = Math.max(0, Duration.between(Instant.now(), date).toNanos());
+        Echeance<T> echeance = new Echeance<>(element, System.nanoTime() - origineNanos + delaiNanos);
+        aPlacer.add(echeance);
+        return echeance;
+    }
+
+    @Override
+    public void close() {
+        fil.interrupt();
+    }
+
+    private void tourner() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                attendreTick();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            placerNouvellesEcheances();
+            List<T> echus = collecterEchus(cases[(int) (tick & masque)]);
+            tick++;
+
+            if (!echus.isEmpty()) {
+                try {
+                    action.accept(echus);
+                } catch (RuntimeException e) {
+                    log.error("Erreur lors du traitement de {} échéances", echus.size(), e);
+                }
+            }
+        }
+    }
+
+    private void attendreTick() throws InterruptedException {
+        long finTick = (tick + 1) * dureeTickNanos;
+        long attente;
+        while ((attente = finTick - (System.nanoTime() - origineNanos)) > 0) {
+            TimeUnit.NANOSECONDS.sleep(attente);
+        }
+    }
+
+    private void placerNouvellesEcheances() {
+        Echeance<T> echeance;
+        while ((echeance = aPlacer.poll()) != null) {
+            if (echeance.annulee) {
+                continue;
+            }
+            // Tick de déclenchement (jamais dans le passé : une échéance dépassée part au tick courant)
+            long tickCible = Math.max(tick, echeance.echeanceNanos / dureeTickNanos);
+            echeance.toursRestants = (tickCible - tick) / cases.length;
+            cases[(int) (tickCible & masque)].add(echeance);
+        }
+    }
+
+    private List<T> collecterEchus(List<Echeance<T>> caseCourante) {
+        List<T> echus = new ArrayList<>();
+        int conservees = 0;
+        for (int i = 0; i < caseCourante.size(); i++) {
+            Echeance<T> echeance = caseCourante.get(i);
+            if (echeance.annulee) {
+                continue;
+            }
+            if (echeance.toursRestants <= 0) {
+                echus.add(echeance.element);
+            } else {
+                echeance.toursRestants--;
+                caseCourante.set(conservees++, echeance);
+            }
+        }
+        caseCourante.subList(conservees, caseCourante.size()).clear();
+        return echus;
+    }
+
+    /**
+     * Cases vides de la roue (un tableau de type générique ne peut pas être créé directement : le tableau de
+     * List<?> ne contient que des ArrayList<E> créées ici, la conversion est sûre)
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> List<E>[] nouvellesCases(int taille) {
+        List<E>[] cases = (List<E>[]) new List<?>[taille];
+        for (int i = 0; i < taille; i++) {
+            cases[i] = new ArrayList<>();
+        }
+        return cases;
+    }
+
+    /**
+     * Échéance planifiée, annulable en O(1) (retirée de sa case au prochain passage de la roue)
+     */
+    public static final class Echeance<T> {
+
+        private final T element;
+        private final long echeanceNanos;
+        private long toursRestants;
+        private volatile boolean annulee;
+
+        private Echeance(T element, long echeanceNanos) {
+            this.element = element;
+            this.echeanceNanos = echeanceNanos;
+        }
+
+        public void annuler() {
+            annulee = true;
+        }
+    }
+}